@@ -12,8 +12,13 @@
 package de.thjom.java.systemd;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.freedesktop.DBus.Properties.PropertiesChanged;
 import org.freedesktop.dbus.DBusSigHandler;
@@ -22,11 +27,15 @@ import org.freedesktop.dbus.exceptions.DBusException;
 
 abstract class AbstractAdapter {
 
-    protected final List<UnitStateListener> unitStateListeners = new ArrayList<>();
+    // Copy-on-write so that signals are dispatched without holding a lock
+    protected final List<UnitStateListener> unitStateListeners = new CopyOnWriteArrayList<>();
+
+    private final Map<BatchUnitStateListener, StateChangeBatcher> batchers = new HashMap<>();
 
     private final List<ForwardingHandler<? extends DBusSignal>> forwarders = new ArrayList<>();
 
     private ForwardingHandler<PropertiesChanged> defaultHandler;
+    private DBusSigHandler<PropertiesChanged> routedHandler;
 
     protected AbstractAdapter() {
         super();
@@ -34,11 +43,24 @@ abstract class AbstractAdapter {
 
     public abstract <T extends DBusSignal> void addHandler(final Class<T> type, final DBusSigHandler<T> handler) throws DBusException;
 
+    /**
+     * Adds a handler restricted by the given match rule. Adapters which do
+     * not support match rules add an unrestricted handler.<p>
+     *
+     * @param type The signal class.
+     * @param rule The match rule for the signal class.
+     * @param handler The signal handler.
+     * @throws DBusException If the handler cannot be added.
+     */
+    public <T extends DBusSignal> void addHandler(final Class<T> type, final MatchRule rule, final DBusSigHandler<T> handler) throws DBusException {
+        addHandler(type, handler);
+    }
+
     public abstract <T extends DBusSignal> void removeHandler(final Class<T> type, final DBusSigHandler<T> handler) throws DBusException;
 
     public <T extends DBusSignal> void addConsumer(final Class<T> type, final DBusSigHandler<T> handler) throws DBusException {
-        SignalConsumer<T> consumer = new SignalConsumer<>(handler::handle);
-        ForwardingHandler<T> forwarder = new ForwardingHandler<>(consumer);
+        SignalConsumer<T> consumer = createConsumer(handler);
+        ForwardingHandler<T> forwarder = new ForwardingHandler<>(consumer, getSignalDispatcher());
 
         synchronized (forwarders) {
             forwarders.add(forwarder);
@@ -54,7 +76,7 @@ abstract class AbstractAdapter {
 
         synchronized (forwarders) {
             for (ForwardingHandler<? extends DBusSignal> forwarder : forwarders) {
-                if (Objects.equals(forwarder.getConsumer(), handler)) {
+                if (Objects.equals(forwarder.getConsumer().getHandler(), handler)) {
                     match = forwarder;
 
                     break;
@@ -78,11 +100,24 @@ abstract class AbstractAdapter {
 
     public void addListener(final UnitStateListener listener) throws DBusException {
         synchronized (unitStateListeners) {
-            if (defaultHandler == null) {
-                defaultHandler = new ForwardingHandler<>(createStateConsumer());
+            PropertiesDemultiplexer demultiplexer = getDemultiplexer();
+
+            if (demultiplexer != null && defaultHandler == null && routedHandler == null) {
+                routedHandler = createStateHandler();
+                addStateRoutes(demultiplexer, routedHandler);
+            }
+            else if (defaultHandler == null && routedHandler == null) {
+                defaultHandler = new ForwardingHandler<>(createStateConsumer(), getSignalDispatcher());
                 defaultHandler.startConsumer();
 
-                addHandler(PropertiesChanged.class, defaultHandler);
+                MatchRule rule = getStateMatchRule();
+
+                if (rule != null) {
+                    addHandler(PropertiesChanged.class, rule, defaultHandler);
+                }
+                else {
+                    addHandler(PropertiesChanged.class, defaultHandler);
+                }
             }
 
             unitStateListeners.add(listener);
@@ -99,11 +134,175 @@ abstract class AbstractAdapter {
                 defaultHandler.stopConsumer();
                 defaultHandler = null;
             }
+            else if (unitStateListeners.isEmpty() && routedHandler != null) {
+                removeStateRoutes(getDemultiplexer(), routedHandler);
+
+                routedHandler = null;
+            }
+        }
+    }
+
+    /**
+     * Adds a listener receiving the state changes in batches. A batch is
+     * delivered on the consumer thread as soon as it contains the given
+     * number of changes or its first change is older than the given delay
+     * (checked on arrival of a change, incomplete batches are delivered by
+     * a separate delivery thread when the delay elapses).<p>
+     *
+     * @param listener The listener.
+     * @param maxBatchSize The maximum number of changes per batch.
+     * @param maxDelay The maximum delay of a change in milliseconds (<code>0</code> disables batching).
+     * @throws DBusException If the signal handler cannot be added.
+     */
+    public void addBatchListener(final BatchUnitStateListener listener, final int maxBatchSize, final long maxDelay) throws DBusException {
+        StateChangeBatcher batcher = new StateChangeBatcher(listener, maxBatchSize, maxDelay, getScheduler(), getDeliveryExecutor());
+
+        synchronized (unitStateListeners) {
+            if (batchers.putIfAbsent(listener, batcher) == null) {
+                addListener(batcher);
+            }
         }
     }
 
+    public void removeBatchListener(final BatchUnitStateListener listener) throws DBusException {
+        StateChangeBatcher batcher;
+
+        synchronized (unitStateListeners) {
+            batcher = batchers.remove(listener);
+
+            if (batcher != null) {
+                removeListener(batcher);
+            }
+        }
+
+        if (batcher != null) {
+            batcher.flush();
+        }
+    }
+
+    /**
+     * Returns a publisher of the state changes of this adapter with
+     * {@link SignalConsumer#DEFAULT_QUEUE_LENGTH} buffered events per
+     * subscriber and {@link OverflowPolicy#BLOCK}.<p>
+     *
+     * @return The publisher.
+     * @see #getStatePublisher(int, OverflowPolicy)
+     */
+    public Flow.Publisher<UnitStateEvent> getStatePublisher() {
+        return getStatePublisher(SignalConsumer.DEFAULT_QUEUE_LENGTH, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Returns a publisher of the state changes of this adapter. Each
+     * subscriber buffers up to the given number of events that have not been
+     * requested yet. Discarded events are counted by the signal queue
+     * statistics of the manager.<p>
+     *
+     * @param bufferSize The maximum number of buffered events per subscriber.
+     * @param overflowPolicy The behavior if the buffer of a subscriber is full.
+     * @return The publisher.
+     */
+    public Flow.Publisher<UnitStateEvent> getStatePublisher(final int bufferSize, final OverflowPolicy overflowPolicy) {
+        return new StatePublisher(this, bufferSize, overflowPolicy, new SignalQueueStatistics(getSignalQueueStatistics()));
+    }
+
+    /**
+     * Returns the statistics aggregating the overflow counters of this adapter.<p>
+     *
+     * @return The statistics or <code>null</code> if not available.
+     */
+    protected SignalQueueStatistics getSignalQueueStatistics() {
+        return null;
+    }
+
+    /**
+     * Returns the scheduler for delayed deliveries to listeners.<p>
+     *
+     * @return The scheduler or <code>null</code> if not available.
+     */
+    protected ScheduledExecutorService getScheduler() {
+        return null;
+    }
+
+    /**
+     * Returns the executor running deliveries released by the scheduler.<p>
+     *
+     * @return The executor or <code>null</code> if not available.
+     */
+    protected Executor getDeliveryExecutor() {
+        return null;
+    }
+
+    /**
+     * Returns the dispatcher running the signal consumers of this adapter.<p>
+     *
+     * @return The dispatcher or <code>null</code> if each consumer runs on a dedicated thread.
+     */
+    protected SignalDispatcher getSignalDispatcher() {
+        return null;
+    }
+
+    /**
+     * Creates a consumer (and its signal queue) for the given handler.<p>
+     *
+     * @param handler The handler to be run by the consumer.
+     * @return The consumer.
+     */
+    protected <T extends DBusSignal> SignalConsumer<T> createConsumer(final DBusSigHandler<T> handler) {
+        return new SignalConsumer<>(handler);
+    }
+
+    /**
+     * Returns the match rule of the handler for state listeners.<p>
+     *
+     * @return The rule or <code>null</code> for the default rule of {@link #addHandler(Class, DBusSigHandler)}.
+     * @throws DBusException If the rule cannot be created.
+     */
+    protected MatchRule getStateMatchRule() throws DBusException {
+        return null;
+    }
+
+    /**
+     * Returns the connection-wide demultiplexer for state changes.<p>
+     *
+     * @return The demultiplexer or <code>null</code> if state listeners use a signal handler of their own.
+     */
+    protected PropertiesDemultiplexer getDemultiplexer() {
+        return null;
+    }
+
+    /**
+     * Returns the object path whose state changes are routed to this adapter
+     * by the demultiplexer.<p>
+     *
+     * @return The object path or <code>null</code> for the state changes of all units.
+     */
+    protected String getStatePath() {
+        return null;
+    }
+
+    /**
+     * Lets the demultiplexer route the state changes of this adapter (see
+     * {@link #getStatePath()}) to the given handler.<p>
+     *
+     * @param demultiplexer The demultiplexer.
+     * @param handler The state handler.
+     * @throws DBusException If the signal handler cannot be registered.
+     */
+    protected void addStateRoutes(final PropertiesDemultiplexer demultiplexer, final DBusSigHandler<PropertiesChanged> handler) throws DBusException {
+        demultiplexer.add(getStatePath(), handler);
+    }
+
+    protected void removeStateRoutes(final PropertiesDemultiplexer demultiplexer, final DBusSigHandler<PropertiesChanged> handler) throws DBusException {
+        demultiplexer.remove(getStatePath(), handler);
+    }
+
+    protected DBusSigHandler<PropertiesChanged> createStateHandler() {
+        return s -> { /* Default behavior (do nothing) */ };
+    }
+
     protected SignalConsumer<PropertiesChanged> createStateConsumer() {
-        return new SignalConsumer<>(s -> { /* Default behavior (do nothing) */ });
+        return createConsumer(createStateHandler());
     }
 
 }
@@ -42,7 +42,7 @@ public class Automount extends Unit {
     private Automount(final Manager manager, final AutomountInterface iface, final String name) throws DBusException {
         super(manager, iface, name);
 
-        this.properties = Properties.create(dbus, iface.getObjectPath(), SERVICE_NAME);
+        this.properties = Properties.create(manager, iface.getObjectPath(), SERVICE_NAME);
     }
 
     static Automount create(final Manager manager, String name) throws DBusException {
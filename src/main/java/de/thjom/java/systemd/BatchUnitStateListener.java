@@ -0,0 +1,30 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.List;
+
+/**
+ * Receives the state changes of units in batches (collected by size or
+ * time), see {@link AbstractAdapter#addBatchListener(BatchUnitStateListener, int, long)}.
+ */
+@FunctionalInterface
+public interface BatchUnitStateListener {
+
+    /**
+     * Called with the state changes collected since the last batch.<p>
+     *
+     * @param changes The state changes in order of arrival (never empty).
+     */
+    void statesChanged(List<UnitStateEvent> changes);
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.freedesktop.dbus.CallbackHandler;
+import org.freedesktop.dbus.Path;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.thjom.java.systemd.Unit.Mode;
+
+/**
+ * Runs a job method on many units with bounded parallelism. Method calls
+ * are issued asynchronously, and a unit counts towards the concurrency
+ * limit until its job has been removed (tracked via {@link JobTracker}).
+ * The call blocks until all jobs are done or the timeout elapses.
+ *
+ * @see Manager#bulk()
+ */
+public final class BulkOperation {
+
+    public static final int DEFAULT_CONCURRENCY = 64;
+    public static final long DEFAULT_TIMEOUT = 300000L;
+
+    enum Verb {
+
+        START("startUnit"),
+        STOP("stopUnit"),
+        RELOAD("reloadUnit"),
+        RESTART("restartUnit"),
+        TRY_RESTART("tryRestartUnit"),
+        RELOAD_OR_RESTART("reloadOrRestartUnit"),
+        RELOAD_OR_TRY_RESTART("reloadOrTryRestartUnit");
+
+        private final String method;
+
+        private Verb(final String method) {
+            this.method = method;
+        }
+
+        String getMethod() {
+            return method;
+        }
+
+    }
+
+    private final Logger log = LoggerFactory.getLogger(BulkOperation.class);
+
+    private final Manager manager;
+
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private long timeout = DEFAULT_TIMEOUT;
+
+    BulkOperation(final Manager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Sets the maximum number of units operated on concurrently.<p>
+     *
+     * @param concurrency The concurrency limit.
+     * @return This operation.
+     */
+    public BulkOperation concurrency(final int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must not be smaller than 1");
+        }
+
+        this.concurrency = concurrency;
+
+        return this;
+    }
+
+    /**
+     * Sets the maximum time to wait for all jobs.<p>
+     *
+     * @param timeout The timeout in milliseconds.
+     * @return This operation.
+     */
+    public BulkOperation timeout(final long timeout) {
+        if (timeout < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.timeout = timeout;
+
+        return this;
+    }
+
+    public BulkResult start(final Collection<String> unitNames, final Mode mode) throws DBusException {
+        return execute(Verb.START, unitNames, mode);
+    }
+
+    public BulkResult stop(final Collection<String> unitNames, final Mode mode) throws DBusException {
+        return execute(Verb.STOP, unitNames, mode);
+    }
+
+    public BulkResult reload(final Collection<String> unitNames, final Mode mode) throws DBusException {
+        return execute(Verb.RELOAD, unitNames, mode);
+    }
+
+    public BulkResult restart(final Collection<String> unitNames, final Mode mode) throws DBusException {
+        return execute(Verb.RESTART, unitNames, mode);
+    }
+
+    public BulkResult tryRestart(final Collection<String> unitNames, final Mode mode) throws DBusException {
+        return execute(Verb.TRY_RESTART, unitNames, mode);
+    }
+
+    public BulkResult reloadOrRestart(final Collection<String> unitNames, final Mode mode) throws DBusException {
+        return execute(Verb.RELOAD_OR_RESTART, unitNames, mode);
+    }
+
+    public BulkResult reloadOrTryRestart(final Collection<String> unitNames, final Mode mode) throws DBusException {
+        return execute(Verb.RELOAD_OR_TRY_RESTART, unitNames, mode);
+    }
+
+    BulkResult execute(final Verb verb, final Collection<String> unitNames, final Mode mode) throws DBusException {
+        List<String> names = new ArrayList<>(unitNames);
+        AtomicReferenceArray<BulkResult.Outcome> outcomes = new AtomicReferenceArray<>(names.size());
+        long[] callTimes = new long[names.size()];
+
+        JobTracker tracker = manager.getJobTracker();
+        CountDownLatch pending = new CountDownLatch(names.size());
+        Semaphore window = new Semaphore(concurrency);
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        try {
+            for (int i = 0; i < names.size(); i++) {
+                int index = i;
+                String unitName = names.get(i);
+
+                if (!window.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    // Remaining units are reported as timed out
+                    break;
+                }
+
+                long callTime = System.nanoTime();
+                callTimes[index] = callTime;
+
+                CallbackHandler<Path> callback = new CallbackHandler<Path>() {
+
+                    @Override
+                    public void handle(final Path job) {
+                        long callLatency = toMillis(System.nanoTime() - callTime);
+                        CompletableFuture<JobResult> result;
+
+                        try {
+                            result = tracker.track(job);
+                        }
+                        catch (final IllegalStateException e) {
+                            // Tracker stopped meanwhile
+                            result = new CompletableFuture<>();
+                            result.completeExceptionally(e);
+                        }
+
+                        result.whenComplete((r, e) -> {
+                            outcomes.compareAndSet(index, null, new BulkResult.Outcome(unitName, job, r, e, callLatency, toMillis(System.nanoTime() - callTime)));
+
+                            window.release();
+                            pending.countDown();
+                        });
+                    }
+
+                    @Override
+                    public void handleError(final DBusExecutionException e) {
+                        long duration = toMillis(System.nanoTime() - callTime);
+
+                        outcomes.compareAndSet(index, null, new BulkResult.Outcome(unitName, null, null, e, duration, duration));
+
+                        window.release();
+                        pending.countDown();
+                    }
+
+                };
+
+                try {
+                    manager.dbus.callWithCallback(manager.getInterface(), verb.getMethod(), callback, unitName, mode.getValue());
+                }
+                catch (final DBusExecutionException e) {
+                    callback.handleError(e);
+                }
+            }
+
+            if (!pending.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                log.warn(String.format("Bulk operation timed out with %d pending units", pending.getCount()));
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new DBusException("Bulk operation interrupted");
+        }
+
+        long now = System.nanoTime();
+        BulkResult.Outcome[] result = new BulkResult.Outcome[names.size()];
+
+        for (int i = 0; i < result.length; i++) {
+            // Units which are not done (or not even called) are reported as timed out
+            outcomes.compareAndSet(i, null, new BulkResult.Outcome(names.get(i), null, null, new TimeoutException("Job not removed within timeout"), -1L, callTimes[i] != 0L ? toMillis(now - callTimes[i]) : 0L));
+
+            result[i] = outcomes.get(i);
+        }
+
+        return new BulkResult(Arrays.asList(result), toMillis(now - start));
+    }
+
+    private static long toMillis(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+}
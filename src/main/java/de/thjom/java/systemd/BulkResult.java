@@ -0,0 +1,128 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.freedesktop.dbus.Path;
+
+/**
+ * Aggregated result of a bulk operation (see {@link Manager#bulk()}) with
+ * the outcome of each unit in the order of the given unit names.
+ */
+public final class BulkResult {
+
+    private final List<Outcome> outcomes;
+    private final long duration;
+
+    BulkResult(final List<Outcome> outcomes, final long duration) {
+        this.outcomes = Collections.unmodifiableList(outcomes);
+        this.duration = duration;
+    }
+
+    public List<Outcome> getOutcomes() {
+        return outcomes;
+    }
+
+    public List<Outcome> getFailures() {
+        return outcomes.stream().filter(o -> !o.isSuccess()).collect(Collectors.toList());
+    }
+
+    /**
+     * @return <code>true</code> if the jobs of all units have been completed successfully.
+     */
+    public boolean isSuccess() {
+        return outcomes.stream().allMatch(Outcome::isSuccess);
+    }
+
+    /**
+     * Returns the total duration of the operation.<p>
+     *
+     * @return The duration in milliseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BulkResult [units=%d, failures=%d, duration=%d ms]", outcomes.size(), getFailures().size(), duration);
+    }
+
+    /**
+     * Outcome of the operation on a single unit. Either the job has been
+     * removed with a result, or the method call (or waiting for the job)
+     * has failed with an error.
+     */
+    public static final class Outcome {
+
+        private final String unitName;
+        private final Path job;
+        private final JobResult result;
+        private final Throwable error;
+        private final long callLatency;
+        private final long duration;
+
+        Outcome(final String unitName, final Path job, final JobResult result, final Throwable error, final long callLatency, final long duration) {
+            this.unitName = unitName;
+            this.job = job;
+            this.result = result;
+            this.error = error;
+            this.callLatency = callLatency;
+            this.duration = duration;
+        }
+
+        public String getUnitName() {
+            return unitName;
+        }
+
+        public Optional<Path> getJob() {
+            return Optional.ofNullable(job);
+        }
+
+        public Optional<JobResult> getResult() {
+            return Optional.ofNullable(result);
+        }
+
+        public Optional<Throwable> getError() {
+            return Optional.ofNullable(error);
+        }
+
+        public boolean isSuccess() {
+            return result != null && result.isSuccess() && error == null;
+        }
+
+        /**
+         * @return The time until the method call has returned the job in milliseconds.
+         */
+        public long getCallLatency() {
+            return callLatency;
+        }
+
+        /**
+         * @return The time from the method call until the job has been removed (or the error) in milliseconds.
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s (%d ms)", unitName, result != null ? result : error, duration);
+        }
+
+    }
+
+}
@@ -44,7 +44,7 @@ public class BusName extends Unit {
     private BusName(final Manager manager, final BusNameInterface iface, final String name) throws DBusException {
         super(manager, iface, name);
 
-        this.properties = Properties.create(dbus, iface.getObjectPath(), SERVICE_NAME);
+        this.properties = Properties.create(manager, iface.getObjectPath(), SERVICE_NAME);
     }
 
     static BusName create(final Manager manager, String name) throws DBusException {
@@ -37,7 +37,7 @@ public class Device extends Unit {
     private Device(final Manager manager, final DeviceInterface iface, final String name) throws DBusException {
         super(manager, iface, name);
 
-        this.properties = Properties.create(dbus, iface.getObjectPath(), SERVICE_NAME);
+        this.properties = Properties.create(manager, iface.getObjectPath(), SERVICE_NAME);
     }
 
     static Device create(final Manager manager, String name) throws DBusException {
@@ -0,0 +1,66 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+/**
+ * Interfaces for publishing events with demand signalling (backpressure).
+ * They are identical in signatures and semantics to those of
+ * <code>java.util.concurrent.Flow</code> (Java 9) and the Reactive Streams
+ * specification, which are not available on Java 8. Adapting them to either
+ * of those takes a one-line delegate per method.
+ */
+public final class Flow {
+
+    private Flow() {
+        super();
+    }
+
+    @FunctionalInterface
+    public interface Publisher<T> {
+
+        /**
+         * Adds the given subscriber, which receives {@link Subscriber#onSubscribe(Subscription)}
+         * before any other call.<p>
+         *
+         * @param subscriber The subscriber.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+
+    }
+
+    public interface Subscriber<T> {
+
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+
+    }
+
+    public interface Subscription {
+
+        /**
+         * Requests the given number of additional items. Non-positive numbers
+         * cancel the subscription and signal an {@link IllegalArgumentException}.<p>
+         *
+         * @param n The number of items.
+         */
+        void request(long n);
+
+        void cancel();
+
+    }
+
+}
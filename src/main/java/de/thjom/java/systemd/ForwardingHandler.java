@@ -12,6 +12,7 @@
 package de.thjom.java.systemd;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.freedesktop.dbus.DBusSigHandler;
 import org.freedesktop.dbus.DBusSignal;
@@ -25,12 +26,26 @@ class ForwardingHandler<T extends DBusSignal> implements DBusSigHandler<T> {
     private SignalConsumer<T> consumer;
     private Thread consumerThread;
 
+    private final SignalDispatcher dispatcher;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicBoolean delayed = new AtomicBoolean();
+    private final Object drainLock = new Object();
+    private volatile boolean dispatching;
+
     ForwardingHandler(final SignalConsumer<T> consumer) {
+        this(consumer, null);
+    }
+
+    ForwardingHandler(final SignalConsumer<T> consumer, final SignalDispatcher dispatcher) {
         this.consumer = Objects.requireNonNull(consumer);
+        this.dispatcher = dispatcher;
     }
 
     public void startConsumer() {
-        if (consumer != null) {
+        if (dispatcher != null) {
+            dispatching = true;
+        }
+        else if (consumer != null) {
             log.info("Starting signal consumer thread");
 
             consumerThread = new Thread(consumer);
@@ -41,7 +56,15 @@ class ForwardingHandler<T extends DBusSignal> implements DBusSigHandler<T> {
     }
 
     public void stopConsumer() {
-        if (consumer != null && consumerThread != null) {
+        if (dispatcher != null) {
+            dispatching = false;
+
+            // Waits for a running task, then handles what is left like the consumer thread does
+            synchronized (drainLock) {
+                consumer.flush();
+            }
+        }
+        else if (consumer != null && consumerThread != null) {
             log.info("Stopping signal consumer thread");
 
             consumer.setRunning(false);
@@ -57,9 +80,9 @@ class ForwardingHandler<T extends DBusSignal> implements DBusSigHandler<T> {
     }
 
     @Override
-    public synchronized void handle(final T signal) {
+    public void handle(final T signal) {
         if (consumer != null) {
-            SignalSequencer<T> sequencer = consumer.getSequencer();
+            SignalQueue<T> sequencer = consumer.getSequencer();
 
             if (sequencer != null) {
                 if (log.isDebugEnabled()) {
@@ -72,6 +95,51 @@ class ForwardingHandler<T extends DBusSignal> implements DBusSigHandler<T> {
                 catch (final InterruptedException e) {
                     log.debug(e.getMessage());
                 }
+
+                if (dispatching) {
+                    schedule();
+                }
+            }
+        }
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            dispatcher.execute(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        long releaseDelay = -1L;
+
+        try {
+            synchronized (drainLock) {
+                if (dispatching) {
+                    consumer.drain(dispatcher.getBatchSize());
+
+                    releaseDelay = consumer.getSequencer().getReleaseDelay();
+                }
+            }
+        }
+        catch (final RuntimeException e) {
+            log.error("Error while handling signal", e);
+        }
+        finally {
+            scheduled.set(false);
+        }
+
+        if (dispatching) {
+            if (releaseDelay > 0L) {
+                // Signals held back for a gap, retry once the window has passed instead of blocking the pool
+                if (delayed.compareAndSet(false, true)) {
+                    dispatcher.schedule(() -> {
+                        delayed.set(false);
+                        schedule();
+                    }, releaseDelay);
+                }
+            }
+            else if (consumer.getSequencer().size() > 0) {
+                schedule();
             }
         }
     }
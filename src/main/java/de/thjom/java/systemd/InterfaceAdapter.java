@@ -13,14 +13,21 @@ package de.thjom.java.systemd;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.freedesktop.DBus;
 import org.freedesktop.dbus.DBusConnection;
 import org.freedesktop.dbus.DBusInterface;
+import org.freedesktop.dbus.DBusMatchRule;
 import org.freedesktop.dbus.DBusSigHandler;
 import org.freedesktop.dbus.DBusSignal;
 import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,6 +35,9 @@ import de.thjom.java.systemd.interfaces.PropertyInterface;
 
 public abstract class InterfaceAdapter extends AbstractAdapter implements DBusInterface {
 
+    static final String DBUS_SERVICE_NAME = "org.freedesktop.DBus";
+    static final String DBUS_OBJECT_PATH = "/org/freedesktop/DBus";
+
     protected final Logger log = LoggerFactory.getLogger(getClass());
 
     protected final DBusConnection dbus;
@@ -36,6 +46,11 @@ public abstract class InterfaceAdapter extends AbstractAdapter implements DBusIn
 
     private final DBusInterface iface;
 
+    // Handler counts per connection and signal class, the unrestricted rule is shared by all adapters
+    private static final Map<DBusConnection, Map<Class<?>, MatchCounter>> MATCH_COUNTERS = new WeakHashMap<>();
+
+    private final Map<DBusSigHandler<?>, MatchRule> matchRules = new ConcurrentHashMap<>();
+
     protected InterfaceAdapter(final DBusConnection dbus, final DBusInterface iface) {
         super();
 
@@ -66,18 +81,143 @@ public abstract class InterfaceAdapter extends AbstractAdapter implements DBusIn
         return properties;
     }
 
+    /**
+     * Retrieves all properties of this interface adapter at once (see
+     * {@link Properties#snapshot()}).<p>
+     *
+     * @return An immutable snapshot of all properties.
+     */
+    public PropertySnapshot snapshot() {
+        return properties.snapshot();
+    }
+
+    /**
+     * Lets the property getters of this interface adapter read from the given
+     * snapshot instead of querying each property separately. Unit adapters
+     * get snapshots via {@link Manager#createSnapshotView(Unit, PropertySnapshot)}.<p>
+     *
+     * @param snapshot The snapshot to read property values from.
+     */
+    void attachSnapshot(final PropertySnapshot snapshot) {
+        properties.attachSnapshot(snapshot);
+    }
+
+    public void detachSnapshot() {
+        properties.detachSnapshot();
+    }
+
     @Override
     public <T extends DBusSignal> void addHandler(final Class<T> type, final DBusSigHandler<T> handler) throws DBusException {
-        dbus.addSigHandler(type, handler);
+        synchronized (MATCH_COUNTERS) {
+            addUnrestrictedHandler(type, handler);
+        }
+    }
+
+    /**
+     * Adds a handler whose signals are filtered by the bus daemon according
+     * to the given rule. The unrestricted rule added by the connection is
+     * replaced as long as all handlers of the signal class on the connection
+     * are restricted, unless the bus rejects the given rule (e.g. if it does
+     * not support <code>path_namespace</code>).<p>
+     *
+     * @param type The signal class.
+     * @param rule The match rule for the signal class.
+     * @param handler The signal handler.
+     * @throws DBusException If the handler cannot be added.
+     */
+    @Override
+    public <T extends DBusSignal> void addHandler(final Class<T> type, final MatchRule rule, final DBusSigHandler<T> handler) throws DBusException {
+        synchronized (MATCH_COUNTERS) {
+            DBus bus = getBus();
+
+            try {
+                bus.AddMatch(rule.toString());
+            }
+            catch (final DBusExecutionException e) {
+                log.warn(String.format("Unable to add match rule '%s' (falling back to unrestricted rule): %s", rule, e.getMessage()));
+
+                addUnrestrictedHandler(type, handler);
+
+                return;
+            }
+
+            dbus.addSigHandler(type, handler);
+            matchRules.put(handler, rule);
+
+            MatchCounter counter = getMatchCounter(type);
+            counter.narrowed++;
+
+            if (counter.unrestricted == 0 && !counter.replaced) {
+                bus.RemoveMatch(new DBusMatchRule(type).toString());
+                counter.replaced = true;
+            }
+        }
     }
 
     @Override
     public <T extends DBusSignal> void removeHandler(final Class<T> type, final DBusSigHandler<T> handler) throws DBusException {
-        if (handler != null) {
+        if (handler == null) {
+            return;
+        }
+
+        synchronized (MATCH_COUNTERS) {
+            MatchRule rule = matchRules.remove(handler);
+            MatchCounter counter = getMatchCounter(type);
+
+            if (rule != null) {
+                counter.narrowed--;
+            }
+            else {
+                counter.unrestricted--;
+            }
+
+            DBus bus = getBus();
+
+            if (counter.replaced && counter.narrowed == 0 && counter.unrestricted <= 0) {
+                // The connection removes the unrestricted rule with the last handler
+                bus.AddMatch(new DBusMatchRule(type).toString());
+                counter.replaced = false;
+            }
+
             dbus.removeSigHandler(type, handler);
+
+            if (rule != null) {
+                bus.RemoveMatch(rule.toString());
+            }
+            else if (counter.unrestricted <= 0 && counter.narrowed > 0 && !counter.replaced) {
+                bus.RemoveMatch(new DBusMatchRule(type).toString());
+                counter.replaced = true;
+            }
+
+            if (counter.narrowed == 0 && counter.unrestricted <= 0) {
+                MATCH_COUNTERS.get(dbus).remove(type);
+            }
         }
     }
 
+    // Called while holding the lock of the counters
+    private <T extends DBusSignal> void addUnrestrictedHandler(final Class<T> type, final DBusSigHandler<T> handler) throws DBusException {
+        dbus.addSigHandler(type, handler);
+
+        MatchCounter counter = getMatchCounter(type);
+        counter.unrestricted++;
+
+        if (counter.replaced) {
+            // Unrestricted handlers need the rule of the connection again
+            getBus().AddMatch(new DBusMatchRule(type).toString());
+            counter.replaced = false;
+        }
+    }
+
+    // Called while holding the lock of the counters
+    private MatchCounter getMatchCounter(final Class<?> type) {
+        return MATCH_COUNTERS.computeIfAbsent(dbus, k -> new HashMap<>()).computeIfAbsent(type, k -> new MatchCounter());
+    }
+
+    private DBus getBus() throws DBusException {
+        return dbus.getRemoteObject(DBUS_SERVICE_NAME, DBUS_OBJECT_PATH, DBus.class);
+    }
+
     @Override
     public boolean equals(final Object obj) {
         if (this == obj) {
@@ -135,4 +275,14 @@ public abstract class InterfaceAdapter extends AbstractAdapter implements DBusIn
 
     }
 
+    private static final class MatchCounter {
+
+        private int narrowed;
+        private int unrestricted;
+
+        // Whether the unrestricted rule of the connection has been removed
+        private boolean replaced;
+
+    }
+
 }
@@ -0,0 +1,290 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.Path;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+
+import de.thjom.java.systemd.BulkOperation.Verb;
+
+/**
+ * Coalesces identical job requests (same verb, unit and mode) of a manager.
+ * A request arriving while the job of an identical request is waiting (or
+ * its method call is in flight) attaches to that job instead of enqueuing
+ * another one. Entries are removed once the job starts running (according
+ * to <code>PropertiesChanged</code> signals of the job object) or is removed
+ * (tracked via {@link JobTracker}).
+ *
+ * @see Manager#setJobCoalescing(boolean)
+ */
+final class JobCoalescer {
+
+    static final String JOB_INTERFACE = Systemd.SERVICE_NAME + ".Job";
+    static final String STATE_WAITING = "waiting";
+
+    private final Manager manager;
+
+    private final ConcurrentMap<List<Object>, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    // Joinable entries by job path, and jobs seen running before the reply of their call
+    private final ConcurrentMap<String, Pending> jobs = new ConcurrentHashMap<>();
+    private final Set<String> started = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger calling = new AtomicInteger();
+
+    private final DBusSigHandler<PropertiesChanged> stateHandler = this::handleStateChange;
+    private boolean running;
+
+    JobCoalescer(final Manager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Registers the handler of job state changes.<p>
+     *
+     * @throws DBusException If the signal handler cannot be added.
+     */
+    synchronized void start() throws DBusException {
+        if (running) {
+            return;
+        }
+
+        manager.subscribe();
+        manager.addHandler(PropertiesChanged.class, stateHandler);
+
+        running = true;
+    }
+
+    /**
+     * Removes the handler of job state changes. Pending requests are still
+     * completed, but no further requests attach to them.<p>
+     *
+     * @throws DBusException If the signal handler cannot be removed.
+     */
+    synchronized void stop() throws DBusException {
+        if (!running) {
+            return;
+        }
+
+        manager.removeHandler(PropertiesChanged.class, stateHandler);
+
+        running = false;
+
+        pending.clear();
+        jobs.clear();
+        started.clear();
+    }
+
+    /**
+     * Returns the job of the given request, enqueued by this or an identical
+     * pending request.<p>
+     *
+     * @param verb The job method.
+     * @param unitName The unit name.
+     * @param mode The job mode.
+     * @param call The method call enqueuing the job.
+     * @return The object path of the job.
+     */
+    Path call(final Verb verb, final String unitName, final String mode, final Supplier<Path> call) {
+        try {
+            return acquire(verb, unitName, mode, () -> CompletableFuture.completedFuture(call.get())).job.join();
+        }
+        catch (final CompletionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new DBusExecutionException(cause.getMessage());
+        }
+    }
+
+    /**
+     * Returns a future of the result of the given request, completed with
+     * the job enqueued by this or an identical pending request.<p>
+     *
+     * @param verb The job method.
+     * @param unitName The unit name.
+     * @param mode The job mode.
+     * @return The future (own instance per request).
+     */
+    CompletableFuture<JobResult> submit(final Verb verb, final String unitName, final String mode) {
+        // Dependent future, cancellation does not affect attached requests
+        return acquire(verb, unitName, mode, () -> manager.enqueueJob(verb, unitName, mode)).result.thenApply(Function.identity());
+    }
+
+    long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    private Pending acquire(final Verb verb, final String unitName, final String mode, final Supplier<CompletableFuture<Path>> enqueue) {
+        List<Object> key = Arrays.asList(verb, unitName, mode);
+        Pending created = new Pending(key);
+        Pending existing = pending.putIfAbsent(key, created);
+
+        if (existing != null) {
+            coalesced.incrementAndGet();
+
+            return existing;
+        }
+
+        calling.incrementAndGet();
+
+        try {
+            // Started before calling, the job may be removed before the call returns
+            JobTracker tracker = manager.getJobTracker();
+
+            enqueue.get().whenComplete((job, e) -> {
+                try {
+                    if (e == null) {
+                        register(job.getPath(), created);
+                    }
+                }
+                finally {
+                    if (calling.decrementAndGet() == 0) {
+                        started.clear();
+                    }
+                }
+
+                if (e != null) {
+                    fail(key, created, e);
+
+                    return;
+                }
+
+                created.job.complete(job);
+
+                CompletableFuture<JobResult> result;
+
+                try {
+                    result = tracker.track(job);
+                }
+                catch (final IllegalStateException e1) {
+                    // Tracker stopped meanwhile
+                    fail(key, created, e1);
+
+                    return;
+                }
+
+                result.whenComplete((r, e1) -> {
+                    pending.remove(key, created);
+                    jobs.remove(job.getPath(), created);
+
+                    if (e1 != null) {
+                        created.result.completeExceptionally(e1);
+                    }
+                    else {
+                        created.result.complete(r);
+                    }
+                });
+            });
+        }
+        catch (final DBusException | RuntimeException e) {
+            if (calling.decrementAndGet() == 0) {
+                started.clear();
+            }
+
+            fail(key, created, e);
+        }
+
+        return created;
+    }
+
+    private void register(final String job, final Pending created) {
+        jobs.put(job, created);
+
+        // The job may have started before the call returned
+        if (started.remove(job)) {
+            detach(job);
+        }
+    }
+
+    private void handleStateChange(final PropertiesChanged signal) {
+        if (!JOB_INTERFACE.equals(signal.interfaceName)) {
+            return;
+        }
+
+        Variant<?> state = signal.changedProperties.get("State");
+
+        if (state == null || STATE_WAITING.equals(state.getValue())) {
+            return;
+        }
+
+        String job = signal.getPath();
+
+        if (!detach(job) && calling.get() > 0) {
+            started.add(job);
+
+            // Re-check, the reply may have been registered meanwhile
+            if (detach(job)) {
+                started.remove(job);
+            }
+        }
+    }
+
+    private boolean detach(final String job) {
+        Pending detached = jobs.remove(job);
+
+        if (detached != null) {
+            // Requests arriving from now on enqueue a new job
+            pending.remove(detached.key, detached);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    private void fail(final List<Object> key, final Pending created, final Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+
+        pending.remove(key, created);
+
+        created.job.completeExceptionally(cause);
+        created.result.completeExceptionally(cause);
+    }
+
+    private static final class Pending {
+
+        private final List<Object> key;
+
+        private final CompletableFuture<Path> job = new CompletableFuture<>();
+        private final CompletableFuture<JobResult> result = new CompletableFuture<>();
+
+        Pending(final List<Object> key) {
+            this.key = key;
+        }
+
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Result of a job as reported by the <code>JobRemoved</code> signal.
+ *
+ * @see JobTracker
+ */
+public enum JobResult {
+
+    DONE("done"),
+    CANCELED("canceled"),
+    TIMEOUT("timeout"),
+    FAILED("failed"),
+    DEPENDENCY("dependency"),
+    SKIPPED("skipped"),
+    INVALID("invalid"),
+    ASSERT("assert"),
+    UNSUPPORTED("unsupported"),
+    COLLECTED("collected"),
+    ONCE("once"),
+    FROZEN("frozen"),
+    UNKNOWN("");
+
+    private static final Map<String, JobResult> VALUES = new HashMap<>();
+
+    static {
+        for (JobResult result : values()) {
+            VALUES.put(result.value, result);
+        }
+    }
+
+    private final String value;
+
+    private JobResult(final String value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the constant of the given result name.<p>
+     *
+     * @param value The result name as reported by systemd.
+     * @return The constant or {@link #UNKNOWN} for <code>null</code> and unknown names.
+     */
+    public static JobResult parse(final String value) {
+        return value != null ? VALUES.getOrDefault(value, UNKNOWN) : UNKNOWN;
+    }
+
+    /**
+     * @return <code>true</code> if the job has been completed successfully.
+     */
+    public boolean isSuccess() {
+        return this == DONE;
+    }
+
+    public final String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.Path;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.thjom.java.systemd.interfaces.ManagerInterface.JobRemoved;
+
+/**
+ * Completes futures of jobs when systemd reports their removal. A single
+ * consumer of <code>JobRemoved</code> signals serves all tracked jobs.<p>
+ *
+ * A job may be removed before its future is requested (signals are handled
+ * asynchronously to the method call that has created the job). Therefore
+ * results of untracked jobs are retained for a while and complete futures
+ * requested later on.
+ *
+ * @see Manager#getJobTracker()
+ */
+public final class JobTracker {
+
+    public static final long DEFAULT_RETENTION = 60000L;
+
+    private static final int RETENTION_CAPACITY = 4096;
+
+    private final Logger log = LoggerFactory.getLogger(JobTracker.class);
+
+    private final Manager manager;
+
+    private final DBusSigHandler<JobRemoved> handler = this::jobRemoved;
+
+    private final Map<String, CompletableFuture<JobResult>> pending = new HashMap<>();
+    private final LinkedHashMap<String, Removal> removed = new LinkedHashMap<>();
+
+    private volatile long retention = DEFAULT_RETENTION;
+    private volatile long jobTimeout;
+
+    private boolean running;
+
+    JobTracker(final Manager manager) {
+        this.manager = Objects.requireNonNull(manager);
+    }
+
+    /**
+     * Registers the consumer of <code>JobRemoved</code> signals.<p>
+     *
+     * @throws DBusException If the signal handler cannot be added.
+     */
+    public synchronized void start() throws DBusException {
+        if (running) {
+            return;
+        }
+
+        manager.subscribe();
+        manager.addConsumer(JobRemoved.class, handler);
+
+        running = true;
+    }
+
+    /**
+     * Removes the signal consumer and cancels all pending futures.<p>
+     *
+     * @throws DBusException If the signal handler cannot be removed.
+     */
+    public void stop() throws DBusException {
+        Map<String, CompletableFuture<JobResult>> cancelled;
+
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+
+            manager.removeConsumer(JobRemoved.class, handler);
+
+            running = false;
+
+            cancelled = new HashMap<>(pending);
+            pending.clear();
+            removed.clear();
+        }
+
+        cancelled.values().forEach(f -> f.completeExceptionally(new CancellationException("Job tracker stopped")));
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the future of the given job. Futures of the same job are shared.<p>
+     *
+     * @param job The object path of the job.
+     * @return The future completed with the result of the job.
+     */
+    public CompletableFuture<JobResult> track(final Path job) {
+        String key = job.getPath();
+        CompletableFuture<JobResult> future;
+        JobResult result = null;
+
+        synchronized (this) {
+            if (!running) {
+                throw new IllegalStateException("Job tracker not running");
+            }
+
+            future = pending.get(key);
+
+            if (future != null) {
+                return future;
+            }
+
+            future = new CompletableFuture<>();
+
+            Removal removal = removed.remove(key);
+
+            if (removal != null) {
+                // Signal has been handled before the job was tracked
+                result = removal.result;
+            }
+            else {
+                pending.put(key, future);
+            }
+        }
+
+        if (result != null) {
+            future.complete(result);
+        }
+        else {
+            scheduleTimeout(key, future);
+        }
+
+        return future;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    synchronized int getRetainedCount() {
+        return removed.size();
+    }
+
+    public long getRetention() {
+        return retention;
+    }
+
+    /**
+     * Sets the time results of untracked jobs are retained.<p>
+     *
+     * @param retention The time in milliseconds.
+     */
+    public void setRetention(final long retention) {
+        if (retention < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.retention = retention;
+    }
+
+    public long getJobTimeout() {
+        return jobTimeout;
+    }
+
+    /**
+     * Sets the time after which futures of jobs tracked afterwards complete
+     * with a {@link TimeoutException} (unless the job has been removed).<p>
+     *
+     * @param jobTimeout The timeout in milliseconds (<code>0</code> disables the timeout).
+     */
+    public void setJobTimeout(final long jobTimeout) {
+        if (jobTimeout < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.jobTimeout = jobTimeout;
+    }
+
+    private void jobRemoved(final JobRemoved signal) {
+        Path job = signal.getJob();
+
+        if (job == null) {
+            return;
+        }
+
+        JobResult result = JobResult.parse(signal.getResult());
+        CompletableFuture<JobResult> future;
+
+        synchronized (this) {
+            future = pending.remove(job.getPath());
+
+            if (future == null) {
+                retain(job.getPath(), result);
+            }
+        }
+
+        if (future != null) {
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Job %s of unit '%s' removed: %s", job, signal.getUnit(), result));
+            }
+
+            future.complete(result);
+        }
+    }
+
+    // Called while holding the monitor of this tracker
+    private void retain(final String key, final JobResult result) {
+        long now = System.nanoTime();
+        long expired = now - TimeUnit.MILLISECONDS.toNanos(retention);
+
+        Iterator<Removal> it = removed.values().iterator();
+
+        while (it.hasNext()) {
+            Removal removal = it.next();
+
+            if (removed.size() >= RETENTION_CAPACITY || removal.time - expired <= 0L) {
+                it.remove();
+            }
+            else {
+                break;
+            }
+        }
+
+        removed.put(key, new Removal(result, now));
+    }
+
+    private void scheduleTimeout(final String key, final CompletableFuture<JobResult> future) {
+        long timeout = jobTimeout;
+
+        if (timeout > 0L) {
+            ScheduledFuture<?> task = manager.getScheduler().schedule(() -> {
+                boolean expired;
+
+                synchronized (this) {
+                    expired = pending.remove(key, future);
+                }
+
+                if (expired) {
+                    future.completeExceptionally(new TimeoutException(String.format("Job %s not removed within %d ms", key, timeout)));
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+
+            future.whenComplete((r, e) -> task.cancel(false));
+        }
+    }
+
+    private static final class Removal {
+
+        private final JobResult result;
+        private final long time;
+
+        Removal(final JobResult result, final long time) {
+            this.result = result;
+            this.time = time;
+        }
+
+    }
+
+}
@@ -11,17 +11,49 @@
 
 package de.thjom.java.systemd;
 
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.freedesktop.DBus.Introspectable;
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.CallbackHandler;
 import org.freedesktop.dbus.DBusConnection;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.DBusSignal;
+import org.freedesktop.dbus.Variant;
 import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
 
+import de.thjom.java.systemd.BulkOperation.Verb;
 import de.thjom.java.systemd.Unit.Mode;
 import de.thjom.java.systemd.Unit.Who;
 import de.thjom.java.systemd.interfaces.ManagerInterface;
+import de.thjom.java.systemd.interfaces.ManagerInterface.Reloading;
+import de.thjom.java.systemd.interfaces.ManagerInterface.UnitFilesChanged;
+import de.thjom.java.systemd.interfaces.ManagerInterface.UnitRemoved;
 import de.thjom.java.systemd.types.UnitFileType;
 import de.thjom.java.systemd.types.UnitType;
 
@@ -135,12 +167,82 @@ public class Manager extends InterfaceAdapter {
 
     }
 
+    public static final int DEFAULT_UNIT_POOL_CAPACITY = 1024;
+
+    private static final int UNIT_STATES_CAPACITY = 4096;
+
+    private static final Map<String, UnitPool.Factory<? extends Unit>> UNIT_FACTORIES;
+
+    static {
+        Map<String, UnitPool.Factory<? extends Unit>> factories = new HashMap<>();
+        factories.put(Automount.UNIT_SUFFIX, Automount::create);
+        factories.put(BusName.UNIT_SUFFIX, BusName::create);
+        factories.put(Device.UNIT_SUFFIX, Device::create);
+        factories.put(Mount.UNIT_SUFFIX, Mount::create);
+        factories.put(Path.UNIT_SUFFIX, Path::create);
+        factories.put(Scope.UNIT_SUFFIX, Scope::create);
+        factories.put(Service.UNIT_SUFFIX, Service::create);
+        factories.put(Slice.UNIT_SUFFIX, Slice::create);
+        factories.put(Snapshot.UNIT_SUFFIX, Snapshot::create);
+        factories.put(Socket.UNIT_SUFFIX, Socket::create);
+        factories.put(Swap.UNIT_SUFFIX, Swap::create);
+        factories.put(Target.UNIT_SUFFIX, Target::create);
+        factories.put(Timer.UNIT_SUFFIX, Timer::create);
+
+        UNIT_FACTORIES = Collections.unmodifiableMap(factories);
+    }
+
+    private final Properties.CacheStatistics propertyCacheStatistics = new Properties.CacheStatistics(null);
+    private final ConcurrentMap<String, List<Reference<Properties>>> propertyRegistry = new ConcurrentHashMap<>();
+
     private boolean subscribed;
 
+    private final UnitPool unitPool = new UnitPool(DEFAULT_UNIT_POOL_CAPACITY);
+
+    private JobTracker jobTracker;
+
+    private final JobCoalescer jobCoalescer = new JobCoalescer(this);
+    private volatile boolean jobCoalescing;
+
+    // Last states by object path for the events of state listeners (least recently updated are evicted)
+    private final Map<String, Unit.StateTuple> unitStates = Collections.synchronizedMap(new LinkedHashMap<String, Unit.StateTuple>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Unit.StateTuple> eldest) {
+            return size() > UNIT_STATES_CAPACITY;
+        }
+
+    });
+    private volatile DBusSigHandler<UnitRemoved> unitEvictor;
+
+    private volatile SignalDispatcher signalDispatcher;
+    private volatile boolean lockFreeSignalQueues;
+    private volatile int signalQueueCapacity = SignalConsumer.DEFAULT_QUEUE_LENGTH;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private volatile long signalReorderWindow = SignalQueue.DEFAULT_TRANSFER_DELAY;
+    private final SignalQueueStatistics signalQueueStatistics = new SignalQueueStatistics(null);
+
+    private volatile boolean stateDemultiplexing;
+    private PropertiesDemultiplexer propertiesDemultiplexer;
+
+    private volatile long signalCoalescingWindow;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService deliveryExecutor;
+
+    private int fetchWindow = 64;
+    private long fetchTimeout = 60000L;
+
+    private volatile boolean propertyCaching;
+    private DBusSigHandler<PropertiesChanged> propertyCacheUpdater;
+    private DBusSigHandler<Reloading> reloadingInvalidator;
+    private DBusSigHandler<UnitFilesChanged> unitFilesChangedInvalidator;
+
     private Manager(final DBusConnection dbus, final ManagerInterface iface) throws DBusException {
         super(dbus, iface);
 
-        this.properties = Properties.create(dbus, Systemd.OBJECT_PATH, SERVICE_NAME);
+        this.properties = Properties.create(this, Systemd.OBJECT_PATH, SERVICE_NAME);
     }
 
     static Manager create(final DBusConnection dbus) throws DBusException {
@@ -212,6 +314,36 @@ public class Manager extends InterfaceAdapter {
         return getInterface().listUnits();
     }
 
+    /**
+     * Lists the given units, including units which are not loaded (their load
+     * state is reported accordingly).<p>
+     *
+     * @param names The full unit names.
+     * @return The matching units.
+     */
+    public List<UnitType> listUnitsByNames(final String... names) {
+        return listUnitsByNames(Arrays.asList(names));
+    }
+
+    public List<UnitType> listUnitsByNames(final Collection<String> names) {
+        return getInterface().listUnitsByNames(new ArrayList<>(names));
+    }
+
+    /**
+     * Lists loaded units filtered on the bus side by state and name pattern.<p>
+     *
+     * @param states The load, active or sub states to match (empty matches all states).
+     * @param patterns Shell-style glob patterns of unit names (empty matches all names).
+     * @return The matching units.
+     */
+    public List<UnitType> listUnitsByPatterns(final Collection<String> states, final Collection<String> patterns) {
+        return getInterface().listUnitsByPatterns(new ArrayList<>(states), new ArrayList<>(patterns));
+    }
+
+    public List<UnitType> listUnitsFiltered(final String... states) {
+        return getInterface().listUnitsFiltered(Arrays.asList(states));
+    }
+
     public org.freedesktop.dbus.Path loadUnit(final String name) {
         return getInterface().loadUnit(name);
     }
@@ -249,7 +381,15 @@ public class Manager extends InterfaceAdapter {
     }
 
     public org.freedesktop.dbus.Path reloadOrRestartUnit(final String name, final String mode) {
-        return getInterface().reloadOrRestartUnit(name, mode);
+        return callJob(Verb.RELOAD_OR_RESTART, name, mode, () -> getInterface().reloadOrRestartUnit(name, mode));
+    }
+
+    public CompletableFuture<JobResult> reloadOrRestartUnitAsync(final String name, final Mode mode) {
+        return reloadOrRestartUnitAsync(name, mode.getValue());
+    }
+
+    public CompletableFuture<JobResult> reloadOrRestartUnitAsync(final String name, final String mode) {
+        return submitJob(Verb.RELOAD_OR_RESTART, name, mode);
     }
 
     public org.freedesktop.dbus.Path reloadOrTryRestartUnit(final String name, final Mode mode) {
@@ -257,7 +397,15 @@ public class Manager extends InterfaceAdapter {
     }
 
     public org.freedesktop.dbus.Path reloadOrTryRestartUnit(final String name, final String mode) {
-        return getInterface().reloadOrTryRestartUnit(name, mode);
+        return callJob(Verb.RELOAD_OR_TRY_RESTART, name, mode, () -> getInterface().reloadOrTryRestartUnit(name, mode));
+    }
+
+    public CompletableFuture<JobResult> reloadOrTryRestartUnitAsync(final String name, final Mode mode) {
+        return reloadOrTryRestartUnitAsync(name, mode.getValue());
+    }
+
+    public CompletableFuture<JobResult> reloadOrTryRestartUnitAsync(final String name, final String mode) {
+        return submitJob(Verb.RELOAD_OR_TRY_RESTART, name, mode);
     }
 
     public org.freedesktop.dbus.Path reloadUnit(final String name, final Mode mode) {
@@ -265,7 +413,15 @@ public class Manager extends InterfaceAdapter {
     }
 
     public org.freedesktop.dbus.Path reloadUnit(final String name, final String mode) {
-        return getInterface().reloadUnit(name, mode);
+        return callJob(Verb.RELOAD, name, mode, () -> getInterface().reloadUnit(name, mode));
+    }
+
+    public CompletableFuture<JobResult> reloadUnitAsync(final String name, final Mode mode) {
+        return reloadUnitAsync(name, mode.getValue());
+    }
+
+    public CompletableFuture<JobResult> reloadUnitAsync(final String name, final String mode) {
+        return submitJob(Verb.RELOAD, name, mode);
     }
 
     public void removeSnapshot(final String name) {
@@ -285,7 +441,15 @@ public class Manager extends InterfaceAdapter {
     }
 
     public org.freedesktop.dbus.Path restartUnit(final String name, final String mode) {
-        return getInterface().restartUnit(name, mode);
+        return callJob(Verb.RESTART, name, mode, () -> getInterface().restartUnit(name, mode));
+    }
+
+    public CompletableFuture<JobResult> restartUnitAsync(final String name, final Mode mode) {
+        return restartUnitAsync(name, mode.getValue());
+    }
+
+    public CompletableFuture<JobResult> restartUnitAsync(final String name, final String mode) {
+        return submitJob(Verb.RESTART, name, mode);
     }
 
     public org.freedesktop.dbus.Path startUnit(final String name, final Mode mode) {
@@ -301,7 +465,24 @@ public class Manager extends InterfaceAdapter {
     }
 
     public org.freedesktop.dbus.Path startUnit(final String name, final String mode) {
-        return getInterface().startUnit(name, mode);
+        return callJob(Verb.START, name, mode, () -> getInterface().startUnit(name, mode));
+    }
+
+    /**
+     * Enqueues a start job and returns a future of its result, see
+     * {@link #getJobTracker()}. Errors of the method call complete the
+     * future exceptionally.<p>
+     *
+     * @param name The unit name.
+     * @param mode The job mode.
+     * @return The future completed when the job is removed.
+     */
+    public CompletableFuture<JobResult> startUnitAsync(final String name, final Mode mode) {
+        return startUnitAsync(name, mode.getValue());
+    }
+
+    public CompletableFuture<JobResult> startUnitAsync(final String name, final String mode) {
+        return submitJob(Verb.START, name, mode);
     }
 
     public org.freedesktop.dbus.Path stopUnit(final String name, final Mode mode) {
@@ -309,7 +490,68 @@ public class Manager extends InterfaceAdapter {
     }
 
     public org.freedesktop.dbus.Path stopUnit(final String name, final String mode) {
-        return getInterface().stopUnit(name, mode);
+        return callJob(Verb.STOP, name, mode, () -> getInterface().stopUnit(name, mode));
+    }
+
+    public CompletableFuture<JobResult> stopUnitAsync(final String name, final Mode mode) {
+        return stopUnitAsync(name, mode.getValue());
+    }
+
+    public CompletableFuture<JobResult> stopUnitAsync(final String name, final String mode) {
+        return submitJob(Verb.STOP, name, mode);
+    }
+
+    /**
+     * Returns the tracker of job results (started on first use).<p>
+     *
+     * @return The job tracker.
+     * @throws DBusException If the signal handler cannot be added.
+     */
+    public synchronized JobTracker getJobTracker() throws DBusException {
+        if (jobTracker == null) {
+            jobTracker = new JobTracker(this);
+        }
+
+        jobTracker.start();
+
+        return jobTracker;
+    }
+
+    public boolean isJobCoalescing() {
+        return jobCoalescing;
+    }
+
+    /**
+     * Lets identical job requests (same method, unit and mode, including
+     * those of the asynchronous variants and of unit adapters) attach to
+     * the job of an earlier request while it is still waiting, instead of
+     * enqueuing another job. Once the job is running, requests enqueue a new
+     * job (e.g. a restart after the running one). Job state changes are
+     * followed via <code>PropertiesChanged</code> signals of job objects.<p>
+     *
+     * Bulk operations ({@link #bulk()}) and rolling restarts
+     * ({@link #rollingRestart(Collection)}) bypass coalescing, their jobs are
+     * always enqueued.<p>
+     *
+     * @param jobCoalescing <code>true</code> to coalesce identical job requests.
+     * @throws DBusException If the signal handler cannot be added or removed.
+     */
+    public synchronized void setJobCoalescing(final boolean jobCoalescing) throws DBusException {
+        if (jobCoalescing) {
+            jobCoalescer.start();
+        }
+        else {
+            jobCoalescer.stop();
+        }
+
+        this.jobCoalescing = jobCoalescing;
+    }
+
+    /**
+     * @return The number of job requests that have been attached to a pending job.
+     */
+    public long getCoalescedJobCount() {
+        return jobCoalescer.getCoalescedCount();
     }
 
     public synchronized void subscribe() {
@@ -329,7 +571,15 @@ public class Manager extends InterfaceAdapter {
     }
 
     public org.freedesktop.dbus.Path tryRestartUnit(final String name, final String mode) {
-        return getInterface().tryRestartUnit(name, mode);
+        return callJob(Verb.TRY_RESTART, name, mode, () -> getInterface().tryRestartUnit(name, mode));
+    }
+
+    public CompletableFuture<JobResult> tryRestartUnitAsync(final String name, final Mode mode) {
+        return tryRestartUnitAsync(name, mode.getValue());
+    }
+
+    public CompletableFuture<JobResult> tryRestartUnitAsync(final String name, final String mode) {
+        return submitJob(Verb.TRY_RESTART, name, mode);
     }
 
     public void unrefUnit(final String name) {
@@ -352,56 +602,673 @@ public class Manager extends InterfaceAdapter {
         }
     }
 
+    void registerProperties(final Properties properties) {
+        String objectPath = properties.getPath();
+
+        if (objectPath == null) {
+            return;
+        }
+
+        propertyRegistry.compute(objectPath, (k, v) -> {
+            List<Reference<Properties>> references = v == null ? new ArrayList<>(2) : new ArrayList<>(v);
+            references.removeIf(r -> r.get() == null);
+            references.add(new WeakReference<>(properties));
+
+            return references;
+        });
+
+        if (propertyCaching) {
+            properties.enableCaching();
+        }
+    }
+
+    private void forEachProperties(final String objectPath, final Consumer<Properties> action) {
+        List<Reference<Properties>> references = propertyRegistry.get(objectPath);
+
+        if (references != null) {
+            boolean cleared = false;
+
+            for (Reference<Properties> reference : references) {
+                Properties properties = reference.get();
+
+                if (properties != null) {
+                    action.accept(properties);
+                }
+                else {
+                    cleared = true;
+                }
+            }
+
+            if (cleared) {
+                propertyRegistry.computeIfPresent(objectPath, (k, v) -> {
+                    List<Reference<Properties>> alive = new ArrayList<>(v);
+                    alive.removeIf(r -> r.get() == null);
+
+                    return alive.isEmpty() ? null : alive;
+                });
+            }
+        }
+    }
+
+    private void forEachProperties(final Consumer<Properties> action) {
+        for (String objectPath : propertyRegistry.keySet()) {
+            forEachProperties(objectPath, action);
+        }
+    }
+
+    /**
+     * Enables caching of property values in all {@link Properties} adapters
+     * created by this manager (including those created later on). The caches
+     * are updated in place from <code>PropertiesChanged</code> signals and are
+     * invalidated completely on <code>Reloading</code> and
+     * <code>UnitFilesChanged</code>.<p>
+     *
+     * @throws DBusException In case of signal handler registration failures.
+     */
+    public synchronized void enablePropertyCaching() throws DBusException {
+        if (!propertyCaching) {
+            subscribe();
+
+            propertyCacheUpdater = s -> forEachProperties(s.getPath(), p -> {
+                if (p.getServiceName().equals(s.interfaceName)) {
+                    p.update(s.changedProperties, s.invalidatedProperties);
+                }
+            });
+
+            reloadingInvalidator = s -> {
+                if (!s.isActive()) {
+                    invalidatePropertyCaches();
+                }
+            };
+
+            unitFilesChangedInvalidator = s -> invalidatePropertyCaches();
+
+            addConsumer(PropertiesChanged.class, propertyCacheUpdater);
+            addConsumer(Reloading.class, reloadingInvalidator);
+            addConsumer(UnitFilesChanged.class, unitFilesChangedInvalidator);
+
+            propertyCaching = true;
+
+            forEachProperties(Properties::enableCaching);
+        }
+    }
+
+    public synchronized void disablePropertyCaching() throws DBusException {
+        if (propertyCaching) {
+            propertyCaching = false;
+
+            forEachProperties(Properties::disableCaching);
+
+            removeConsumer(PropertiesChanged.class, propertyCacheUpdater);
+            removeConsumer(Reloading.class, reloadingInvalidator);
+            removeConsumer(UnitFilesChanged.class, unitFilesChangedInvalidator);
+
+            propertyCacheUpdater = null;
+            reloadingInvalidator = null;
+            unitFilesChangedInvalidator = null;
+        }
+    }
+
+    public boolean isPropertyCaching() {
+        return propertyCaching;
+    }
+
+    public void invalidatePropertyCaches() {
+        forEachProperties(Properties::invalidate);
+    }
+
+    /**
+     * Returns the aggregated cache statistics of all {@link Properties}
+     * adapters created by this manager.<p>
+     *
+     * @return The cache hit/miss counters.
+     */
+    public Properties.CacheStatistics getPropertyCacheStatistics() {
+        return propertyCacheStatistics;
+    }
+
+    @Override
+    public SignalDispatcher getSignalDispatcher() {
+        return signalDispatcher;
+    }
+
+    /**
+     * Sets the dispatcher which runs signal consumers (and state listeners)
+     * registered afterwards on this manager, its units and monitors. By
+     * default (<code>null</code>) every consumer runs on a dedicated thread.<p>
+     *
+     * @param signalDispatcher The shared dispatcher or <code>null</code>.
+     */
+    public void setSignalDispatcher(final SignalDispatcher signalDispatcher) {
+        if (signalDispatcher != null) {
+            signalDispatcher.setScheduler(getScheduler());
+        }
+
+        this.signalDispatcher = signalDispatcher;
+    }
+
+    public boolean isLockFreeSignalQueues() {
+        return lockFreeSignalQueues;
+    }
+
+    /**
+     * Selects the queue implementation of signal consumers (and state
+     * listeners) registered afterwards on this manager, its units and
+     * monitors. Lock-free queues avoid contention of the D-Bus signal thread
+     * with the consumers under high signal rates. They are only used with the
+     * overflow policies {@link OverflowPolicy#BLOCK} and
+     * {@link OverflowPolicy#DROP_NEWEST}.<p>
+     *
+     * @param lockFreeSignalQueues <code>true</code> to use lock-free ring buffers.
+     */
+    public void setLockFreeSignalQueues(final boolean lockFreeSignalQueues) {
+        this.lockFreeSignalQueues = lockFreeSignalQueues;
+    }
+
+    public int getSignalQueueCapacity() {
+        return signalQueueCapacity;
+    }
+
+    /**
+     * Sets the capacity of signal queues of consumers registered afterwards
+     * on this manager, its units and monitors.<p>
+     *
+     * @param signalQueueCapacity The number of signals each queue can hold.
+     */
+    public void setSignalQueueCapacity(final int signalQueueCapacity) {
+        if (signalQueueCapacity < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.signalQueueCapacity = signalQueueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sets the behavior of signal queues (of consumers registered afterwards)
+     * when they are full. By default the D-Bus signal thread is blocked.<p>
+     *
+     * @param overflowPolicy The overflow policy.
+     * @see #getSignalQueueStatistics()
+     */
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+    }
+
+    public long getSignalReorderWindow() {
+        return signalReorderWindow;
+    }
+
+    /**
+     * Sets the maximum time signal queues (of consumers registered
+     * afterwards) hold back a signal while waiting for one with a lower
+     * serial number. Serials are counted per sender, including replies and
+     * signals of other consumers, so most signals of a consumer follow a
+     * gap and wait for the full window. A small window caps this latency,
+     * <code>0</code> releases signals in arrival order without waiting.<p>
+     *
+     * @param signalReorderWindow The reordering window in milliseconds (2 by default).
+     */
+    public void setSignalReorderWindow(final long signalReorderWindow) {
+        if (signalReorderWindow < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.signalReorderWindow = signalReorderWindow;
+    }
+
+    /**
+     * Returns the aggregated overflow counters of all signal queues created
+     * by this manager, its units and monitors.<p>
+     *
+     * @return The dropped/coalesced signal counters.
+     */
+    public SignalQueueStatistics getSignalQueueStatistics() {
+        return signalQueueStatistics;
+    }
+
+    public boolean isStateDemultiplexing() {
+        return stateDemultiplexing;
+    }
+
+    /**
+     * Lets the state listeners of units and monitors registered afterwards
+     * share a single <code>PropertiesChanged</code> handler (and consumer)
+     * on this connection. Signals are routed by object path, so the cost of
+     * dispatching does not grow with the number of units having listeners.<p>
+     *
+     * @param stateDemultiplexing <code>true</code> to route state changes via a shared handler.
+     */
+    public void setStateDemultiplexing(final boolean stateDemultiplexing) {
+        this.stateDemultiplexing = stateDemultiplexing;
+    }
+
+    synchronized PropertiesDemultiplexer getPropertiesDemultiplexer() {
+        if (!stateDemultiplexing) {
+            return null;
+        }
+
+        if (propertiesDemultiplexer == null) {
+            propertiesDemultiplexer = new PropertiesDemultiplexer(this);
+        }
+
+        return propertiesDemultiplexer;
+    }
+
+    public long getSignalCoalescingWindow() {
+        return signalCoalescingWindow;
+    }
+
+    /**
+     * Enables merging of <code>PropertiesChanged</code> signals of the same
+     * unit (and interface) which arrive within the given window, so that state
+     * listeners registered afterwards receive one event per burst (e.g. for a
+     * restart). Merged events are delivered on a separate delivery thread.<p>
+     *
+     * @param signalCoalescingWindow The window in milliseconds (<code>0</code> disables coalescing).
+     * @see SignalQueueStatistics#getCoalesced()
+     */
+    public void setSignalCoalescingWindow(final long signalCoalescingWindow) {
+        if (signalCoalescingWindow < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.signalCoalescingWindow = signalCoalescingWindow;
+    }
+
+    DBusSigHandler<PropertiesChanged> coalesce(final DBusSigHandler<PropertiesChanged> handler) {
+        long window = signalCoalescingWindow;
+
+        if (window == 0L) {
+            return handler;
+        }
+
+        return new PropertiesCoalescer(handler, getScheduler(), getDeliveryExecutor(), window, signalQueueStatistics);
+    }
+
+    /**
+     * Adds a listener for the state changes of all units (as reported by
+     * systemd to subscribed clients, see {@link #subscribe()}).<p>
+     *
+     * @param listener The listener.
+     * @throws DBusException If the signal handler cannot be added.
+     */
+    @Override
+    public void addListener(final UnitStateListener listener) throws DBusException {
+        subscribe();
+
+        super.addListener(listener);
+    }
+
+    @Override
+    protected MatchRule getStateMatchRule() throws DBusException {
+        return Unit.createStateMatchRule();
+    }
+
+    @Override
+    protected PropertiesDemultiplexer getDemultiplexer() {
+        return getPropertiesDemultiplexer();
+    }
+
+    @Override
+    protected DBusSigHandler<PropertiesChanged> createStateHandler() {
+        return coalesce(s -> {
+            Map<String, Variant<?>> properties = s.changedProperties;
+
+            // Resolve units only for state changes
+            if (properties.containsKey(Unit.Property.ACTIVE_STATE) || properties.containsKey(Unit.Property.LOAD_STATE) || properties.containsKey(Unit.Property.SUB_STATE)) {
+                Unit unit;
+
+                try {
+                    // Pooled adapters are reused, others are created on demand
+                    unit = getUnit(Systemd.unescapePath(Unit.extractName(s.getPath())));
+                }
+                catch (final DBusException | IllegalArgumentException e) {
+                    log.warn("Unable to resolve unit for state change of '{}'", s.getPath(), e);
+
+                    return;
+                }
+
+                UnitStateEvent event = UnitStateEvent.create(unit, properties, unitStates.get(s.getPath()));
+                unitStates.put(s.getPath(), event.getState());
+
+                unitStateListeners.forEach(l -> l.stateChanged(event));
+            }
+        });
+    }
+
+    private org.freedesktop.dbus.Path callJob(final Verb verb, final String name, final String mode, final Supplier<org.freedesktop.dbus.Path> call) {
+        if (jobCoalescing) {
+            return jobCoalescer.call(verb, name, mode, call);
+        }
+
+        return call.get();
+    }
+
+    private CompletableFuture<JobResult> submitJob(final Verb verb, final String name, final String mode) {
+        if (jobCoalescing) {
+            return jobCoalescer.submit(verb, name, mode);
+        }
+
+        try {
+            // Track before calling, the job may be removed before the call returns
+            JobTracker tracker = getJobTracker();
+
+            return enqueueJob(verb, name, mode).thenCompose(tracker::track);
+        }
+        catch (final DBusException e) {
+            CompletableFuture<JobResult> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+
+            return failed;
+        }
+    }
+
+    /**
+     * Calls the given job method without waiting for the reply.<p>
+     *
+     * @param verb The job method.
+     * @param name The unit name.
+     * @param mode The job mode.
+     * @return The future completed with the object path of the job.
+     */
+    CompletableFuture<org.freedesktop.dbus.Path> enqueueJob(final Verb verb, final String name, final String mode) {
+        CompletableFuture<org.freedesktop.dbus.Path> job = new CompletableFuture<>();
+
+        CallbackHandler<org.freedesktop.dbus.Path> callback = new CallbackHandler<org.freedesktop.dbus.Path>() {
+
+            @Override
+            public void handle(final org.freedesktop.dbus.Path path) {
+                job.complete(path);
+            }
+
+            @Override
+            public void handleError(final DBusExecutionException e) {
+                job.completeExceptionally(e);
+            }
+
+        };
+
+        try {
+            dbus.callWithCallback(getInterface(), verb.getMethod(), callback, name, mode);
+        }
+        catch (final DBusExecutionException e) {
+            callback.handleError(e);
+        }
+
+        return job;
+    }
+
+    @Override
+    protected synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r);
+                thread.setName(Manager.class.getSimpleName() + "-scheduler");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+
+            executor.setKeepAliveTime(60L, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            executor.setRemoveOnCancelPolicy(true);
+
+            scheduler = executor;
+        }
+
+        return scheduler;
+    }
+
+    /**
+     * Returns the executor delivering state changes released by the
+     * scheduler (e.g. merged signals), so that slow listeners do not delay
+     * timeouts and other scheduled tasks. Deliveries keep their order.<p>
+     *
+     * @return The single-threaded executor.
+     */
+    @Override
+    protected synchronized Executor getDeliveryExecutor() {
+        if (deliveryExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r);
+                thread.setName(Manager.class.getSimpleName() + "-delivery");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+
+            executor.allowCoreThreadTimeOut(true);
+
+            deliveryExecutor = executor;
+        }
+
+        return deliveryExecutor;
+    }
+
+    @Override
+    protected <T extends DBusSignal> SignalConsumer<T> createConsumer(final DBusSigHandler<T> handler) {
+        SignalQueueStatistics statistics = new SignalQueueStatistics(signalQueueStatistics);
+        SignalQueue<T> queue;
+
+        if (lockFreeSignalQueues && RingSignalSequencer.isSupported(overflowPolicy)) {
+            queue = new RingSignalSequencer<>(signalQueueCapacity, overflowPolicy, statistics);
+        }
+        else {
+            queue = new SignalSequencer<>(signalQueueCapacity, overflowPolicy, statistics);
+        }
+
+        queue.setTransferDelay(signalReorderWindow);
+
+        return new SignalConsumer<>(queue, handler);
+    }
+
+    /**
+     * Returns a new bulk operation for running job methods on many units
+     * with bounded parallelism, e.g. <code>bulk().concurrency(32).start(names, Mode.REPLACE)</code>.<p>
+     *
+     * @return The bulk operation.
+     */
+    public BulkOperation bulk() {
+        return new BulkOperation(this);
+    }
+
+    /**
+     * Returns a new rolling restart of the given units, e.g.
+     * <code>rollingRestart(names).batchSize(5).healthTimeout(30000L).execute()</code>.<p>
+     *
+     * @param unitNames The full names of the units (including the type suffix) in restart order.
+     * @return The rolling restart.
+     */
+    public RollingRestart rollingRestart(final Collection<String> unitNames) {
+        return new RollingRestart(this, unitNames);
+    }
+
+    public StartPlan planStart(final Collection<String> unitNames) throws DBusException {
+        return planStart(unitNames, false);
+    }
+
+    /**
+     * Builds a plan for starting the given units in topological waves of
+     * their ordering dependencies (<code>After</code>/<code>Before</code>
+     * among the units), e.g. <code>planStart(names, false).execute(bulk(), Mode.REPLACE)</code>.<p>
+     *
+     * @param unitNames The full names of the units (including the type suffix).
+     * @param includeRequirements Whether to add the units required, wanted or bound to by the units (transitively).
+     * @return The plan.
+     * @throws DBusException If the dependencies of any unit cannot be retrieved.
+     */
+    public StartPlan planStart(final Collection<String> unitNames, final boolean includeRequirements) throws DBusException {
+        return StartPlan.create(this, unitNames, includeRequirements);
+    }
+
+    /**
+     * Retrieves the given properties of all given units. Unlike the property
+     * getters of the unit adapters, the calls are issued asynchronously and
+     * up to {@link #getFetchWindow()} calls are kept in flight at once.<p>
+     *
+     * @param unitNames The full names of the units (including the type suffix).
+     * @param propertyNames The names of properties of the generic unit interface or of the type specific interface.
+     * @return A table holding all property values (or retrieval errors).
+     * @throws DBusException If the retrieval has been interrupted.
+     * @throws IllegalArgumentException If the type of a unit cannot be determined by its name suffix (no call is issued then).
+     */
+    public PropertyTable fetch(final Collection<String> unitNames, final String... propertyNames) throws DBusException {
+        return fetch(unitNames, Arrays.asList(propertyNames));
+    }
+
+    public PropertyTable fetch(final Collection<String> unitNames, final Collection<String> propertyNames) throws DBusException {
+        PropertyFetcher fetcher = new PropertyFetcher(this, fetchWindow, fetchTimeout);
+
+        return fetcher.fetch(new ArrayList<>(unitNames), new ArrayList<>(propertyNames));
+    }
+
+    public int getFetchWindow() {
+        return fetchWindow;
+    }
+
+    public void setFetchWindow(final int fetchWindow) {
+        if (fetchWindow < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.fetchWindow = fetchWindow;
+    }
+
+    public long getFetchTimeout() {
+        return fetchTimeout;
+    }
+
+    public void setFetchTimeout(final long fetchTimeout) {
+        if (fetchTimeout < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.fetchTimeout = fetchTimeout;
+    }
+
+    /**
+     * Returns the capacity of the pool of unit adapters handed out by the
+     * unit getters of this manager.<p>
+     *
+     * @return The maximum number of pooled adapters (<code>0</code> if pooling is disabled).
+     */
+    public int getUnitPoolCapacity() {
+        return unitPool.getCapacity();
+    }
+
+    /**
+     * Sets the capacity of the unit adapter pool. Repeated lookups of a pooled
+     * unit return the same adapter instance. Adapters are held softly and are
+     * evicted on <code>UnitRemoved</code> (which systemd only emits to
+     * subscribed clients, see {@link #subscribe()}).<p>
+     *
+     * @param capacity The maximum number of pooled adapters, <code>0</code> disables pooling.
+     */
+    public void setUnitPoolCapacity(final int capacity) {
+        unitPool.setCapacity(capacity);
+    }
+
+    public void clearUnitPool() {
+        unitPool.clear();
+    }
+
+    private <T extends Unit> T intern(final String name, final Class<T> type, final UnitPool.Factory<T> factory) throws DBusException {
+        if (unitEvictor == null && unitPool.getCapacity() > 0) {
+            registerUnitEvictor();
+        }
+
+        return unitPool.get(this, name, type, factory);
+    }
+
+    /**
+     * Creates a new adapter of the given unit which is not pooled and
+     * serves its property getters from the given snapshot. Pooled adapters
+     * are shared and therefore refuse snapshots.<p>
+     *
+     * @param unit The unit.
+     * @param snapshot The snapshot to read property values from.
+     * @return The new adapter of the same type.
+     * @throws DBusException If the adapter cannot be created.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Unit> T createSnapshotView(final T unit, final PropertySnapshot snapshot) throws DBusException {
+        String suffix = unit.name.substring(unit.name.lastIndexOf('.'));
+        UnitPool.Factory<? extends Unit> factory = UNIT_FACTORIES.get(suffix);
+
+        if (factory == null) {
+            throw new IllegalArgumentException(String.format("Unable to determine unit type by name suffix from '%s'", unit.name));
+        }
+
+        T view = (T) factory.create(this, unit.name);
+        view.attachSnapshot(snapshot);
+
+        return view;
+    }
+
+    private synchronized void registerUnitEvictor() throws DBusException {
+        if (unitEvictor == null) {
+            DBusSigHandler<UnitRemoved> evictor = s -> unitPool.evict(s.getId());
+
+            addHandler(UnitRemoved.class, evictor);
+
+            unitEvictor = evictor;
+        }
+    }
+
     public Automount getAutomount(final String name) throws DBusException {
-        return Automount.create(this, name);
+        return intern(Unit.normalizeName(name, Automount.UNIT_SUFFIX), Automount.class, Automount::create);
     }
 
     public BusName getBusName(final String name) throws DBusException {
-        return BusName.create(this, name);
+        return intern(Unit.normalizeName(name, BusName.UNIT_SUFFIX), BusName.class, BusName::create);
     }
 
     public Device getDevice(final String name) throws DBusException {
-        return Device.create(this, name);
+        return intern(Unit.normalizeName(name, Device.UNIT_SUFFIX), Device.class, Device::create);
     }
 
     public Mount getMount(final String name) throws DBusException {
-        return Mount.create(this, name);
+        return intern(Unit.normalizeName(name, Mount.UNIT_SUFFIX), Mount.class, Mount::create);
     }
 
     public Path getPath(final String name) throws DBusException {
-        return Path.create(this, name);
+        return intern(Unit.normalizeName(name, Path.UNIT_SUFFIX), Path.class, Path::create);
     }
 
     public Scope getScope(final String name) throws DBusException {
-        return Scope.create(this, name);
+        return intern(Unit.normalizeName(name, Scope.UNIT_SUFFIX), Scope.class, Scope::create);
     }
 
     public Service getService(final String name) throws DBusException {
-        return Service.create(this, name);
+        return intern(Unit.normalizeName(name, Service.UNIT_SUFFIX), Service.class, Service::create);
     }
 
     public Slice getSlice(final String name) throws DBusException {
-        return Slice.create(this, name);
+        return intern(Unit.normalizeName(name, Slice.UNIT_SUFFIX), Slice.class, Slice::create);
     }
 
     public Snapshot getSnapshot(final String name) throws DBusException {
-        return Snapshot.create(this, name);
+        return intern(Unit.normalizeName(name, Snapshot.UNIT_SUFFIX), Snapshot.class, Snapshot::create);
     }
 
     public Socket getSocket(final String name) throws DBusException {
-        return Socket.create(this, name);
+        return intern(Unit.normalizeName(name, Socket.UNIT_SUFFIX), Socket.class, Socket::create);
     }
 
     public Swap getSwap(final String name) throws DBusException {
-        return Swap.create(this, name);
+        return intern(Unit.normalizeName(name, Swap.UNIT_SUFFIX), Swap.class, Swap::create);
     }
 
     public Target getTarget(final String name) throws DBusException {
-        return Target.create(this, name);
+        return intern(Unit.normalizeName(name, Target.UNIT_SUFFIX), Target.class, Target::create);
     }
 
     public Timer getTimer(final String name) throws DBusException {
-        return Timer.create(this, name);
+        return intern(Unit.normalizeName(name, Timer.UNIT_SUFFIX), Timer.class, Timer::create);
     }
 
     public Unit getUnit(final String fullName) throws DBusException {
@@ -0,0 +1,151 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.freedesktop.dbus.DBusMatchRule;
+import org.freedesktop.dbus.DBusSignal;
+import org.freedesktop.dbus.exceptions.DBusException;
+
+/**
+ * D-Bus match rule for signals, allowing restrictions which are evaluated
+ * by the bus daemon (e.g. on the object path or on string arguments).
+ *
+ * @see InterfaceAdapter#addHandler(Class, MatchRule, org.freedesktop.dbus.DBusSigHandler)
+ */
+public final class MatchRule {
+
+    public static final int MAX_ARG_INDEX = 63;
+
+    private final String interfaceName;
+    private final String member;
+
+    private String sender;
+    private String path;
+    private String pathNamespace;
+
+    private final Map<Integer, String> args = new TreeMap<>();
+
+    private MatchRule(final String interfaceName, final String member) {
+        this.interfaceName = interfaceName;
+        this.member = member;
+    }
+
+    /**
+     * Creates a rule matching the given signal type.<p>
+     *
+     * @param type The signal class.
+     * @return A new match rule.
+     * @throws DBusException If the signal class is not a valid signal type.
+     */
+    public static MatchRule signal(final Class<? extends DBusSignal> type) throws DBusException {
+        DBusMatchRule rule = new DBusMatchRule(type);
+
+        return new MatchRule(rule.getInterface(), rule.getMember());
+    }
+
+    public MatchRule sender(final String sender) {
+        this.sender = sender;
+
+        return this;
+    }
+
+    public MatchRule path(final String path) {
+        this.path = path;
+
+        return this;
+    }
+
+    /**
+     * Restricts the rule to the given object path and all paths below.<p>
+     *
+     * @param pathNamespace The object path prefix (without trailing slash).
+     * @return This rule.
+     */
+    public MatchRule pathNamespace(final String pathNamespace) {
+        this.pathNamespace = pathNamespace;
+
+        return this;
+    }
+
+    /**
+     * Restricts the rule to signals with the given string value as argument
+     * at the given index.<p>
+     *
+     * @param index The argument index (0 to 63).
+     * @param value The expected string value.
+     * @return This rule.
+     */
+    public MatchRule arg(final int index, final String value) {
+        if (index < 0 || index > MAX_ARG_INDEX) {
+            throw new IllegalArgumentException();
+        }
+
+        args.put(index, Objects.requireNonNull(value));
+
+        return this;
+    }
+
+    public String getInterface() {
+        return interfaceName;
+    }
+
+    public String getMember() {
+        return member;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getPathNamespace() {
+        return pathNamespace;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof MatchRule && obj.toString().equals(toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder rule = new StringBuilder("type='signal'");
+
+        append(rule, "sender", sender);
+        append(rule, "interface", interfaceName);
+        append(rule, "member", member);
+        append(rule, "path", path);
+        append(rule, "path_namespace", pathNamespace);
+
+        for (Map.Entry<Integer, String> arg : args.entrySet()) {
+            append(rule, "arg" + arg.getKey(), arg.getValue());
+        }
+
+        return rule.toString();
+    }
+
+    private static void append(final StringBuilder rule, final String key, final String value) {
+        if (value != null) {
+            // Quotes are escaped by closing, escaping and reopening the quoted value
+            rule.append(',').append(key).append("='").append(value.replace("'", "'\\''")).append('\'');
+        }
+    }
+
+}
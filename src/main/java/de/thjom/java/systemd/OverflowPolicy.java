@@ -0,0 +1,44 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+/**
+ * Behavior of a signal queue if a signal arrives while the queue is full.
+ *
+ * @see Manager#setOverflowPolicy(OverflowPolicy)
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Blocks the D-Bus signal thread until the consumer has taken signals
+     * (stalls all other handlers on the connection meanwhile).
+     */
+    BLOCK,
+
+    /**
+     * Drops the oldest queued signal in favor of the arriving one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Drops the arriving signal.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Replaces a queued <code>PropertiesChanged</code> signal of the same
+     * object path and interface by the arriving one. Other signals, or if
+     * there is nothing to replace, are handled like {@link #DROP_OLDEST}.
+     */
+    COALESCE
+
+}
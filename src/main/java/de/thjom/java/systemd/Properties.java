@@ -11,32 +11,128 @@
 
 package de.thjom.java.systemd;
 
-import java.math.BigInteger;
-import java.util.Vector;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.freedesktop.dbus.DBusConnection;
-import org.freedesktop.dbus.UInt64;
 import org.freedesktop.dbus.Variant;
 import org.freedesktop.dbus.exceptions.DBusException;
 
 import de.thjom.java.systemd.interfaces.PropertyInterface;
 
-public class Properties extends InterfaceAdapter {
+public class Properties extends InterfaceAdapter implements PropertySource {
 
     public static final String SERVICE_NAME = "org.freedesktop.DBus.Properties";
 
+    /**
+     * Properties which are cached if caching is enabled. These are either
+     * announced via <code>PropertiesChanged</code> (emits-change flag of
+     * systemd) or constant until the manager reloads (which invalidates all
+     * caches). All other properties (e.g. counters, gauges or manager
+     * settings) are always read from the bus.
+     */
+    public static final Set<String> CACHEABLE_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            // Emitting changes
+            Unit.Property.ACTIVE_ENTER_TIMESTAMP,
+            Unit.Property.ACTIVE_ENTER_TIMESTAMP_MONOTONIC,
+            Unit.Property.ACTIVE_EXIT_TIMESTAMP,
+            Unit.Property.ACTIVE_EXIT_TIMESTAMP_MONOTONIC,
+            Unit.Property.ACTIVE_STATE,
+            Unit.Property.ASSERT_RESULT,
+            Unit.Property.ASSERT_TIMESTAMP,
+            Unit.Property.ASSERT_TIMESTAMP_MONOTONIC,
+            Unit.Property.ASSERTS,
+            Unit.Property.CONDITION_RESULT,
+            Unit.Property.CONDITION_TIMESTAMP,
+            Unit.Property.CONDITION_TIMESTAMP_MONOTONIC,
+            Unit.Property.CONDITIONS,
+            Unit.Property.INACTIVE_ENTER_TIMESTAMP,
+            Unit.Property.INACTIVE_ENTER_TIMESTAMP_MONOTONIC,
+            Unit.Property.INACTIVE_EXIT_TIMESTAMP,
+            Unit.Property.INACTIVE_EXIT_TIMESTAMP_MONOTONIC,
+            Unit.Property.INVOCATION_ID,
+            Unit.Property.JOB,
+            Unit.Property.STATE_CHANGE_TIMESTAMP,
+            Unit.Property.STATE_CHANGE_TIMESTAMP_MONOTONIC,
+            Unit.Property.SUB_STATE,
+            Service.Property.CONTROL_PID,
+            Service.Property.EXEC_MAIN_CODE,
+            Service.Property.EXEC_MAIN_EXIT_TIMESTAMP,
+            Service.Property.EXEC_MAIN_EXIT_TIMESTAMP_MONOTONIC,
+            Service.Property.EXEC_MAIN_PID,
+            Service.Property.EXEC_MAIN_START_TIMESTAMP,
+            Service.Property.EXEC_MAIN_START_TIMESTAMP_MONOTONIC,
+            Service.Property.EXEC_MAIN_STATUS,
+            Service.Property.MAIN_PID,
+            Service.Property.N_RESTARTS,
+            Service.Property.RESULT,
+            Service.Property.STATUS_ERRNO,
+            Service.Property.STATUS_TEXT,
+            Timer.Property.LAST_TRIGGER_USEC,
+            Timer.Property.LAST_TRIGGER_USEC_MONOTONIC,
+            Timer.Property.NEXT_ELAPSE_USEC_MONOTONIC,
+            Timer.Property.NEXT_ELAPSE_USEC_REALTIME,
+            Manager.Property.NFAILED_UNITS,
+            // Constant until reloaded
+            Unit.Property.AFTER,
+            Unit.Property.BEFORE,
+            Unit.Property.BINDS_TO,
+            Unit.Property.CONFLICTS,
+            Unit.Property.DESCRIPTION,
+            Unit.Property.DROP_IN_PATHS,
+            Unit.Property.FRAGMENT_PATH,
+            Unit.Property.ID,
+            Unit.Property.LOAD_STATE,
+            Unit.Property.NAMES,
+            Unit.Property.PART_OF,
+            Unit.Property.REQUIRED_BY,
+            Unit.Property.REQUIRES,
+            Unit.Property.SOURCE_PATH,
+            Unit.Property.TRANSIENT,
+            Unit.Property.WANTED_BY,
+            Unit.Property.WANTS,
+            Service.Property.BUS_NAME,
+            Service.Property.TYPE,
+            Manager.Property.ARCHITECTURE,
+            Manager.Property.FEATURES,
+            Manager.Property.VERSION,
+            Manager.Property.VIRTUALIZATION
+    )));
+
+    private final String objectPath;
     private final String serviceName;
 
-    private Properties(final DBusConnection dbus, final PropertyInterface iface, final String serviceName) {
+    private final CacheStatistics cacheStatistics;
+    private final Object cacheLock = new Object();
+
+    private volatile Map<String, Variant<?>> cache;
+    private long cacheVersion;
+
+    private volatile PropertySnapshot snapshot;
+    private volatile boolean shared;
+
+    private Properties(final DBusConnection dbus, final PropertyInterface iface, final String objectPath, final String serviceName, final CacheStatistics parentStatistics) {
         super(dbus, iface);
 
+        this.objectPath = objectPath;
         this.serviceName = serviceName;
+        this.cacheStatistics = new CacheStatistics(parentStatistics);
     }
 
-    static Properties create(final DBusConnection dbus, final String objectPath, final String serviceName) throws DBusException {
-        PropertyInterface iface = dbus.getRemoteObject(Systemd.SERVICE_NAME, objectPath, PropertyInterface.class);
+    static Properties create(final Manager manager, final String objectPath, final String serviceName) throws DBusException {
+        PropertyInterface iface = manager.dbus.getRemoteObject(Systemd.SERVICE_NAME, objectPath, PropertyInterface.class);
+        Properties properties = new Properties(manager.dbus, iface, objectPath, serviceName, manager.getPropertyCacheStatistics());
+
+        manager.registerProperties(properties);
 
-        return new Properties(dbus, iface, serviceName);
+        return properties;
     }
 
     @Override
@@ -53,59 +149,217 @@ public class Properties extends InterfaceAdapter {
         return this;
     }
 
-    public Variant<?> getVariant(final String propertyName) {
-        return getInterface().getProperty(serviceName, propertyName);
+    public String getServiceName() {
+        return serviceName;
     }
 
-    public boolean getBoolean(final String propertyName) {
-        Boolean value = (Boolean) getVariant(propertyName).getValue();
+    String getPath() {
+        return objectPath;
+    }
 
-        return value.booleanValue();
+    /**
+     * Retrieves all properties of the adapted interface with a single call of
+     * <code>GetAll</code>. The returned snapshot is not attached to this
+     * adapter.<p>
+     *
+     * @return An immutable snapshot of all properties.
+     * @see Manager#createSnapshotView(Unit, PropertySnapshot)
+     */
+    @Override
+    public PropertySnapshot snapshot() {
+        return PropertySnapshot.of(getObjectPath(), serviceName, getInterface().getAllProperties(serviceName));
     }
 
-    public byte getByte(final String propertyName) {
-        Byte value = (Byte) getVariant(propertyName).getValue();
+    /**
+     * Attaches a snapshot to this adapter. All getters are served from the
+     * snapshot (as long as it contains the requested property of the adapted
+     * interface) until the snapshot is detached again.<p>
+     *
+     * @param snapshot The snapshot to read property values from.
+     */
+    @Override
+    void attachSnapshot(final PropertySnapshot snapshot) {
+        if (shared) {
+            throw new IllegalStateException("Snapshots cannot be attached to pooled unit adapters (see Manager.createSnapshotView)");
+        }
 
-        return value.byteValue();
+        this.snapshot = snapshot;
     }
 
-    public short getShort(final String propertyName) {
-        Number value = (Number) getVariant(propertyName).getValue();
+    @Override
+    public void detachSnapshot() {
+        this.snapshot = null;
+    }
 
-        return value.shortValue();
+    void setShared(final boolean shared) {
+        this.shared = shared;
     }
 
-    public int getInteger(final String propertyName) {
-        Number value = (Number) getVariant(propertyName).getValue();
+    public Optional<PropertySnapshot> getAttachedSnapshot() {
+        return Optional.ofNullable(snapshot);
+    }
 
-        return value.intValue();
+    /**
+     * Enables caching of property values. Cached values are kept until they
+     * are updated or invalidated via {@link #update(Map, Collection)} or
+     * {@link #invalidate()}, which is usually done by the {@link Manager}
+     * (see {@link Manager#enablePropertyCaching()}).<p>
+     */
+    public void enableCaching() {
+        synchronized (cacheLock) {
+            if (cache == null) {
+                cache = new ConcurrentHashMap<>();
+            }
+        }
     }
 
-    public long getLong(final String propertyName) {
-        Number value = (Number) getVariant(propertyName).getValue();
+    public void disableCaching() {
+        synchronized (cacheLock) {
+            cache = null;
+            cacheVersion++;
+        }
+    }
 
-        return value.longValue();
+    public boolean isCaching() {
+        return cache != null;
     }
 
-    public BigInteger getBigInteger(final String propertyName) {
-        UInt64 value = (UInt64) getVariant(propertyName).getValue();
+    public CacheStatistics getCacheStatistics() {
+        return cacheStatistics;
+    }
+
+    /**
+     * Applies the payload of a <code>PropertiesChanged</code> signal to the
+     * cache (if enabled).<p>
+     *
+     * @param changedProperties The properties with their new values.
+     * @param invalidatedProperties The properties which values have changed but were not transmitted.
+     */
+    public void update(final Map<String, Variant<?>> changedProperties, final Collection<String> invalidatedProperties) {
+        synchronized (cacheLock) {
+            Map<String, Variant<?>> current = cache;
+
+            if (current != null) {
+                cacheVersion++;
+
+                changedProperties.forEach((k, v) -> {
+                    if (CACHEABLE_PROPERTIES.contains(k)) {
+                        current.put(k, v);
+                    }
+                });
 
-        return value.value();
+                if (invalidatedProperties != null) {
+                    invalidatedProperties.forEach(current::remove);
+                }
+            }
+        }
     }
 
-    public double getDouble(final String propertyName) {
-        Number value = (Number) getVariant(propertyName).getValue();
+    public void invalidate() {
+        synchronized (cacheLock) {
+            Map<String, Variant<?>> current = cache;
 
-        return value.doubleValue();
+            if (current != null) {
+                cacheVersion++;
+
+                current.clear();
+            }
+        }
     }
 
-    public String getString(final String propertyName) {
-        return String.valueOf(getVariant(propertyName).getValue());
+    @Override
+    public Variant<?> getVariant(final String propertyName) {
+        PropertySnapshot current = snapshot;
+
+        if (current != null && current.contains(serviceName, propertyName)) {
+            return current.getVariant(serviceName, propertyName);
+        }
+
+        Map<String, Variant<?>> values = cache;
+
+        if (values == null || !CACHEABLE_PROPERTIES.contains(propertyName)) {
+            return getInterface().getProperty(serviceName, propertyName);
+        }
+
+        Variant<?> value = values.get(propertyName);
+
+        if (value != null) {
+            cacheStatistics.hit();
+        }
+        else {
+            cacheStatistics.miss();
+
+            long version;
+
+            synchronized (cacheLock) {
+                version = cacheVersion;
+            }
+
+            value = getInterface().getProperty(serviceName, propertyName);
+
+            synchronized (cacheLock) {
+                // Drop retrieved value if the cache has been modified meanwhile
+                if (version == cacheVersion && values == cache) {
+                    values.put(propertyName, value);
+                }
+            }
+        }
+
+        return value;
     }
 
-    @SuppressWarnings("unchecked")
-    public <T> Vector<T> getVector(final String propertyName) {
-        return (Vector<T>) getVariant(propertyName).getValue();
+    public static final class CacheStatistics {
+
+        private final CacheStatistics parent;
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        CacheStatistics(final CacheStatistics parent) {
+            this.parent = parent;
+        }
+
+        void hit() {
+            hits.increment();
+
+            if (parent != null) {
+                parent.hit();
+            }
+        }
+
+        void miss() {
+            misses.increment();
+
+            if (parent != null) {
+                parent.miss();
+            }
+        }
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public double getHitRatio() {
+            long h = hits.sum();
+            long total = h + misses.sum();
+
+            return total > 0 ? (double) h / total : 0.0;
+        }
+
+        public void reset() {
+            hits.reset();
+            misses.reset();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("CacheStatistics [hits=%d, misses=%d]", getHits(), getMisses());
+        }
+
     }
 
 }
@@ -0,0 +1,152 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges the <code>PropertiesChanged</code> signals of an object path (and
+ * interface) that arrive within a window into a single signal. The first
+ * signal of a burst opens the window. When the window closes, the scheduler
+ * hands the merged signal to the executor which runs the delegate, so that
+ * slow handlers do not delay other scheduled tasks.
+ */
+final class PropertiesCoalescer implements DBusSigHandler<PropertiesChanged> {
+
+    private final Logger log = LoggerFactory.getLogger(PropertiesCoalescer.class);
+
+    private final DBusSigHandler<PropertiesChanged> delegate;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final long window;
+    private final SignalQueueStatistics statistics;
+
+    private final Map<String, Burst> bursts = new HashMap<>();
+
+    PropertiesCoalescer(final DBusSigHandler<PropertiesChanged> delegate, final ScheduledExecutorService scheduler, final Executor executor, final long window, final SignalQueueStatistics statistics) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.scheduler = Objects.requireNonNull(scheduler);
+        this.executor = Objects.requireNonNull(executor);
+        this.window = window;
+        this.statistics = Objects.requireNonNull(statistics);
+    }
+
+    @Override
+    public void handle(final PropertiesChanged signal) {
+        String key = signal.getPath() + '\0' + signal.interfaceName;
+
+        synchronized (bursts) {
+            Burst burst = bursts.get(key);
+
+            if (burst != null) {
+                burst.merge(signal);
+                statistics.coalesce();
+
+                return;
+            }
+
+            bursts.put(key, new Burst(signal));
+        }
+
+        scheduler.schedule(() -> executor.execute(() -> flush(key)), window, TimeUnit.MILLISECONDS);
+    }
+
+    public DBusSigHandler<PropertiesChanged> getDelegate() {
+        return delegate;
+    }
+
+    private void flush(final String key) {
+        Burst burst;
+
+        synchronized (bursts) {
+            burst = bursts.remove(key);
+        }
+
+        if (burst != null) {
+            try {
+                delegate.handle(burst.toSignal());
+            }
+            catch (final RuntimeException e) {
+                log.error("Error while handling signal", e);
+            }
+        }
+    }
+
+    private static final class Burst {
+
+        private final PropertiesChanged first;
+        private final Map<String, Variant<?>> changedProperties;
+        private final Set<String> invalidatedProperties;
+
+        private int count = 1;
+
+        Burst(final PropertiesChanged signal) {
+            this.first = signal;
+            this.changedProperties = new HashMap<>(signal.changedProperties);
+            this.invalidatedProperties = new LinkedHashSet<>();
+
+            if (signal.invalidatedProperties != null) {
+                invalidatedProperties.addAll(signal.invalidatedProperties);
+            }
+        }
+
+        void merge(final PropertiesChanged signal) {
+            // Later signals win, a change revokes an invalidation and vice versa
+            for (Map.Entry<String, Variant<?>> entry : signal.changedProperties.entrySet()) {
+                changedProperties.put(entry.getKey(), entry.getValue());
+                invalidatedProperties.remove(entry.getKey());
+            }
+
+            if (signal.invalidatedProperties != null) {
+                for (String name : signal.invalidatedProperties) {
+                    changedProperties.remove(name);
+                    invalidatedProperties.add(name);
+                }
+            }
+
+            count++;
+        }
+
+        PropertiesChanged toSignal() {
+            if (count == 1) {
+                return first;
+            }
+
+            try {
+                List<String> invalidated = new ArrayList<>(invalidatedProperties);
+
+                return new PropertiesChanged(first.getPath(), first.interfaceName, changedProperties, invalidated);
+            }
+            catch (final DBusException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+    }
+
+}
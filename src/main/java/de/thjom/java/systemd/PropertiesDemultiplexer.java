@@ -0,0 +1,126 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives the <code>PropertiesChanged</code> signals of all units once per
+ * connection and routes them by object path to the state handlers of units
+ * (monitors register their handler for each monitored unit). Handlers
+ * registered without a path (e.g. of the manager) receive all signals.<p>
+ *
+ * The signal handler is registered on the bus (with a match rule for unit
+ * state changes) as long as at least one route exists.
+ */
+final class PropertiesDemultiplexer {
+
+    private final Logger log = LoggerFactory.getLogger(PropertiesDemultiplexer.class);
+
+    private final Manager manager;
+
+    private final ConcurrentMap<String, List<DBusSigHandler<PropertiesChanged>>> routes = new ConcurrentHashMap<>();
+    private final List<DBusSigHandler<PropertiesChanged>> subscribers = new CopyOnWriteArrayList<>();
+
+    private ForwardingHandler<PropertiesChanged> forwarder;
+    private int registrations;
+
+    PropertiesDemultiplexer(final Manager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Adds a route for the given object path.<p>
+     *
+     * @param objectPath The object path or <code>null</code> to receive the signals of all units.
+     * @param handler The handler.
+     * @throws DBusException If the signal handler cannot be registered.
+     */
+    synchronized void add(final String objectPath, final DBusSigHandler<PropertiesChanged> handler) throws DBusException {
+        if (forwarder == null) {
+            forwarder = new ForwardingHandler<>(manager.createConsumer(this::route), manager.getSignalDispatcher());
+            forwarder.startConsumer();
+
+            manager.subscribe();
+            manager.addHandler(PropertiesChanged.class, Unit.createStateMatchRule(), forwarder);
+        }
+
+        if (objectPath != null) {
+            routes.computeIfAbsent(objectPath, k -> new CopyOnWriteArrayList<>()).add(handler);
+        }
+        else {
+            subscribers.add(handler);
+        }
+
+        registrations++;
+    }
+
+    synchronized void remove(final String objectPath, final DBusSigHandler<PropertiesChanged> handler) throws DBusException {
+        boolean removed;
+
+        if (objectPath != null) {
+            List<DBusSigHandler<PropertiesChanged>> handlers = routes.get(objectPath);
+            removed = handlers != null && handlers.remove(handler);
+
+            if (handlers != null && handlers.isEmpty()) {
+                routes.remove(objectPath);
+            }
+        }
+        else {
+            removed = subscribers.remove(handler);
+        }
+
+        if (removed && --registrations == 0) {
+            manager.removeHandler(PropertiesChanged.class, forwarder);
+
+            forwarder.stopConsumer();
+            forwarder = null;
+        }
+    }
+
+    synchronized boolean isRegistered() {
+        return forwarder != null;
+    }
+
+    boolean isRouted(final String objectPath) {
+        return objectPath != null ? routes.containsKey(objectPath) : !subscribers.isEmpty();
+    }
+
+    private void route(final PropertiesChanged signal) {
+        List<DBusSigHandler<PropertiesChanged>> handlers = routes.get(signal.getPath());
+
+        if (handlers != null) {
+            handlers.forEach(h -> handle(h, signal));
+        }
+
+        subscribers.forEach(h -> handle(h, signal));
+    }
+
+    private void handle(final DBusSigHandler<PropertiesChanged> handler, final PropertiesChanged signal) {
+        try {
+            handler.handle(signal);
+        }
+        catch (final RuntimeException e) {
+            log.error("Error while handling signal", e);
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.freedesktop.dbus.CallbackHandler;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.thjom.java.systemd.interfaces.PropertyInterface;
+
+/**
+ * Retrieves properties of many units by keeping up to a bounded number of
+ * asynchronous <code>Get</code> calls in flight at once.
+ */
+final class PropertyFetcher {
+
+    static final String METHOD_GET = "getProperty";
+    static final String METHOD_GET_ALL = "getAllProperties";
+
+    private static final Set<String> UNIT_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(Unit.Property.getAllNames())));
+
+    private static final Map<String, String> SERVICE_NAMES_BY_SUFFIX;
+
+    static {
+        Map<String, String> names = new HashMap<>();
+        names.put(Automount.UNIT_SUFFIX, Automount.SERVICE_NAME);
+        names.put(BusName.UNIT_SUFFIX, BusName.SERVICE_NAME);
+        names.put(Device.UNIT_SUFFIX, Device.SERVICE_NAME);
+        names.put(Mount.UNIT_SUFFIX, Mount.SERVICE_NAME);
+        names.put(Path.UNIT_SUFFIX, Path.SERVICE_NAME);
+        names.put(Scope.UNIT_SUFFIX, Scope.SERVICE_NAME);
+        names.put(Service.UNIT_SUFFIX, Service.SERVICE_NAME);
+        names.put(Slice.UNIT_SUFFIX, Slice.SERVICE_NAME);
+        names.put(Snapshot.UNIT_SUFFIX, Snapshot.SERVICE_NAME);
+        names.put(Socket.UNIT_SUFFIX, Socket.SERVICE_NAME);
+        names.put(Swap.UNIT_SUFFIX, Swap.SERVICE_NAME);
+        names.put(Target.UNIT_SUFFIX, Target.SERVICE_NAME);
+        names.put(Timer.UNIT_SUFFIX, Timer.SERVICE_NAME);
+
+        SERVICE_NAMES_BY_SUFFIX = Collections.unmodifiableMap(names);
+    }
+
+    private final Logger log = LoggerFactory.getLogger(PropertyFetcher.class);
+
+    private final Manager manager;
+    private final int maxInFlight;
+    private final long timeout;
+
+    PropertyFetcher(final Manager manager, final int maxInFlight, final long timeout) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Window of in-flight calls must not be smaller than 1");
+        }
+
+        this.manager = manager;
+        this.maxInFlight = maxInFlight;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the name of the D-Bus interface which provides the given
+     * property on a unit (either the generic unit interface or the type
+     * specific one, determined by the unit name suffix).
+     */
+    static String resolveServiceName(final String unitName, final String propertyName) {
+        if (UNIT_PROPERTIES.contains(propertyName)) {
+            return Unit.SERVICE_NAME;
+        }
+
+        int index = unitName.lastIndexOf('.');
+        String serviceName = index >= 0 ? SERVICE_NAMES_BY_SUFFIX.get(unitName.substring(index)) : null;
+
+        if (serviceName == null) {
+            throw new IllegalArgumentException(String.format("Unable to determine unit type by name suffix from '%s'", unitName));
+        }
+
+        return serviceName;
+    }
+
+    PropertyTable fetch(final List<String> unitNames, final List<String> propertyNames) throws DBusException {
+        // Invalid names fail before the first call is issued
+        String[][] serviceNames = new String[unitNames.size()][propertyNames.size()];
+
+        for (int i = 0; i < serviceNames.length; i++) {
+            for (int j = 0; j < serviceNames[i].length; j++) {
+                serviceNames[i][j] = resolveServiceName(unitNames.get(i), propertyNames.get(j));
+            }
+        }
+
+        PropertyTable table = new PropertyTable(unitNames, propertyNames);
+
+        CountDownLatch pending = new CountDownLatch(unitNames.size() * propertyNames.size());
+        Semaphore window = new Semaphore(maxInFlight);
+        AtomicBoolean closed = new AtomicBoolean();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        try {
+            submit:
+            for (int i = 0; i < unitNames.size(); i++) {
+                String unitName = unitNames.get(i);
+                String objectPath = Unit.OBJECT_PATH + Systemd.escapePath(unitName);
+                PropertyInterface iface = manager.dbus.getRemoteObject(Systemd.SERVICE_NAME, objectPath, PropertyInterface.class);
+
+                for (int j = 0; j < propertyNames.size(); j++) {
+                    String propertyName = propertyNames.get(j);
+                    String serviceName = serviceNames[i][j];
+
+                    if (!window.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                        // Replies hang, remaining calls are not issued
+                        break submit;
+                    }
+
+                    CallbackHandler<Variant<?>> callback = new CallbackHandler<Variant<?>>() {
+
+                        @Override
+                        public void handle(final Variant<?> value) {
+                            synchronized (closed) {
+                                // Late replies must not overwrite timeout errors of a returned table
+                                if (!closed.get()) {
+                                    table.putValue(unitName, propertyName, value);
+                                }
+                            }
+
+                            window.release();
+                            pending.countDown();
+                        }
+
+                        @Override
+                        public void handleError(final DBusExecutionException e) {
+                            synchronized (closed) {
+                                if (!closed.get()) {
+                                    table.putError(unitName, propertyName, e);
+                                }
+                            }
+
+                            window.release();
+                            pending.countDown();
+                        }
+
+                    };
+
+                    try {
+                        manager.dbus.callWithCallback(iface, METHOD_GET, callback, serviceName, propertyName);
+                    }
+                    catch (final DBusExecutionException e) {
+                        callback.handleError(e);
+                    }
+                }
+            }
+
+            if (!pending.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                log.warn(String.format("Batch fetch timed out with %d pending calls", pending.getCount()));
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new DBusException("Batch fetch interrupted");
+        }
+        finally {
+            synchronized (closed) {
+                closed.set(true);
+
+                for (String unitName : unitNames) {
+                    for (String propertyName : propertyNames) {
+                        if (!table.getValue(unitName, propertyName).isPresent() && !table.getError(unitName, propertyName).isPresent()) {
+                            table.putError(unitName, propertyName, new DBusExecutionException("No reply received within timeout"));
+                        }
+                    }
+                }
+            }
+        }
+
+        return table;
+    }
+
+}
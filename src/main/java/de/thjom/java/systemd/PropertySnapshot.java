@@ -0,0 +1,154 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.freedesktop.dbus.Variant;
+
+/**
+ * Immutable copy of all properties of one or more D-Bus interfaces of an
+ * object, as returned by <code>org.freedesktop.DBus.Properties.GetAll</code>.
+ * A snapshot is taken with a single round trip per interface and can be
+ * attached to a {@link Properties} adapter, which then serves its getters
+ * from the snapshot instead of querying the bus.
+ */
+public final class PropertySnapshot implements PropertySource {
+
+    private final String objectPath;
+    private final long timestamp;
+    private final Map<String, Map<String, Variant<?>>> interfaces;
+
+    private PropertySnapshot(final String objectPath, final long timestamp, final Map<String, Map<String, Variant<?>>> interfaces) {
+        this.objectPath = objectPath;
+        this.timestamp = timestamp;
+        this.interfaces = Collections.unmodifiableMap(interfaces);
+    }
+
+    static PropertySnapshot of(final String objectPath, final String interfaceName, final Map<String, Variant<?>> properties) {
+        Map<String, Map<String, Variant<?>>> interfaces = new LinkedHashMap<>();
+        interfaces.put(interfaceName, Collections.unmodifiableMap(new LinkedHashMap<>(properties)));
+
+        return new PropertySnapshot(objectPath, System.currentTimeMillis(), interfaces);
+    }
+
+    /**
+     * Combines this snapshot with another one of the same object (e.g. the
+     * generic unit interface and the type specific interface).<p>
+     *
+     * @param other The snapshot to combine with this snapshot.
+     * @return A new snapshot containing the interfaces of both snapshots.
+     */
+    public PropertySnapshot merge(final PropertySnapshot other) {
+        Map<String, Map<String, Variant<?>>> merged = new LinkedHashMap<>(interfaces);
+        merged.putAll(other.interfaces);
+
+        return new PropertySnapshot(objectPath, Math.min(timestamp, other.timestamp), merged);
+    }
+
+    public String getObjectPath() {
+        return objectPath;
+    }
+
+    /**
+     * Returns the time when this snapshot was taken (milliseconds since
+     * the epoch).<p>
+     *
+     * @return The creation time of this snapshot.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Set<String> getInterfaceNames() {
+        return interfaces.keySet();
+    }
+
+    public Map<String, Variant<?>> getProperties(final String interfaceName) {
+        return interfaces.getOrDefault(interfaceName, Collections.emptyMap());
+    }
+
+    public boolean contains(final String propertyName) {
+        for (Map<String, Variant<?>> properties : interfaces.values()) {
+            if (properties.containsKey(propertyName)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public boolean contains(final String interfaceName, final String propertyName) {
+        return getProperties(interfaceName).containsKey(propertyName);
+    }
+
+    /**
+     * Returns the value of the given property from the first interface of
+     * this snapshot which provides a property with that name.<p>
+     *
+     * @param propertyName The name of the property.
+     * @return The property value.
+     * @throws NoSuchElementException If no interface provides the property.
+     */
+    @Override
+    public Variant<?> getVariant(final String propertyName) {
+        for (Map<String, Variant<?>> properties : interfaces.values()) {
+            Variant<?> value = properties.get(propertyName);
+
+            if (value != null) {
+                return value;
+            }
+        }
+
+        throw new NoSuchElementException(String.format("Property '%s' not contained in snapshot of %s", propertyName, objectPath));
+    }
+
+    public Variant<?> getVariant(final String interfaceName, final String propertyName) {
+        Variant<?> value = getProperties(interfaceName).get(propertyName);
+
+        if (value == null) {
+            throw new NoSuchElementException(String.format("Property '%s.%s' not contained in snapshot of %s", interfaceName, propertyName, objectPath));
+        }
+
+        return value;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        else if (obj instanceof PropertySnapshot) {
+            PropertySnapshot other = (PropertySnapshot) obj;
+
+            return Objects.equals(objectPath, other.objectPath) && interfaces.equals(other.interfaces);
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(objectPath, interfaces);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PropertySnapshot [objectPath=%s, interfaces=%s]", objectPath, interfaces.keySet());
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.math.BigInteger;
+import java.util.Vector;
+
+import org.freedesktop.dbus.UInt64;
+import org.freedesktop.dbus.Variant;
+
+/**
+ * Source of D-Bus property values which are addressed by their name. The
+ * typed getters only convert the value which is returned by
+ * {@link #getVariant(String)}.
+ */
+public interface PropertySource {
+
+    Variant<?> getVariant(String propertyName);
+
+    default boolean getBoolean(final String propertyName) {
+        Boolean value = (Boolean) getVariant(propertyName).getValue();
+
+        return value.booleanValue();
+    }
+
+    default byte getByte(final String propertyName) {
+        Byte value = (Byte) getVariant(propertyName).getValue();
+
+        return value.byteValue();
+    }
+
+    default short getShort(final String propertyName) {
+        Number value = (Number) getVariant(propertyName).getValue();
+
+        return value.shortValue();
+    }
+
+    default int getInteger(final String propertyName) {
+        Number value = (Number) getVariant(propertyName).getValue();
+
+        return value.intValue();
+    }
+
+    default long getLong(final String propertyName) {
+        Number value = (Number) getVariant(propertyName).getValue();
+
+        return value.longValue();
+    }
+
+    default BigInteger getBigInteger(final String propertyName) {
+        UInt64 value = (UInt64) getVariant(propertyName).getValue();
+
+        return value.value();
+    }
+
+    default double getDouble(final String propertyName) {
+        Number value = (Number) getVariant(propertyName).getValue();
+
+        return value.doubleValue();
+    }
+
+    default String getString(final String propertyName) {
+        return String.valueOf(getVariant(propertyName).getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    default <T> Vector<T> getVector(final String propertyName) {
+        return (Vector<T>) getVariant(propertyName).getValue();
+    }
+
+}
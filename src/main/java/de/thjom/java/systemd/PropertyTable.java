@@ -0,0 +1,106 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+
+/**
+ * Result of a batch property fetch (see {@link Manager#fetch(java.util.Collection, String...)}).
+ * Rows are addressed by unit name, columns by property name. Cells which
+ * could not be retrieved carry an error instead of a value.
+ */
+public final class PropertyTable {
+
+    private final List<String> unitNames;
+    private final List<String> propertyNames;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Variant<?>>> values = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, DBusExecutionException>> errors = new ConcurrentHashMap<>();
+
+    PropertyTable(final List<String> unitNames, final List<String> propertyNames) {
+        this.unitNames = Collections.unmodifiableList(unitNames);
+        this.propertyNames = Collections.unmodifiableList(propertyNames);
+    }
+
+    void putValue(final String unitName, final String propertyName, final Variant<?> value) {
+        values.computeIfAbsent(unitName, k -> new ConcurrentHashMap<>()).put(propertyName, value);
+    }
+
+    void putError(final String unitName, final String propertyName, final DBusExecutionException error) {
+        errors.computeIfAbsent(unitName, k -> new ConcurrentHashMap<>()).put(propertyName, error);
+    }
+
+    public List<String> getUnitNames() {
+        return unitNames;
+    }
+
+    public List<String> getPropertyNames() {
+        return propertyNames;
+    }
+
+    public Optional<Variant<?>> getValue(final String unitName, final String propertyName) {
+        Map<String, Variant<?>> row = values.get(unitName);
+
+        return Optional.ofNullable(row != null ? row.get(propertyName) : null);
+    }
+
+    /**
+     * Returns all successfully retrieved values of a unit in the order of the
+     * requested property names.<p>
+     *
+     * @param unitName The full unit name.
+     * @return The property values by property name.
+     */
+    public Map<String, Variant<?>> getRow(final String unitName) {
+        Map<String, Variant<?>> row = values.getOrDefault(unitName, new ConcurrentHashMap<>());
+        Map<String, Variant<?>> ordered = new LinkedHashMap<>();
+
+        for (String propertyName : propertyNames) {
+            Variant<?> value = row.get(propertyName);
+
+            if (value != null) {
+                ordered.put(propertyName, value);
+            }
+        }
+
+        return ordered;
+    }
+
+    public Optional<DBusExecutionException> getError(final String unitName, final String propertyName) {
+        Map<String, DBusExecutionException> row = errors.get(unitName);
+
+        return Optional.ofNullable(row != null ? row.get(propertyName) : null);
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    public int getErrorCount() {
+        return errors.values().stream().mapToInt(Map::size).sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PropertyTable [units=%d, properties=%d, errors=%d]", unitNames.size(), propertyNames.size(), getErrorCount());
+    }
+
+}
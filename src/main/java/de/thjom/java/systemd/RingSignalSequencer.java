@@ -0,0 +1,372 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.freedesktop.dbus.DBusSignal;
+
+/**
+ * Lock-free alternative to {@link SignalSequencer}. Producers claim slots of
+ * a preallocated ring via CAS (multiple producers, single consumer), the
+ * consumer inserts published signals into a reorder buffer ordered by
+ * serial (a binary heap of primitive arrays, no allocation per signal).
+ * Since signals arrive nearly in order, an insertion usually ends at the
+ * bottom of the heap.<p>
+ *
+ * Release semantics (reordering window) are the same as those of
+ * {@link SignalSequencer}, except that the window closes early if the
+ * reorder buffer holds as many signals as the ring (signals beyond stay in
+ * the ring, so the overflow policy applies). Only the overflow policies
+ * {@link OverflowPolicy#BLOCK} and {@link OverflowPolicy#DROP_NEWEST} are
+ * supported (others would require producers to remove queued signals).
+ */
+final class RingSignalSequencer<T extends DBusSignal> implements SignalQueue<T> {
+
+    private static final int SPIN_LIMIT = 64;
+    private static final long PARK_NANOS = 10000L;
+
+    private final AtomicReferenceArray<T> ring;
+    private final int mask;
+    private final int capacity;
+
+    private final OverflowPolicy overflowPolicy;
+    private final SignalQueueStatistics statistics;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private volatile Thread waiter;
+
+    // Reorder buffer (consumer only), a binary min-heap by serial bounded by the capacity
+    private final Object[] pending;
+    private final long[] serials;
+    private final long[] arrivals;
+    private int count;
+
+    private volatile long transferDelay = DEFAULT_TRANSFER_DELAY;
+
+    private boolean released;
+    private long lastSerial;
+
+    public RingSignalSequencer(final int capacity) {
+        this(capacity, OverflowPolicy.BLOCK, new SignalQueueStatistics(null));
+    }
+
+    public RingSignalSequencer(final int capacity, final OverflowPolicy overflowPolicy, final SignalQueueStatistics statistics) {
+        if (capacity < 1 || capacity > 1 << 30 || !isSupported(overflowPolicy)) {
+            throw new IllegalArgumentException();
+        }
+
+        int size = 1;
+
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        this.capacity = size;
+        this.mask = this.capacity - 1;
+        this.ring = new AtomicReferenceArray<>(this.capacity);
+        this.pending = new Object[this.capacity];
+        this.serials = new long[this.capacity];
+        this.arrivals = new long[this.capacity];
+        this.overflowPolicy = overflowPolicy;
+        this.statistics = Objects.requireNonNull(statistics);
+    }
+
+    static boolean isSupported(final OverflowPolicy overflowPolicy) {
+        return overflowPolicy == OverflowPolicy.BLOCK || overflowPolicy == OverflowPolicy.DROP_NEWEST;
+    }
+
+    @Override
+    public void put(final T item) throws InterruptedException {
+        Objects.requireNonNull(item);
+
+        long slot;
+        int idle = 0;
+
+        while (true) {
+            slot = tail.get();
+
+            if (slot - head < capacity) {
+                if (tail.compareAndSet(slot, slot + 1)) {
+                    break;
+                }
+            }
+            else if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                statistics.drop();
+
+                return;
+            }
+            else {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                // Ring is full, back off until the consumer catches up
+                if (idle++ < SPIN_LIMIT) {
+                    Thread.yield();
+                }
+                else {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+            }
+        }
+
+        ring.set((int) slot & mask, item);
+
+        Thread consumer = waiter;
+
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    @Override
+    public T poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        boolean infinite = timeout < 0;
+        long deadline = infinite ? 0L : System.nanoTime() + unit.toNanos(timeout);
+
+        while (true) {
+            transfer();
+
+            long now = System.nanoTime();
+            long wait = infinite ? Long.MAX_VALUE : deadline - now;
+
+            if (count > 0) {
+                long releaseTime = arrivals[0] + TimeUnit.MILLISECONDS.toNanos(transferDelay);
+
+                // A full reorder buffer cannot take the missing signal, so the window closes early
+                if (isReleasable(serials[0]) || count == capacity || now - releaseTime >= 0) {
+                    return release();
+                }
+
+                // Gap in serials, wait for the missing signal until the window closes
+                wait = Math.min(wait, releaseTime - now);
+            }
+
+            if (wait <= 0) {
+                return null;
+            }
+
+            await(wait);
+        }
+    }
+
+    @Override
+    public int drainTo(final Collection<? super T> drain) {
+        int drained = 0;
+
+        do {
+            transfer();
+
+            while (count > 0) {
+                drain.add(release());
+                drained++;
+            }
+        }
+        while (isPublished());
+
+        return drained;
+    }
+
+    @Override
+    public void clear() {
+        do {
+            transfer();
+
+            while (count > 0) {
+                release();
+            }
+        }
+        while (isPublished());
+    }
+
+    @Override
+    public int size() {
+        return (int) (tail.get() - head) + count;
+    }
+
+    @Override
+    public long getReleaseDelay() {
+        transfer();
+
+        if (count == 0) {
+            return -1L;
+        }
+        else if (isReleasable(serials[0]) || count == capacity) {
+            return 0L;
+        }
+
+        long releaseTime = arrivals[0] + TimeUnit.MILLISECONDS.toNanos(transferDelay);
+
+        return Math.max(0L, releaseTime - System.nanoTime());
+    }
+
+    @Override
+    public long getTransferDelay() {
+        return transferDelay;
+    }
+
+    @Override
+    public void setTransferDelay(final long transferDelay) {
+        if (transferDelay < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.transferDelay = transferDelay;
+    }
+
+    @Override
+    public SignalQueueStatistics getStatistics() {
+        return statistics;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private boolean isPublished() {
+        return ring.get((int) head & mask) != null;
+    }
+
+    private void await(final long nanos) throws InterruptedException {
+        waiter = Thread.currentThread();
+
+        try {
+            // Re-check after announcing the waiter, a producer may have published meanwhile
+            if (!isPublished()) {
+                if (nanos == Long.MAX_VALUE) {
+                    LockSupport.park(this);
+                }
+                else {
+                    LockSupport.parkNanos(this, nanos);
+                }
+            }
+        }
+        finally {
+            waiter = null;
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    private void transfer() {
+        long position = head;
+        long now = System.nanoTime();
+        T signal;
+
+        // A full reorder buffer leaves signals in the ring, so the overflow policy applies to producers
+        while (count < capacity && (signal = ring.get((int) position & mask)) != null) {
+            ring.lazySet((int) position & mask, null);
+            position++;
+
+            insert(signal, now);
+        }
+
+        // Frees the slots for producers
+        head = position;
+    }
+
+    private void insert(final T signal, final long arrival) {
+        long serial = signal.getSerial();
+        int index = count++;
+
+        // Sift up, signals arriving in order stay at the bottom
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+
+            if (serials[parent] <= serial) {
+                break;
+            }
+
+            move(parent, index);
+            index = parent;
+        }
+
+        set(index, signal, serial, arrival);
+    }
+
+    private T release() {
+        @SuppressWarnings("unchecked")
+        T signal = (T) pending[0];
+        long serial = serials[0];
+
+        int size = --count;
+
+        if (size > 0) {
+            Object moved = pending[size];
+            long movedSerial = serials[size];
+            long movedArrival = arrivals[size];
+            int index = 0;
+
+            // Sift down the last element from the root
+            while (true) {
+                int child = (index << 1) + 1;
+
+                if (child >= size) {
+                    break;
+                }
+
+                if (child + 1 < size && serials[child + 1] < serials[child]) {
+                    child++;
+                }
+
+                if (movedSerial <= serials[child]) {
+                    break;
+                }
+
+                move(child, index);
+                index = child;
+            }
+
+            set(index, moved, movedSerial, movedArrival);
+        }
+
+        pending[size] = null;
+
+        if (!released || serial > lastSerial) {
+            lastSerial = serial;
+            released = true;
+        }
+
+        return signal;
+    }
+
+    private void move(final int from, final int to) {
+        pending[to] = pending[from];
+        serials[to] = serials[from];
+        arrivals[to] = arrivals[from];
+    }
+
+    private void set(final int index, final Object signal, final long serial, final long arrival) {
+        pending[index] = signal;
+        serials[index] = serial;
+        arrivals[index] = arrival;
+    }
+
+    private boolean isReleasable(final long serial) {
+        // Serials at or below the last released one cannot be reordered anymore
+        return released && serial <= lastSerial + 1;
+    }
+
+}
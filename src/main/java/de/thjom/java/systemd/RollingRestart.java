@@ -0,0 +1,530 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.freedesktop.dbus.CallbackHandler;
+import org.freedesktop.dbus.Path;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.thjom.java.systemd.RollingRestartEvent.Type;
+import de.thjom.java.systemd.Unit.ActiveState;
+import de.thjom.java.systemd.Unit.Mode;
+import de.thjom.java.systemd.Unit.StateTuple;
+import de.thjom.java.systemd.Unit.SubState;
+import de.thjom.java.systemd.interfaces.PropertyInterface;
+
+/**
+ * Restarts units batch by batch. A unit counts as unavailable from its
+ * restart until it is healthy, i.e. until its restart job is done and its
+ * state (polled once, then taken from <code>PropertiesChanged</code>
+ * signals) satisfies the health check within the health timeout. The next
+ * batch is started when all units of the current batch are healthy or
+ * failed.<p>
+ *
+ * If more units fail than the failure budget allows, the restart is
+ * aborted or paused after the current batch. A paused restart continues
+ * with the next batch on {@link #execute()} (with a fresh budget).
+ *
+ * @see Manager#rollingRestart(Collection)
+ */
+public final class RollingRestart {
+
+    public static final long DEFAULT_HEALTH_TIMEOUT = 60000L;
+
+    public enum State {
+
+        READY,
+        RUNNING,
+        PAUSED,
+        ABORTED,
+        COMPLETED
+
+    }
+
+    public enum FailureAction {
+
+        ABORT,
+        PAUSE
+
+    }
+
+    private final Logger log = LoggerFactory.getLogger(RollingRestart.class);
+
+    private final Manager manager;
+    private final List<String> unitNames;
+
+    private final List<RollingRestartListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Gate> gates = new ConcurrentHashMap<>();
+    private final List<BulkResult.Outcome> outcomes = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicInteger healthy = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private int batchSize = 1;
+    private int maxUnavailable;
+    private long healthTimeout = DEFAULT_HEALTH_TIMEOUT;
+    private int failureBudget;
+    private FailureAction failureAction = FailureAction.ABORT;
+    private Predicate<StateTuple> healthCheck = RollingRestart::isRunning;
+    private Mode mode = Mode.REPLACE;
+
+    private volatile JobTracker tracker;
+    private volatile State state = State.READY;
+    private volatile boolean pauseRequested;
+    private int nextBatch;
+
+    RollingRestart(final Manager manager, final Collection<String> unitNames) {
+        this.manager = manager;
+        this.unitNames = Collections.unmodifiableList(new ArrayList<>(unitNames));
+    }
+
+    /**
+     * The default health check.<p>
+     *
+     * @param state The unit state.
+     * @return <code>true</code> if the unit is <code>active/running</code>.
+     */
+    public static boolean isRunning(final StateTuple state) {
+        return ActiveState.parse(state.getActiveState()) == ActiveState.ACTIVE && SubState.parse(state.getSubState()) == SubState.RUNNING;
+    }
+
+    /**
+     * Sets the number of units per batch.<p>
+     *
+     * @param batchSize The batch size.
+     * @return This restart.
+     */
+    public RollingRestart batchSize(final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must not be smaller than 1");
+        }
+
+        this.batchSize = batchSize;
+
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of units of a batch being unavailable at once
+     * (defaults to the batch size).<p>
+     *
+     * @param maxUnavailable The maximum number of unavailable units.
+     * @return This restart.
+     */
+    public RollingRestart maxUnavailable(final int maxUnavailable) {
+        if (maxUnavailable < 1) {
+            throw new IllegalArgumentException("Maximum unavailable units must not be smaller than 1");
+        }
+
+        this.maxUnavailable = maxUnavailable;
+
+        return this;
+    }
+
+    /**
+     * Sets the maximum time from the restart of a unit until it is healthy.<p>
+     *
+     * @param healthTimeout The timeout in milliseconds.
+     * @return This restart.
+     */
+    public RollingRestart healthTimeout(final long healthTimeout) {
+        if (healthTimeout < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.healthTimeout = healthTimeout;
+
+        return this;
+    }
+
+    public RollingRestart healthCheck(final Predicate<StateTuple> healthCheck) {
+        this.healthCheck = healthCheck;
+
+        return this;
+    }
+
+    /**
+     * Sets the number of failed units tolerated per run of {@link #execute()}.<p>
+     *
+     * @param failureBudget The number of tolerated failures.
+     * @param failureAction What to do once the budget has been exceeded.
+     * @return This restart.
+     */
+    public RollingRestart failureBudget(final int failureBudget, final FailureAction failureAction) {
+        if (failureBudget < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.failureBudget = failureBudget;
+        this.failureAction = failureAction;
+
+        return this;
+    }
+
+    public RollingRestart mode(final Mode mode) {
+        this.mode = mode;
+
+        return this;
+    }
+
+    public RollingRestart addListener(final RollingRestartListener listener) {
+        listeners.add(listener);
+
+        return this;
+    }
+
+    public void removeListener(final RollingRestartListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Requests to pause after the current batch (may be called from any thread).
+     */
+    public void pause() {
+        pauseRequested = true;
+    }
+
+    /**
+     * Restarts the remaining batches. Blocks until all units have been
+     * restarted or the restart has been paused or aborted.<p>
+     *
+     * @return The state ({@link State#COMPLETED}, {@link State#PAUSED} or {@link State#ABORTED}).
+     * @throws DBusException If the state changes cannot be observed or if interrupted.
+     */
+    public synchronized State execute() throws DBusException {
+        if (state != State.READY && state != State.PAUSED) {
+            throw new IllegalStateException(String.format("Rolling restart is %s", state));
+        }
+
+        tracker = manager.getJobTracker();
+
+        state = State.RUNNING;
+        pauseRequested = false;
+
+        int failureLimit = failed.get() + failureBudget;
+        int batches = (unitNames.size() + batchSize - 1) / batchSize;
+
+        UnitStateListener listener = new UnitStateListener() {
+
+            @Override
+            public void stateChanged(final Unit unit, final Map<String, Variant<?>> changedProperties) {
+                // Typed events only
+            }
+
+            @Override
+            public void stateChanged(final UnitStateEvent event) {
+                Gate gate = gates.get(event.getUnit().name);
+
+                if (gate != null) {
+                    offer(gate, event.getState());
+                }
+            }
+
+        };
+
+        manager.addListener(listener);
+
+        try {
+            while (nextBatch < batches) {
+                int batch = nextBatch++;
+                List<String> names = unitNames.subList(batch * batchSize, Math.min(unitNames.size(), (batch + 1) * batchSize));
+
+                fire(Type.BATCH_STARTED, batch, null, null);
+                restartBatch(batch, names);
+                fire(Type.BATCH_COMPLETED, batch, null, null);
+
+                if (failed.get() > failureLimit) {
+                    log.warn(String.format("Rolling restart exceeded failure budget of %d after batch %d of %d", failureBudget, batch + 1, batches));
+
+                    return halt(failureAction == FailureAction.ABORT ? State.ABORTED : State.PAUSED, batch);
+                }
+
+                if (pauseRequested && nextBatch < batches) {
+                    return halt(State.PAUSED, batch);
+                }
+            }
+
+            return halt(State.COMPLETED, batches - 1);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new DBusException("Rolling restart interrupted");
+        }
+        finally {
+            if (state == State.RUNNING) {
+                state = State.ABORTED;
+            }
+
+            manager.removeListener(listener);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public List<String> getUnitNames() {
+        return unitNames;
+    }
+
+    /**
+     * @return The outcomes of all units restarted so far in order of completion.
+     */
+    public List<BulkResult.Outcome> getOutcomes() {
+        synchronized (outcomes) {
+            return new ArrayList<>(outcomes);
+        }
+    }
+
+    public int getHealthyCount() {
+        return healthy.get();
+    }
+
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    private State halt(final State target, final int batch) {
+        state = target;
+
+        switch (target) {
+            case PAUSED:
+                fire(Type.PAUSED, batch, null, null);
+                break;
+            case ABORTED:
+                fire(Type.ABORTED, batch, null, null);
+                break;
+            default:
+                fire(Type.COMPLETED, batch, null, null);
+                break;
+        }
+
+        return target;
+    }
+
+    private void restartBatch(final int batch, final List<String> names) throws InterruptedException {
+        Semaphore window = new Semaphore(maxUnavailable > 0 ? maxUnavailable : batchSize);
+        CountDownLatch pending = new CountDownLatch(names.size());
+
+        for (String unitName : names) {
+            window.acquire();
+
+            Gate gate = new Gate(unitName, batch, window, pending);
+            gates.put(unitName, gate);
+
+            // Covers the restart job and the health check
+            gate.timeout = manager.getScheduler().schedule(() -> finish(gate, new TimeoutException("Unit not healthy within timeout")), healthTimeout, TimeUnit.MILLISECONDS);
+
+            restart(gate);
+        }
+
+        pending.await();
+    }
+
+    private void restart(final Gate gate) {
+        CallbackHandler<Path> callback = new CallbackHandler<Path>() {
+
+            @Override
+            public void handle(final Path job) {
+                gate.job = job;
+                gate.callLatency = toMillis(System.nanoTime() - gate.callTime);
+
+                try {
+                    tracker.track(job).whenComplete((r, e) -> restarted(gate, r, e));
+                }
+                catch (final IllegalStateException e) {
+                    // Tracker stopped meanwhile
+                    finish(gate, e);
+                }
+            }
+
+            @Override
+            public void handleError(final DBusExecutionException e) {
+                gate.callLatency = toMillis(System.nanoTime() - gate.callTime);
+
+                finish(gate, e);
+            }
+
+        };
+
+        try {
+            manager.dbus.callWithCallback(manager.getInterface(), BulkOperation.Verb.RESTART.getMethod(), callback, gate.unitName, mode.getValue());
+        }
+        catch (final DBusExecutionException e) {
+            callback.handleError(e);
+        }
+    }
+
+    private void restarted(final Gate gate, final JobResult result, final Throwable error) {
+        gate.result = result;
+
+        if (error != null || !result.isSuccess()) {
+            finish(gate, error);
+
+            return;
+        }
+
+        gate.restarted = true;
+
+        fire(Type.UNIT_RESTARTED, gate.batch, gate.unitName, null);
+
+        // Already healthy units do not necessarily emit further signals
+        poll(gate);
+    }
+
+    private void poll(final Gate gate) {
+        CallbackHandler<Map<String, Variant<?>>> callback = new CallbackHandler<Map<String, Variant<?>>>() {
+
+            @Override
+            public void handle(final Map<String, Variant<?>> properties) {
+                offer(gate, StateTuple.of(properties));
+            }
+
+            @Override
+            public void handleError(final DBusExecutionException e) {
+                log.debug(String.format("Unable to poll state of unit '%s' (waiting for signals): %s", gate.unitName, e.getMessage()));
+            }
+
+        };
+
+        // Called by the job tracker on a signal thread, which must not wait for replies
+        try {
+            String objectPath = Unit.OBJECT_PATH + Systemd.escapePath(gate.unitName);
+            PropertyInterface iface = manager.dbus.getRemoteObject(Systemd.SERVICE_NAME, objectPath, PropertyInterface.class);
+
+            manager.dbus.callWithCallback(iface, PropertyFetcher.METHOD_GET_ALL, callback, Unit.SERVICE_NAME);
+        }
+        catch (final DBusException e) {
+            callback.handleError(new DBusExecutionException(e.getMessage()));
+        }
+        catch (final DBusExecutionException e) {
+            callback.handleError(e);
+        }
+    }
+
+    private void offer(final Gate gate, final StateTuple unitState) {
+        // States before the restart job is done may be those of the old instance
+        if (!gate.restarted) {
+            return;
+        }
+
+        try {
+            if (healthCheck.test(unitState)) {
+                finish(gate, null);
+            }
+        }
+        catch (final RuntimeException e) {
+            finish(gate, e);
+        }
+    }
+
+    private void finish(final Gate gate, final Throwable error) {
+        if (!gate.done.compareAndSet(false, true)) {
+            return;
+        }
+
+        ScheduledFuture<?> timeout = gate.timeout;
+
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+
+        gates.remove(gate.unitName, gate);
+
+        BulkResult.Outcome outcome = new BulkResult.Outcome(gate.unitName, gate.job, gate.result, error, gate.callLatency, toMillis(System.nanoTime() - gate.callTime));
+        outcomes.add(outcome);
+
+        if (outcome.isSuccess()) {
+            healthy.incrementAndGet();
+
+            fire(Type.UNIT_HEALTHY, gate.batch, gate.unitName, null);
+        }
+        else {
+            failed.incrementAndGet();
+
+            log.warn(String.format("Rolling restart of unit '%s' failed: %s", gate.unitName, outcome));
+
+            fire(Type.UNIT_FAILED, gate.batch, gate.unitName, error);
+        }
+
+        gate.window.release();
+        gate.pending.countDown();
+    }
+
+    private void fire(final Type type, final int batch, final String unitName, final Throwable error) {
+        RollingRestartEvent event = new RollingRestartEvent(type, batch, unitName, error, healthy.get(), failed.get(), unitNames.size());
+
+        for (RollingRestartListener listener : listeners) {
+            try {
+                listener.progress(event);
+            }
+            catch (final RuntimeException e) {
+                log.warn("Rolling restart listener failed", e);
+            }
+        }
+    }
+
+    private static long toMillis(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RollingRestart [units=%d, state=%s, healthy=%d, failed=%d]", unitNames.size(), state, healthy.get(), failed.get());
+    }
+
+    private static final class Gate {
+
+        private final String unitName;
+        private final int batch;
+        private final Semaphore window;
+        private final CountDownLatch pending;
+        private final long callTime = System.nanoTime();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private volatile Path job;
+        private volatile JobResult result;
+        private volatile long callLatency = -1L;
+        private volatile boolean restarted;
+        private volatile ScheduledFuture<?> timeout;
+
+        Gate(final String unitName, final int batch, final Semaphore window, final CountDownLatch pending) {
+            this.unitName = unitName;
+            this.batch = batch;
+            this.window = window;
+            this.pending = pending;
+        }
+
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Optional;
+
+/**
+ * Progress of a {@link RollingRestart}. Unit related events carry the unit
+ * name (and the error of failed units), all events carry the counters at
+ * the time of the event.
+ */
+public final class RollingRestartEvent {
+
+    public enum Type {
+
+        BATCH_STARTED,
+        UNIT_RESTARTED,
+        UNIT_HEALTHY,
+        UNIT_FAILED,
+        BATCH_COMPLETED,
+        PAUSED,
+        ABORTED,
+        COMPLETED
+
+    }
+
+    private final Type type;
+    private final int batch;
+    private final String unitName;
+    private final Throwable error;
+    private final int healthy;
+    private final int failed;
+    private final int total;
+
+    RollingRestartEvent(final Type type, final int batch, final String unitName, final Throwable error, final int healthy, final int failed, final int total) {
+        this.type = type;
+        this.batch = batch;
+        this.unitName = unitName;
+        this.error = error;
+        this.healthy = healthy;
+        this.failed = failed;
+        this.total = total;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The index of the current batch (starting at 0).
+     */
+    public int getBatch() {
+        return batch;
+    }
+
+    public Optional<String> getUnitName() {
+        return Optional.ofNullable(unitName);
+    }
+
+    public Optional<Throwable> getError() {
+        return Optional.ofNullable(error);
+    }
+
+    /**
+     * @return The number of units restarted and healthy so far.
+     */
+    public int getHealthy() {
+        return healthy;
+    }
+
+    /**
+     * @return The number of units failed so far.
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RollingRestartEvent [type=%s, batch=%d, unit=%s, healthy=%d, failed=%d, total=%d]", type, batch, unitName, healthy, failed, total);
+    }
+
+}
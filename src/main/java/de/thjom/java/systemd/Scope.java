@@ -67,7 +67,7 @@ public class Scope extends Unit implements CpuAccounting, IoAccounting, IpAccoun
     private Scope(final Manager manager, final ScopeInterface iface, final String name) throws DBusException {
         super(manager, iface, name);
 
-        this.properties = Properties.create(dbus, iface.getObjectPath(), SERVICE_NAME);
+        this.properties = Properties.create(manager, iface.getObjectPath(), SERVICE_NAME);
     }
 
     static Scope create(final Manager manager, String name) throws DBusException {
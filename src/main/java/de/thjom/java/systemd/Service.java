@@ -147,7 +147,7 @@ public class Service extends Unit implements ExtendedCpuAccounting, DynamicUserA
     private Service(final Manager manager, final ServiceInterface iface, final String name) throws DBusException {
         super(manager, iface, name);
 
-        this.properties = Properties.create(dbus, iface.getObjectPath(), SERVICE_NAME);
+        this.properties = Properties.create(manager, iface.getObjectPath(), SERVICE_NAME);
     }
 
     static Service create(final Manager manager, String name) throws DBusException {
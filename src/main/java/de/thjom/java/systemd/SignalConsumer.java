@@ -14,6 +14,7 @@ package de.thjom.java.systemd;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import org.freedesktop.dbus.DBusSigHandler;
 import org.freedesktop.dbus.DBusSignal;
@@ -22,19 +23,25 @@ import org.slf4j.LoggerFactory;
 
 final class SignalConsumer<T extends DBusSignal> implements Runnable {
 
+    static final int DEFAULT_QUEUE_LENGTH = 100;
+
     protected final Logger log = LoggerFactory.getLogger(getClass());
 
-    private final SignalSequencer<T> sequencer;
+    private final SignalQueue<T> sequencer;
     private final DBusSigHandler<T> handler;
 
     private volatile boolean running = true;
 
     public SignalConsumer(final DBusSigHandler<T> handler) {
-        this(100, handler);
+        this(DEFAULT_QUEUE_LENGTH, handler);
     }
 
     public SignalConsumer(final int queueLength, final DBusSigHandler<T> handler) {
-        this.sequencer = new SignalSequencer<>(queueLength);
+        this(new SignalSequencer<>(queueLength), handler);
+    }
+
+    SignalConsumer(final SignalQueue<T> sequencer, final DBusSigHandler<T> handler) {
+        this.sequencer = Objects.requireNonNull(sequencer);
         this.handler = Objects.requireNonNull(handler);
     }
 
@@ -51,6 +58,14 @@ final class SignalConsumer<T extends DBusSignal> implements Runnable {
             }
         }
 
+        flush();
+    }
+
+    /**
+     * Handles all queued signals in sequence order, regardless of gaps in
+     * their serials (used when the consumer is stopped).
+     */
+    void flush() {
         log.debug("Draining sequencer queue");
 
         List<T> signals = new ArrayList<>(sequencer.size());
@@ -63,7 +78,38 @@ final class SignalConsumer<T extends DBusSignal> implements Runnable {
         sequencer.clear();
     }
 
-    public SignalSequencer<T> getSequencer() {
+    /**
+     * Handles the signals which are available without blocking (used if the
+     * consumer runs as task of a {@link SignalDispatcher}). Stops as soon as
+     * the next signal is held back for a gap in serials.<p>
+     *
+     * @param maxSignals The maximum number of signals to handle.
+     * @return The number of handled signals.
+     */
+    int drain(final int maxSignals) {
+        int handled = 0;
+
+        try {
+            T signal;
+
+            while (handled < maxSignals && (signal = sequencer.poll(0L, TimeUnit.MILLISECONDS)) != null) {
+                handler.handle(signal);
+
+                handled++;
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return handled;
+    }
+
+    public DBusSigHandler<T> getHandler() {
+        return handler;
+    }
+
+    public SignalQueue<T> getSequencer() {
         return sequencer;
     }
 
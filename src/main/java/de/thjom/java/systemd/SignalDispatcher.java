@@ -0,0 +1,175 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs signal consumers as tasks on a shared executor instead of dedicating
+ * a thread to each consumer. Signals of a single consumer are still handled
+ * one after the other in sequence order (a consumer is never drained by two
+ * tasks at once).<p>
+ *
+ * Any executor may be used, e.g. one based on virtual threads on Java 21+
+ * (<code>Executors.newVirtualThreadPerTaskExecutor()</code>). Tasks never
+ * wait for the reordering window of a consumer, a consumer holding back
+ * signals is resubmitted by a scheduler once the window has passed.
+ *
+ * @see Manager#setSignalDispatcher(SignalDispatcher)
+ */
+public final class SignalDispatcher {
+
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final Executor executor;
+    private final boolean owned;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private ScheduledExecutorService scheduler;
+    private boolean ownedScheduler;
+
+    public SignalDispatcher(final Executor executor) {
+        this(executor, false);
+    }
+
+    private SignalDispatcher(final Executor executor, final boolean owned) {
+        this.executor = Objects.requireNonNull(executor);
+        this.owned = owned;
+    }
+
+    /**
+     * Creates a dispatcher on its own bounded pool of daemon threads.<p>
+     *
+     * @param threads The maximum number of threads handling signals concurrently.
+     * @return A new dispatcher (to be shut down via {@link #shutdown()}).
+     */
+    public static SignalDispatcher create(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new DispatcherThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+
+        return new SignalDispatcher(executor, true);
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the maximum number of signals handled by one task before the
+     * consumer yields to other consumers sharing the executor.<p>
+     *
+     * @param batchSize The number of signals per task.
+     */
+    public void setBatchSize(final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Shuts down the executor if it has been created by this dispatcher.
+     */
+    public void shutdown() {
+        if (owned) {
+            ((ExecutorService) executor).shutdown();
+        }
+
+        synchronized (this) {
+            if (ownedScheduler) {
+                scheduler.shutdown();
+
+                scheduler = null;
+                ownedScheduler = false;
+            }
+        }
+    }
+
+    void execute(final Runnable task) {
+        executor.execute(task);
+    }
+
+    void schedule(final Runnable task, final long delay) {
+        getScheduler().schedule(() -> execute(task), delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the scheduler resubmitting consumers which hold back signals
+     * (e.g. the scheduler of the manager using this dispatcher).<p>
+     *
+     * @param scheduler The scheduler to use.
+     */
+    synchronized void setScheduler(final ScheduledExecutorService scheduler) {
+        if (ownedScheduler) {
+            this.scheduler.shutdown();
+
+            ownedScheduler = false;
+        }
+
+        this.scheduler = Objects.requireNonNull(scheduler);
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r);
+                thread.setName(SignalDispatcher.class.getSimpleName() + "-scheduler");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+
+            executor.setKeepAliveTime(60L, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+
+            scheduler = executor;
+            ownedScheduler = true;
+        }
+
+        return scheduler;
+    }
+
+    private static final class DispatcherThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(runnable);
+            thread.setName(SignalDispatcher.class.getSimpleName() + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+
+    }
+
+}
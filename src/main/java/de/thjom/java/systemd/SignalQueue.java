@@ -0,0 +1,59 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.freedesktop.dbus.DBusSignal;
+
+/**
+ * Queue handing signals over from the D-Bus signal thread to a consumer in
+ * serial number order. Any thread may put signals, only a single consumer
+ * may take them.
+ */
+interface SignalQueue<T extends DBusSignal> {
+
+    long TIMEOUT_INFINITE = -1L;
+    // Covers reordering by the worker threads of the connection, longer windows delay most signals
+    long DEFAULT_TRANSFER_DELAY = 2L;
+
+    void put(final T item) throws InterruptedException;
+
+    default T take() throws InterruptedException {
+        return poll(TIMEOUT_INFINITE, null);
+    }
+
+    T poll(final long timeout, final TimeUnit unit) throws InterruptedException;
+
+    int drainTo(final Collection<? super T> drain);
+
+    void clear();
+
+    int size();
+
+    SignalQueueStatistics getStatistics();
+
+    /**
+     * Returns the time until the next signal is released (to be called by
+     * the consumer only).<p>
+     *
+     * @return The delay in nanoseconds, <code>0</code> if a signal can be
+     * taken right away or <code>-1</code> if the queue is empty.
+     */
+    long getReleaseDelay();
+
+    long getTransferDelay();
+
+    void setTransferDelay(final long transferDelay);
+
+}
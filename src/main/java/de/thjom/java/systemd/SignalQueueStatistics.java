@@ -0,0 +1,65 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of signals discarded by signal queues due to their
+ * {@link OverflowPolicy}.
+ */
+public final class SignalQueueStatistics {
+
+    private final SignalQueueStatistics parent;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    SignalQueueStatistics(final SignalQueueStatistics parent) {
+        this.parent = parent;
+    }
+
+    void drop() {
+        dropped.increment();
+
+        if (parent != null) {
+            parent.drop();
+        }
+    }
+
+    void coalesce() {
+        coalesced.increment();
+
+        if (parent != null) {
+            parent.coalesce();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public void reset() {
+        dropped.reset();
+        coalesced.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SignalQueueStatistics [dropped=%d, coalesced=%d]", getDropped(), getCoalesced());
+    }
+
+}
@@ -14,146 +14,259 @@ package de.thjom.java.systemd;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
+import org.freedesktop.DBus.Properties.PropertiesChanged;
 import org.freedesktop.dbus.DBusSignal;
 
-final class SignalSequencer<T extends DBusSignal> {
-
-    public static final long TIMEOUT_INFINITE = -1L;
+/**
+ * Reorders signals by serial number. Signals are released as soon as their
+ * serial directly follows the serial of the previously released signal. If
+ * there is a gap (i.e. an earlier signal may still be outstanding), the
+ * signal is held back until the gap is closed or until the reordering window
+ * (transfer delay) has passed since its arrival.<p>
+ *
+ * Serials are counted per sender and include method replies, so a consumer
+ * of only some signals of a sender rarely sees consecutive serials and
+ * waits for the window on most signals. The window should be kept small
+ * (or disabled) for such consumers, see {@link Manager#setSignalReorderWindow(long)}.
+ */
+final class SignalSequencer<T extends DBusSignal> implements SignalQueue<T> {
 
     private final BlockingQueue<T> buffer;
-    private final Queue<T> sequencer;
+    private final Queue<Entry<T>> sequencer;
 
-    private long transferDelay = 50L;
+    private final OverflowPolicy overflowPolicy;
+    private final SignalQueueStatistics statistics;
+
+    private long transferDelay = DEFAULT_TRANSFER_DELAY;
     private int transferChunkSize;
-    private int dequeueChunkSize;
 
-    private int dequeued = 0;
+    private boolean released;
+    private long lastSerial;
 
     public SignalSequencer(final int capacity) {
         this(capacity, 100);
     }
 
     public SignalSequencer(final int capacity, final int chunkSize) {
+        this(capacity, chunkSize, OverflowPolicy.BLOCK, new SignalQueueStatistics(null));
+    }
+
+    public SignalSequencer(final int capacity, final OverflowPolicy overflowPolicy, final SignalQueueStatistics statistics) {
+        this(capacity, 100, overflowPolicy, statistics);
+    }
+
+    public SignalSequencer(final int capacity, final int chunkSize, final OverflowPolicy overflowPolicy, final SignalQueueStatistics statistics) {
         this.buffer = new ArrayBlockingQueue<>(capacity);
-        this.sequencer = new PriorityQueue<>(capacity, new SignalComparator<>());
+        this.sequencer = new PriorityQueue<>(capacity, new EntryComparator<>());
 
         if (chunkSize < 1) {
             throw new IllegalArgumentException();
         }
 
         this.transferChunkSize = chunkSize;
-        this.dequeueChunkSize = chunkSize > 1 ? chunkSize / 2 : 1;
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+        this.statistics = Objects.requireNonNull(statistics);
     }
 
+    @Override
     public void put(final T item) throws InterruptedException {
-        buffer.put(item);
-    }
+        switch (overflowPolicy) {
+            case DROP_NEWEST:
+                if (!buffer.offer(item)) {
+                    statistics.drop();
+                }
+
+                break;
+            case DROP_OLDEST:
+                offer(item);
+
+                break;
+            case COALESCE:
+                if (!buffer.offer(item)) {
+                    if (item instanceof PropertiesChanged && replace(item)) {
+                        statistics.coalesce();
+                    }
+                    else {
+                        offer(item);
+                    }
+                }
+
+                break;
+            default:
+                buffer.put(item);
 
-    public T take() throws InterruptedException {
-        return poll(TIMEOUT_INFINITE, null);
+                break;
+        }
     }
 
+    @Override
     public T poll(final long timeout, final TimeUnit unit) throws InterruptedException {
-        T head = null;
+        boolean infinite = timeout < 0;
+        long deadline = infinite ? 0L : System.nanoTime() + unit.toNanos(timeout);
 
-        if (dequeued < dequeueChunkSize) {
-            head = sequencer.poll();
-        }
-        else {
-            dequeued = 0;
-        }
+        while (true) {
+            transfer();
 
-        if (head == null) {
-            T pending = transfer(timeout, unit, transferChunkSize);
+            Entry<T> head = sequencer.peek();
+            long now = System.nanoTime();
+            long wait = infinite ? Long.MAX_VALUE : deadline - now;
 
-            if (pending != null) {
-                head = sequencer.poll();
-                sequencer.offer(pending);
+            if (head != null) {
+                long releaseTime = head.arrival + TimeUnit.MILLISECONDS.toNanos(transferDelay);
+
+                if (isReleasable(head.signal) || now - releaseTime >= 0) {
+                    return release();
+                }
+
+                // Gap in serials, wait for the missing signal until the window closes
+                wait = Math.min(wait, releaseTime - now);
             }
-            else {
-                head = sequencer.poll();
+
+            if (wait <= 0) {
+                return null;
             }
-        }
-        else {
-            dequeued++;
-        }
 
-        return head;
+            T next = wait == Long.MAX_VALUE ? buffer.take() : buffer.poll(wait, TimeUnit.NANOSECONDS);
+
+            if (next != null) {
+                sequencer.offer(new Entry<>(next, System.nanoTime()));
+            }
+        }
     }
 
+    @Override
     public int drainTo(final Collection<? super T> drain) {
         List<T> buffered = new ArrayList<>(buffer.size());
         int transferred = buffer.drainTo(buffered);
+        long now = System.nanoTime();
 
-        sequencer.addAll(buffered);
-
-        T head;
-
-        do {
-            head = sequencer.poll();
+        for (T signal : buffered) {
+            sequencer.offer(new Entry<>(signal, now));
+        }
 
-            if (head != null) {
-                drain.add(head);
-            }
+        while (!sequencer.isEmpty()) {
+            drain.add(release());
         }
-        while (head != null);
 
         return transferred;
     }
 
+    @Override
     public void clear() {
         buffer.clear();
         sequencer.clear();
     }
 
+    @Override
     public int size() {
         return buffer.size() + sequencer.size();
     }
 
-    private T transfer(final long timeout, final TimeUnit unit, int chunkSize) throws InterruptedException {
-        boolean delayed = false;
+    @Override
+    public SignalQueueStatistics getStatistics() {
+        return statistics;
+    }
 
-        do {
-            T head;
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
 
-            if (timeout < 0) {
-                head = buffer.take();
-            }
-            else {
-                head = buffer.poll(timeout, unit);
+    private void offer(final T item) {
+        while (!buffer.offer(item)) {
+            if (buffer.poll() != null) {
+                statistics.drop();
             }
+        }
+    }
 
-            if (head != null) {
-                if (!sequencer.offer(head)) {
-                    return head;
-                }
+    private boolean replace(final T item) {
+        Iterator<T> iterator = buffer.iterator();
 
-                if (!delayed) {
-                    Thread.sleep(transferDelay);
+        while (iterator.hasNext()) {
+            T queued = iterator.next();
 
-                    delayed = true;
-                }
-            }
-            else {
-                break;
+            if (queued instanceof PropertiesChanged && isSameSource((PropertiesChanged) queued, (PropertiesChanged) item)) {
+                iterator.remove();
+
+                // The freed slot may have been taken by a concurrent producer meanwhile
+                offer(item);
+
+                return true;
             }
         }
-        while (!buffer.isEmpty() && chunkSize-- > 0);
 
-        return null;
+        return false;
+    }
+
+    private static boolean isSameSource(final PropertiesChanged s1, final PropertiesChanged s2) {
+        return Objects.equals(s1.getPath(), s2.getPath()) && Objects.equals(s1.interfaceName, s2.interfaceName);
+    }
+
+    private boolean isReleasable(final T signal) {
+        // Serials at or below the last released one cannot be reordered anymore
+        return released && signal.getSerial() <= lastSerial + 1;
+    }
+
+    private T release() {
+        T signal = sequencer.poll().signal;
+
+        if (!released || signal.getSerial() > lastSerial) {
+            lastSerial = signal.getSerial();
+            released = true;
+        }
+
+        return signal;
     }
 
+    private void transfer() {
+        long now = System.nanoTime();
+        int chunkSize = transferChunkSize;
+        T signal;
+
+        while (chunkSize-- > 0 && (signal = buffer.poll()) != null) {
+            sequencer.offer(new Entry<>(signal, now));
+        }
+    }
+
+    @Override
+    public long getReleaseDelay() {
+        transfer();
+
+        Entry<T> head = sequencer.peek();
+
+        if (head == null) {
+            return buffer.isEmpty() ? -1L : 0L;
+        }
+        else if (isReleasable(head.signal)) {
+            return 0L;
+        }
+
+        long releaseTime = head.arrival + TimeUnit.MILLISECONDS.toNanos(transferDelay);
+
+        return Math.max(0L, releaseTime - System.nanoTime());
+    }
+
+    @Override
     public long getTransferDelay() {
         return transferDelay;
     }
 
+    /**
+     * Sets the reordering window, i.e. the maximum time a signal is held back
+     * while waiting for a signal with a lower serial number.<p>
+     *
+     * @param transferDelay The reordering window in milliseconds.
+     */
+    @Override
     public void setTransferDelay(final long transferDelay) {
         if (transferDelay < 0L) {
             throw new IllegalArgumentException();
@@ -174,6 +287,29 @@ final class SignalSequencer<T extends DBusSignal> {
         this.transferChunkSize = transferChunkSize;
     }
 
+    private static final class Entry<T extends DBusSignal> {
+
+        private final T signal;
+        private final long arrival;
+
+        Entry(final T signal, final long arrival) {
+            this.signal = signal;
+            this.arrival = arrival;
+        }
+
+    }
+
+    private static final class EntryComparator<T extends DBusSignal> implements Comparator<Entry<T>> {
+
+        private final SignalComparator<T> comparator = new SignalComparator<>();
+
+        @Override
+        public int compare(final Entry<T> e1, final Entry<T> e2) {
+            return comparator.compare(e1.signal, e2.signal);
+        }
+
+    }
+
     static final class SignalComparator<T extends DBusSignal> implements Comparator<T> {
 
         @Override
@@ -59,7 +59,7 @@ public class Slice extends Unit implements CpuAccounting, IoAccounting, IpAccoun
     private Slice(final Manager manager, final SliceInterface iface, final String name) throws DBusException {
         super(manager, iface, name);
 
-        this.properties = Properties.create(dbus, iface.getObjectPath(), SERVICE_NAME);
+        this.properties = Properties.create(manager, iface.getObjectPath(), SERVICE_NAME);
     }
 
     static Slice create(final Manager manager, String name) throws DBusException {
@@ -157,7 +157,7 @@ public class Socket extends Unit implements ExtendedCpuAccounting, DynamicUserAc
     private Socket(final Manager manager, final SocketInterface iface, final String name) throws DBusException {
         super(manager, iface, name);
 
-        this.properties = Properties.create(dbus, iface.getObjectPath(), SERVICE_NAME);
+        this.properties = Properties.create(manager, iface.getObjectPath(), SERVICE_NAME);
     }
 
     static Socket create(final Manager manager, String name) throws DBusException {
@@ -0,0 +1,325 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.thjom.java.systemd.Unit.Mode;
+
+/**
+ * Start order of a set of units in topological waves. A unit is placed in
+ * the wave after the last of its predecessors, which are the units of the
+ * set it is ordered after (<code>After</code>, or <code>Before</code> on the
+ * predecessor). Units of a wave do not depend on each other and are
+ * started in parallel. Units on ordering cycles are placed in a final wave
+ * (systemd breaks such cycles itself).
+ *
+ * @see Manager#planStart(Collection, boolean)
+ */
+public final class StartPlan {
+
+    static final String[] ORDERING_PROPERTIES = { Unit.Property.AFTER, Unit.Property.BEFORE };
+    static final String[] REQUIREMENT_PROPERTIES = { Unit.Property.REQUIRES, Unit.Property.WANTS, Unit.Property.BINDS_TO };
+
+    private static final Logger LOG = LoggerFactory.getLogger(StartPlan.class);
+
+    private final Map<String, Set<String>> predecessors;
+    private final List<List<String>> waves;
+    private final Set<String> unordered;
+
+    private StartPlan(final Map<String, Set<String>> predecessors, final List<List<String>> waves, final Set<String> unordered) {
+        this.predecessors = predecessors;
+        this.waves = waves;
+        this.unordered = unordered;
+    }
+
+    /**
+     * Builds the plan for the given ordering graph.<p>
+     *
+     * @param predecessors The units (keys) and the units of the set they are ordered after.
+     * @return The plan.
+     */
+    static StartPlan create(final Map<String, Set<String>> predecessors) {
+        Map<String, Integer> inDegrees = new HashMap<>();
+        Map<String, List<String>> successors = new HashMap<>();
+
+        for (Map.Entry<String, Set<String>> entry : predecessors.entrySet()) {
+            inDegrees.put(entry.getKey(), entry.getValue().size());
+
+            for (String predecessor : entry.getValue()) {
+                successors.computeIfAbsent(predecessor, k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+
+        List<List<String>> waves = new ArrayList<>();
+        List<String> wave = new ArrayList<>();
+
+        for (String unitName : predecessors.keySet()) {
+            if (inDegrees.get(unitName) == 0) {
+                wave.add(unitName);
+            }
+        }
+
+        int planned = 0;
+
+        // Kahn's algorithm, level by level
+        while (!wave.isEmpty()) {
+            waves.add(Collections.unmodifiableList(wave));
+            planned += wave.size();
+
+            List<String> next = new ArrayList<>();
+
+            for (String unitName : wave) {
+                for (String successor : successors.getOrDefault(unitName, Collections.emptyList())) {
+                    if (inDegrees.merge(successor, -1, Integer::sum) == 0) {
+                        next.add(successor);
+                    }
+                }
+            }
+
+            wave = next;
+        }
+
+        Set<String> unordered = new LinkedHashSet<>();
+
+        if (planned < predecessors.size()) {
+            for (Map.Entry<String, Integer> entry : inDegrees.entrySet()) {
+                if (entry.getValue() > 0) {
+                    unordered.add(entry.getKey());
+                }
+            }
+
+            LOG.warn(String.format("Ordering cycle among units %s", unordered));
+
+            waves.add(Collections.unmodifiableList(new ArrayList<>(unordered)));
+        }
+
+        return new StartPlan(predecessors, Collections.unmodifiableList(waves), Collections.unmodifiableSet(unordered));
+    }
+
+    /**
+     * Retrieves the dependencies of the given units and builds the plan.<p>
+     *
+     * @param manager The manager.
+     * @param unitNames The units to be started.
+     * @param includeRequirements Whether to add the units required, wanted or bound to by the units (transitively).
+     * @return The plan.
+     * @throws DBusException If the dependencies of any unit cannot be retrieved.
+     */
+    static StartPlan create(final Manager manager, final Collection<String> unitNames, final boolean includeRequirements) throws DBusException {
+        Map<String, Map<String, Variant<?>>> rows = new LinkedHashMap<>();
+        Collection<String> missing = new LinkedHashSet<>(unitNames);
+
+        List<String> propertyNames = new ArrayList<>(Arrays.asList(ORDERING_PROPERTIES));
+
+        if (includeRequirements) {
+            propertyNames.addAll(Arrays.asList(REQUIREMENT_PROPERTIES));
+        }
+
+        // Requirements are resolved breadth first, one batch fetch per level
+        while (!missing.isEmpty()) {
+            PropertyTable table = manager.fetch(missing, propertyNames);
+            Set<String> required = new LinkedHashSet<>();
+
+            for (String unitName : missing) {
+                // Missing dependencies would silently reorder the plan
+                for (String propertyName : propertyNames) {
+                    Optional<DBusExecutionException> error = table.getError(unitName, propertyName);
+
+                    if (error.isPresent()) {
+                        throw new DBusException(String.format("Unable to retrieve %s of unit '%s': %s", propertyName, unitName, error.get().getMessage()));
+                    }
+                }
+
+                Map<String, Variant<?>> row = table.getRow(unitName);
+                rows.put(unitName, row);
+
+                if (includeRequirements) {
+                    for (String propertyName : REQUIREMENT_PROPERTIES) {
+                        for (String requiredName : toNames(row.get(propertyName))) {
+                            if (!rows.containsKey(requiredName)) {
+                                required.add(requiredName);
+                            }
+                        }
+                    }
+                }
+            }
+
+            missing = required;
+        }
+
+        Map<String, Set<String>> predecessors = new LinkedHashMap<>();
+
+        for (String unitName : rows.keySet()) {
+            predecessors.put(unitName, new LinkedHashSet<>());
+        }
+
+        for (Map.Entry<String, Map<String, Variant<?>>> entry : rows.entrySet()) {
+            for (String after : toNames(entry.getValue().get(Unit.Property.AFTER))) {
+                if (predecessors.containsKey(after) && !after.equals(entry.getKey())) {
+                    predecessors.get(entry.getKey()).add(after);
+                }
+            }
+
+            for (String before : toNames(entry.getValue().get(Unit.Property.BEFORE))) {
+                if (predecessors.containsKey(before) && !before.equals(entry.getKey())) {
+                    predecessors.get(before).add(entry.getKey());
+                }
+            }
+        }
+
+        return create(predecessors);
+    }
+
+    static List<String> toNames(final Variant<?> variant) {
+        Object value = variant != null ? variant.getValue() : null;
+
+        if (value instanceof Object[]) {
+            List<String> names = new ArrayList<>();
+
+            for (Object name : (Object[]) value) {
+                names.add(String.valueOf(name));
+            }
+
+            return names;
+        }
+        else if (value instanceof Collection) {
+            List<String> names = new ArrayList<>();
+
+            for (Object name : (Collection<?>) value) {
+                names.add(String.valueOf(name));
+            }
+
+            return names;
+        }
+
+        return Collections.emptyList();
+    }
+
+    public List<List<String>> getWaves() {
+        return waves;
+    }
+
+    public Set<String> getUnitNames() {
+        return Collections.unmodifiableSet(predecessors.keySet());
+    }
+
+    /**
+     * @param unitName The unit.
+     * @return The units of the plan the given unit is ordered after.
+     */
+    public Set<String> getPredecessors(final String unitName) {
+        return Collections.unmodifiableSet(predecessors.getOrDefault(unitName, Collections.emptySet()));
+    }
+
+    /**
+     * @return The units on ordering cycles (started in the last wave).
+     */
+    public Set<String> getUnorderedUnits() {
+        return unordered;
+    }
+
+    /**
+     * Starts the units wave by wave, each wave as a bulk operation. Waves
+     * following a wave with failures are not started.<p>
+     *
+     * @param operation The bulk operation (defining concurrency and timeout per wave).
+     * @param mode The job mode.
+     * @return The report.
+     * @throws DBusException If a wave cannot be started.
+     */
+    public StartReport execute(final BulkOperation operation, final Mode mode) throws DBusException {
+        List<BulkResult> results = new ArrayList<>();
+
+        for (List<String> wave : waves) {
+            BulkResult result = operation.start(wave, mode);
+            results.add(result);
+
+            if (!result.isSuccess()) {
+                LOG.warn(String.format("Wave %d of %d failed: %s", results.size(), waves.size(), result.getFailures()));
+
+                break;
+            }
+        }
+
+        return new StartReport(this, results);
+    }
+
+    /**
+     * Returns the longest chain of ordered units weighted by the given
+     * durations (units without duration weigh nothing).<p>
+     *
+     * @param durations The durations by unit.
+     * @return The units of the critical path in start order.
+     */
+    List<String> getCriticalPath(final Map<String, Long> durations) {
+        Map<String, Long> finish = new HashMap<>();
+        Map<String, String> via = new HashMap<>();
+
+        String last = null;
+
+        for (List<String> wave : waves) {
+            for (String unitName : wave) {
+                long start = 0L;
+
+                for (String predecessor : predecessors.get(unitName)) {
+                    Long predecessorFinish = finish.get(predecessor);
+
+                    // Predecessors on cycles may not have been finished yet
+                    if (predecessorFinish != null && predecessorFinish > start) {
+                        start = predecessorFinish;
+                        via.put(unitName, predecessor);
+                    }
+                }
+
+                long end = start + durations.getOrDefault(unitName, 0L);
+                finish.put(unitName, end);
+
+                if (last == null || end > finish.get(last)) {
+                    last = unitName;
+                }
+            }
+        }
+
+        Deque<String> path = new ArrayDeque<>();
+
+        for (String unitName = last; unitName != null; unitName = via.get(unitName)) {
+            path.addFirst(unitName);
+        }
+
+        return new ArrayList<>(path);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StartPlan [units=%d, waves=%s]", predecessors.size(), waves);
+    }
+
+}
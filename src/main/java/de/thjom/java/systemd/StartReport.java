@@ -0,0 +1,118 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.thjom.java.systemd.BulkResult.Outcome;
+
+/**
+ * Report of an executed {@link StartPlan} with the results and latencies
+ * of the started waves and the critical path through the ordering graph.
+ */
+public final class StartReport {
+
+    private final StartPlan plan;
+    private final List<BulkResult> waveResults;
+    private final Map<String, Long> durations = new HashMap<>();
+    private final List<String> criticalPath;
+
+    StartReport(final StartPlan plan, final List<BulkResult> waveResults) {
+        this.plan = plan;
+        this.waveResults = Collections.unmodifiableList(new ArrayList<>(waveResults));
+
+        for (BulkResult result : waveResults) {
+            for (Outcome outcome : result.getOutcomes()) {
+                durations.put(outcome.getUnitName(), outcome.getDuration());
+            }
+        }
+
+        this.criticalPath = Collections.unmodifiableList(plan.getCriticalPath(durations));
+    }
+
+    public StartPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * @return The results of the started waves (waves after a failed one are missing).
+     */
+    public List<BulkResult> getWaveResults() {
+        return waveResults;
+    }
+
+    /**
+     * @return The duration of each started wave in milliseconds.
+     */
+    public List<Long> getWaveLatencies() {
+        List<Long> latencies = new ArrayList<>(waveResults.size());
+
+        for (BulkResult result : waveResults) {
+            latencies.add(result.getDuration());
+        }
+
+        return latencies;
+    }
+
+    /**
+     * @return The sum of all wave durations in milliseconds.
+     */
+    public long getDuration() {
+        long duration = 0L;
+
+        for (BulkResult result : waveResults) {
+            duration += result.getDuration();
+        }
+
+        return duration;
+    }
+
+    /**
+     * Returns the chain of ordered units with the longest sum of job
+     * durations, i.e. the lower bound of the start time of the stack.<p>
+     *
+     * @return The units of the critical path in start order.
+     */
+    public List<String> getCriticalPath() {
+        return criticalPath;
+    }
+
+    /**
+     * @return The sum of the job durations along the critical path in milliseconds.
+     */
+    public long getCriticalPathDuration() {
+        long duration = 0L;
+
+        for (String unitName : criticalPath) {
+            duration += durations.getOrDefault(unitName, 0L);
+        }
+
+        return duration;
+    }
+
+    /**
+     * @return <code>true</code> if all waves have been started and all jobs have been completed successfully.
+     */
+    public boolean isSuccess() {
+        return waveResults.size() == plan.getWaves().size() && waveResults.stream().allMatch(BulkResult::isSuccess);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StartReport [waves=%d/%d, latencies=%s, criticalPath=%s]", waveResults.size(), plan.getWaves().size(), getWaveLatencies(), criticalPath);
+    }
+
+}
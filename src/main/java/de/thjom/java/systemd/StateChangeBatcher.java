@@ -0,0 +1,130 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.freedesktop.dbus.Variant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects state changes for a {@link BatchUnitStateListener}. A batch is
+ * delivered on the consumer thread as soon as it is full or, when the next
+ * change arrives, older than the maximum delay. Batches that stay incomplete
+ * are handed by the scheduler (if any) to the delivery executor once the
+ * maximum delay elapses. Deliveries never overlap and keep the order of
+ * arrival.
+ */
+final class StateChangeBatcher implements UnitStateListener {
+
+    private final Logger log = LoggerFactory.getLogger(StateChangeBatcher.class);
+
+    private final BatchUnitStateListener listener;
+    private final int maxBatchSize;
+    private final long maxDelay;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+
+    private final Object deliveryLock = new Object();
+
+    private List<UnitStateEvent> batch;
+    private long firstArrival;
+    private ScheduledFuture<?> pendingFlush;
+
+    StateChangeBatcher(final BatchUnitStateListener listener, final int maxBatchSize, final long maxDelay, final ScheduledExecutorService scheduler, final Executor executor) {
+        if (maxBatchSize < 1 || maxDelay < 0L) {
+            throw new IllegalArgumentException();
+        }
+
+        this.listener = Objects.requireNonNull(listener);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.batch = new ArrayList<>(maxBatchSize);
+    }
+
+    @Override
+    public void stateChanged(final Unit unit, final Map<String, Variant<?>> changedProperties) {
+        stateChanged(UnitStateEvent.of(unit, changedProperties));
+    }
+
+    @Override
+    public void stateChanged(final UnitStateEvent event) {
+        boolean ready;
+
+        synchronized (this) {
+            long now = System.nanoTime();
+
+            if (batch.isEmpty()) {
+                firstArrival = now;
+
+                if (scheduler != null && executor != null && maxDelay > 0L) {
+                    pendingFlush = scheduler.schedule(() -> executor.execute(this::flush), maxDelay, TimeUnit.MILLISECONDS);
+                }
+            }
+
+            batch.add(event);
+
+            ready = batch.size() >= maxBatchSize || now - firstArrival >= TimeUnit.MILLISECONDS.toNanos(maxDelay);
+        }
+
+        if (ready) {
+            flush();
+        }
+    }
+
+    /**
+     * Delivers the pending state changes immediately.
+     */
+    void flush() {
+        // Taking and delivering a batch is atomic to keep batches in order
+        synchronized (deliveryLock) {
+            List<UnitStateEvent> ready;
+
+            synchronized (this) {
+                ready = batch.isEmpty() ? null : takeBatch();
+            }
+
+            if (ready != null) {
+                try {
+                    listener.statesChanged(ready);
+                }
+                catch (final RuntimeException e) {
+                    log.error("Error while delivering state changes", e);
+                }
+            }
+        }
+    }
+
+    private List<UnitStateEvent> takeBatch() {
+        List<UnitStateEvent> ready = batch;
+        batch = new ArrayList<>(maxBatchSize);
+
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+
+        return Collections.unmodifiableList(ready);
+    }
+
+}
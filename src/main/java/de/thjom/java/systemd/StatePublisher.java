@@ -0,0 +1,259 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes the state changes of an adapter. Each subscription registers a
+ * state listener of its own and buffers up to the given number of events
+ * until they are requested. Events exceeding the buffer are handled by the
+ * {@link OverflowPolicy} of the publisher ({@link OverflowPolicy#BLOCK}
+ * blocks the signal consumer of the adapter).<p>
+ *
+ * Items are delivered on the signal consumer thread or, if the buffer holds
+ * events, on the thread calling {@link Flow.Subscription#request(long)}.
+ */
+final class StatePublisher implements Flow.Publisher<UnitStateEvent> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StatePublisher.class);
+
+    private final AbstractAdapter adapter;
+    private final int bufferSize;
+    private final OverflowPolicy overflowPolicy;
+    private final SignalQueueStatistics statistics;
+
+    StatePublisher(final AbstractAdapter adapter, final int bufferSize, final OverflowPolicy overflowPolicy, final SignalQueueStatistics statistics) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.adapter = Objects.requireNonNull(adapter);
+        this.bufferSize = bufferSize;
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+        this.statistics = Objects.requireNonNull(statistics);
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super UnitStateEvent> subscriber) {
+        StateSubscription subscription = new StateSubscription(Objects.requireNonNull(subscriber));
+
+        subscriber.onSubscribe(subscription);
+        subscription.register();
+    }
+
+    private final class StateSubscription implements Flow.Subscription, UnitStateListener {
+
+        private final Flow.Subscriber<? super UnitStateEvent> subscriber;
+
+        private final Deque<UnitStateEvent> buffer = new ArrayDeque<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private final Object registration = new Object();
+
+        private volatile boolean cancelled;
+        private boolean registered;
+
+        StateSubscription(final Flow.Subscriber<? super UnitStateEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void stateChanged(final Unit unit, final Map<String, Variant<?>> changedProperties) {
+            stateChanged(UnitStateEvent.of(unit, changedProperties));
+        }
+
+        @Override
+        public void stateChanged(final UnitStateEvent event) {
+            synchronized (this) {
+                if (!offer(event)) {
+                    return;
+                }
+            }
+
+            drain();
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0L) {
+                cancel();
+
+                subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+
+                return;
+            }
+
+            requested.accumulateAndGet(n, (r, a) -> r + a < 0L ? Long.MAX_VALUE : r + a);
+
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+
+                notifyAll();
+            }
+
+            // The consumer thread never takes this lock (it may be stopped on removal)
+            synchronized (registration) {
+                if (registered) {
+                    registered = false;
+
+                    try {
+                        adapter.removeListener(this);
+                    }
+                    catch (final DBusException e) {
+                        LOG.warn("Unable to remove state listener", e);
+                    }
+                }
+            }
+        }
+
+        private void register() {
+            DBusException error = null;
+
+            synchronized (registration) {
+                if (!cancelled) {
+                    try {
+                        adapter.addListener(this);
+
+                        registered = true;
+                    }
+                    catch (final DBusException e) {
+                        cancelled = true;
+                        error = e;
+                    }
+                }
+            }
+
+            if (error != null) {
+                subscriber.onError(error);
+            }
+        }
+
+        // Called while holding the monitor of this subscription
+        private boolean offer(final UnitStateEvent event) {
+            while (!cancelled && buffer.size() >= bufferSize) {
+                if (overflowPolicy == OverflowPolicy.COALESCE && merge(event)) {
+                    statistics.coalesce();
+
+                    return false;
+                }
+
+                switch (overflowPolicy) {
+                    case BLOCK:
+                        // Wait for the subscriber to request (and thereby drain) events
+                        try {
+                            wait();
+                        }
+                        catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            statistics.drop();
+
+                            return false;
+                        }
+                        break;
+                    case DROP_NEWEST:
+                        statistics.drop();
+
+                        return false;
+                    case COALESCE:
+                        // No event of the unit queued, drop the oldest one
+                    case DROP_OLDEST:
+                    default:
+                        buffer.poll();
+                        statistics.drop();
+                        break;
+                }
+            }
+
+            return !cancelled && buffer.offer(event);
+        }
+
+        private boolean merge(final UnitStateEvent event) {
+            Iterator<UnitStateEvent> it = buffer.descendingIterator();
+
+            while (it.hasNext()) {
+                UnitStateEvent queued = it.next();
+
+                if (queued.getUnit().name.equals(event.getUnit().name)) {
+                    it.remove();
+                    buffer.offer(queued.merge(event));
+
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+
+            do {
+                while (!cancelled && requested.get() > 0L) {
+                    UnitStateEvent event;
+
+                    synchronized (this) {
+                        event = buffer.poll();
+
+                        if (event != null) {
+                            notifyAll();
+                        }
+                    }
+
+                    if (event == null) {
+                        break;
+                    }
+
+                    if (requested.get() != Long.MAX_VALUE) {
+                        requested.decrementAndGet();
+                    }
+
+                    try {
+                        subscriber.onNext(event);
+                    }
+                    catch (final RuntimeException e) {
+                        LOG.error("Subscriber failed, cancelling subscription", e);
+
+                        cancel();
+                    }
+                }
+
+                missed = wip.addAndGet(-missed);
+            }
+            while (missed != 0);
+        }
+
+    }
+
+}
@@ -91,6 +91,35 @@ public final class Systemd {
         return "";
     }
 
+    /**
+     * Reverses {@link #escapePath(CharSequence)} for object path segments
+     * escaped by systemd (<code>_</code> followed by two hex digits).<p>
+     *
+     * @param path The escaped path segment.
+     * @return The unescaped segment.
+     */
+    public static final String unescapePath(final CharSequence path) {
+        if (path != null) {
+            StringBuilder unescaped = new StringBuilder(path.length());
+
+            for (int i = 0; i < path.length(); i++) {
+                char c = path.charAt(i);
+
+                if (c == '_' && i + 2 < path.length() && Character.digit(path.charAt(i + 1), 16) >= 0 && Character.digit(path.charAt(i + 2), 16) >= 0) {
+                    unescaped.append((char) Integer.parseInt(path.subSequence(i + 1, i + 3).toString(), 16));
+                    i += 2;
+                }
+                else {
+                    unescaped.append(c);
+                }
+            }
+
+            return unescaped.toString();
+        }
+
+        return "";
+    }
+
     public static final Date timestampToDate(final long timestamp) {
         return new Date(timestamp / 1000);
     }
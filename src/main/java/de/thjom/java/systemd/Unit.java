@@ -16,9 +16,13 @@ import static de.thjom.java.systemd.Unit.Property.LOAD_STATE;
 import static de.thjom.java.systemd.Unit.Property.SUB_STATE;
 
 import java.math.BigInteger;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.freedesktop.DBus.Introspectable;
 import org.freedesktop.DBus.Properties.PropertiesChanged;
@@ -85,6 +89,195 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
 
     }
 
+    /**
+     * High-level activation state of a unit (<code>ActiveState</code> property).
+     */
+    public enum ActiveState {
+        ACTIVE("active"),
+        RELOADING("reloading"),
+        INACTIVE("inactive"),
+        FAILED("failed"),
+        ACTIVATING("activating"),
+        DEACTIVATING("deactivating"),
+        MAINTENANCE("maintenance"),
+        REFRESHING("refreshing"),
+        UNKNOWN("");
+
+        private static final Map<String, ActiveState> VALUES = new HashMap<>();
+
+        static {
+            for (ActiveState state : values()) {
+                VALUES.put(state.value, state);
+            }
+        }
+
+        private final String value;
+
+        private ActiveState(final String value) {
+            this.value = value;
+        }
+
+        /**
+         * Returns the constant of the given state name by a single hash lookup.<p>
+         *
+         * @param value The state name as reported by systemd.
+         * @return The constant or {@link #UNKNOWN} for <code>null</code> and unknown names.
+         */
+        public static ActiveState parse(final String value) {
+            return value != null ? VALUES.getOrDefault(value, UNKNOWN) : UNKNOWN;
+        }
+
+        public final String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+
+    }
+
+    /**
+     * Load state of a unit (<code>LoadState</code> property).
+     */
+    public enum LoadState {
+        STUB("stub"),
+        LOADED("loaded"),
+        NOT_FOUND("not-found"),
+        BAD_SETTING("bad-setting"),
+        ERROR("error"),
+        MERGED("merged"),
+        MASKED("masked"),
+        UNKNOWN("");
+
+        private static final Map<String, LoadState> VALUES = new HashMap<>();
+
+        static {
+            for (LoadState state : values()) {
+                VALUES.put(state.value, state);
+            }
+        }
+
+        private final String value;
+
+        private LoadState(final String value) {
+            this.value = value;
+        }
+
+        /**
+         * Returns the constant of the given state name by a single hash lookup.<p>
+         *
+         * @param value The state name as reported by systemd.
+         * @return The constant or {@link #UNKNOWN} for <code>null</code> and unknown names.
+         */
+        public static LoadState parse(final String value) {
+            return value != null ? VALUES.getOrDefault(value, UNKNOWN) : UNKNOWN;
+        }
+
+        public final String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+
+    }
+
+    /**
+     * Low-level state of a unit (<code>SubState</code> property), the union
+     * of the states of all unit types.
+     */
+    public enum SubState {
+        DEAD("dead"),
+        CONDITION("condition"),
+        START_PRE("start-pre"),
+        START("start"),
+        START_POST("start-post"),
+        START_CHOWN("start-chown"),
+        RUNNING("running"),
+        EXITED("exited"),
+        RELOAD("reload"),
+        RELOAD_SIGNAL("reload-signal"),
+        RELOAD_NOTIFY("reload-notify"),
+        STOP("stop"),
+        STOP_WATCHDOG("stop-watchdog"),
+        STOP_PRE("stop-pre"),
+        STOP_PRE_SIGTERM("stop-pre-sigterm"),
+        STOP_PRE_SIGKILL("stop-pre-sigkill"),
+        STOP_SIGTERM("stop-sigterm"),
+        STOP_SIGKILL("stop-sigkill"),
+        STOP_POST("stop-post"),
+        FINAL_WATCHDOG("final-watchdog"),
+        FINAL_SIGTERM("final-sigterm"),
+        FINAL_SIGKILL("final-sigkill"),
+        FAILED("failed"),
+        AUTO_RESTART("auto-restart"),
+        AUTO_RESTART_QUEUED("auto-restart-queued"),
+        DEAD_BEFORE_AUTO_RESTART("dead-before-auto-restart"),
+        FAILED_BEFORE_AUTO_RESTART("failed-before-auto-restart"),
+        DEAD_RESOURCES_PINNED("dead-resources-pinned"),
+        CLEANING("cleaning"),
+        ABANDONED("abandoned"),
+        WAITING("waiting"),
+        ELAPSED("elapsed"),
+        TENTATIVE("tentative"),
+        PLUGGED("plugged"),
+        MOUNTING("mounting"),
+        MOUNTING_DONE("mounting-done"),
+        MOUNTED("mounted"),
+        REMOUNTING("remounting"),
+        REMOUNTING_SIGTERM("remounting-sigterm"),
+        REMOUNTING_SIGKILL("remounting-sigkill"),
+        UNMOUNTING("unmounting"),
+        UNMOUNTING_SIGTERM("unmounting-sigterm"),
+        UNMOUNTING_SIGKILL("unmounting-sigkill"),
+        LISTENING("listening"),
+        ACTIVATING("activating"),
+        ACTIVATING_DONE("activating-done"),
+        ACTIVE("active"),
+        DEACTIVATING("deactivating"),
+        DEACTIVATING_SIGTERM("deactivating-sigterm"),
+        DEACTIVATING_SIGKILL("deactivating-sigkill"),
+        UNKNOWN("");
+
+        private static final Map<String, SubState> VALUES = new HashMap<>();
+
+        static {
+            for (SubState state : values()) {
+                VALUES.put(state.value, state);
+            }
+        }
+
+        private final String value;
+
+        private SubState(final String value) {
+            this.value = value;
+        }
+
+        /**
+         * Returns the constant of the given state name by a single hash lookup.<p>
+         *
+         * @param value The state name as reported by systemd.
+         * @return The constant or {@link #UNKNOWN} for <code>null</code> and unknown names.
+         */
+        public static SubState parse(final String value) {
+            return value != null ? VALUES.getOrDefault(value, UNKNOWN) : UNKNOWN;
+        }
+
+        public final String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+
+    }
+
     public static class Property extends InterfaceAdapter.AdapterProperty {
 
         public static final String ACTIVE_ENTER_TIMESTAMP = "ActiveEnterTimestamp";
@@ -179,6 +372,9 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
     }
 
     protected final String name;
+
+    // Last state received by the state handler
+    private volatile StateTuple lastState;
     protected final Manager manager;
 
     private final Properties unitProperties;
@@ -189,7 +385,7 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
         this.name = name;
         this.manager = manager;
 
-        this.unitProperties = Properties.create(dbus, iface.getObjectPath(), SERVICE_NAME);
+        this.unitProperties = Properties.create(manager, iface.getObjectPath(), SERVICE_NAME);
     }
 
     public static String normalizeName(final String name, final String suffix) {
@@ -210,6 +406,19 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
         return normalized;
     }
 
+    /**
+     * Creates a match rule for changes of the generic unit properties (incl.
+     * states) of all units.<p>
+     *
+     * @return A new match rule.
+     * @throws DBusException If the rule cannot be created.
+     */
+    static MatchRule createStateMatchRule() throws DBusException {
+        return MatchRule.signal(PropertiesChanged.class)
+                .pathNamespace(Systemd.OBJECT_PATH + "/unit")
+                .arg(0, SERVICE_NAME);
+    }
+
     public static String extractName(final String objectPath) {
         String name;
 
@@ -238,6 +447,42 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
         return unitProperties;
     }
 
+    /**
+     * Retrieves all properties of the generic unit interface and of the
+     * type specific interface (two calls of <code>GetAll</code>).<p>
+     *
+     * @return An immutable snapshot of both interfaces.
+     */
+    @Override
+    public PropertySnapshot snapshot() {
+        return unitProperties.snapshot().merge(properties.snapshot());
+    }
+
+    /**
+     * Lets the property getters read from the given snapshot. Pooled
+     * adapters are shared by all callers of the manager's unit getters and
+     * refuse snapshots (see {@link Manager#createSnapshotView(Unit, PropertySnapshot)}).<p>
+     *
+     * @param snapshot The snapshot to read property values from.
+     * @throws IllegalStateException If this adapter is pooled.
+     */
+    @Override
+    void attachSnapshot(final PropertySnapshot snapshot) {
+        unitProperties.attachSnapshot(snapshot);
+        properties.attachSnapshot(snapshot);
+    }
+
+    @Override
+    public void detachSnapshot() {
+        unitProperties.detachSnapshot();
+        properties.detachSnapshot();
+    }
+
+    void setPooled(final boolean pooled) {
+        unitProperties.setShared(pooled);
+        properties.setShared(pooled);
+    }
+
     public boolean isAssignableFrom(final String objectPath) {
         return extractName(objectPath).equals(Systemd.escapePath(name));
     }
@@ -256,14 +501,49 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
     }
 
     @Override
-    protected SignalConsumer<PropertiesChanged> createStateConsumer() {
-        return new SignalConsumer<>(s -> {
-            Map<String, Variant<?>> properties = s.changedProperties;
-
-            if (properties.containsKey(ACTIVE_STATE) || properties.containsKey(LOAD_STATE) || properties.containsKey(SUB_STATE)) {
-                synchronized (unitStateListeners) {
-                    unitStateListeners.forEach(l -> l.stateChanged(Unit.this, properties));
-                }
+    protected SignalDispatcher getSignalDispatcher() {
+        return manager.getSignalDispatcher();
+    }
+
+    @Override
+    protected <T extends DBusSignal> SignalConsumer<T> createConsumer(final DBusSigHandler<T> handler) {
+        return manager.createConsumer(handler);
+    }
+
+    @Override
+    protected ScheduledExecutorService getScheduler() {
+        return manager.getScheduler();
+    }
+
+    @Override
+    protected Executor getDeliveryExecutor() {
+        return manager.getDeliveryExecutor();
+    }
+
+    @Override
+    protected SignalQueueStatistics getSignalQueueStatistics() {
+        return manager.getSignalQueueStatistics();
+    }
+
+    @Override
+    protected PropertiesDemultiplexer getDemultiplexer() {
+        return manager.getPropertiesDemultiplexer();
+    }
+
+    @Override
+    protected String getStatePath() {
+        return getObjectPath();
+    }
+
+    @Override
+    protected DBusSigHandler<PropertiesChanged> createStateHandler() {
+        return manager.coalesce(s -> {
+            UnitStateEvent event = UnitStateEvent.create(Unit.this, s.changedProperties, lastState);
+
+            if (event != null) {
+                lastState = event.getState();
+
+                unitStateListeners.forEach(l -> l.stateChanged(event));
             }
         });
     }
@@ -282,6 +562,21 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
         return manager.startUnit(name, mode);
     }
 
+    /**
+     * Starts this unit and returns a future of the job result.<p>
+     *
+     * @param mode The job mode.
+     * @return The future completed when the job is removed.
+     * @see Manager#startUnitAsync(String, Mode)
+     */
+    public CompletableFuture<JobResult> startAsync(final Mode mode) {
+        return manager.startUnitAsync(name, mode);
+    }
+
+    public CompletableFuture<JobResult> startAsync(final String mode) {
+        return manager.startUnitAsync(name, mode);
+    }
+
     public Path stop(final Mode mode) {
         return stop(mode.getValue());
     }
@@ -290,6 +585,14 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
         return manager.stopUnit(name, mode);
     }
 
+    public CompletableFuture<JobResult> stopAsync(final Mode mode) {
+        return manager.stopUnitAsync(name, mode);
+    }
+
+    public CompletableFuture<JobResult> stopAsync(final String mode) {
+        return manager.stopUnitAsync(name, mode);
+    }
+
     public Path reload(final Mode mode) {
         return reload(mode.getValue());
     }
@@ -298,6 +601,14 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
         return manager.reloadUnit(name, mode);
     }
 
+    public CompletableFuture<JobResult> reloadAsync(final Mode mode) {
+        return manager.reloadUnitAsync(name, mode);
+    }
+
+    public CompletableFuture<JobResult> reloadAsync(final String mode) {
+        return manager.reloadUnitAsync(name, mode);
+    }
+
     public Path restart(final Mode mode) {
         return restart(mode.getValue());
     }
@@ -306,6 +617,14 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
         return manager.restartUnit(name, mode);
     }
 
+    public CompletableFuture<JobResult> restartAsync(final Mode mode) {
+        return manager.restartUnitAsync(name, mode);
+    }
+
+    public CompletableFuture<JobResult> restartAsync(final String mode) {
+        return manager.restartUnitAsync(name, mode);
+    }
+
     public Path tryRestart(final Mode mode) {
         return tryRestart(mode.getValue());
     }
@@ -314,6 +633,14 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
         return manager.tryRestartUnit(name, mode);
     }
 
+    public CompletableFuture<JobResult> tryRestartAsync(final Mode mode) {
+        return manager.tryRestartUnitAsync(name, mode);
+    }
+
+    public CompletableFuture<JobResult> tryRestartAsync(final String mode) {
+        return manager.tryRestartUnitAsync(name, mode);
+    }
+
     public Path reloadOrRestart(final Mode mode) {
         return reloadOrRestart(mode.getValue());
     }
@@ -322,6 +649,14 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
         return manager.reloadOrRestartUnit(name, mode);
     }
 
+    public CompletableFuture<JobResult> reloadOrRestartAsync(final Mode mode) {
+        return manager.reloadOrRestartUnitAsync(name, mode);
+    }
+
+    public CompletableFuture<JobResult> reloadOrRestartAsync(final String mode) {
+        return manager.reloadOrRestartUnitAsync(name, mode);
+    }
+
     public Path reloadOrTryRestart(final Mode mode) {
         return reloadOrTryRestart(mode.getValue());
     }
@@ -330,6 +665,14 @@ public abstract class Unit extends InterfaceAdapter implements UnitStateNotifier
         return manager.reloadOrTryRestartUnit(name, mode);
     }
 
+    public CompletableFuture<JobResult> reloadOrTryRestartAsync(final Mode mode) {
+        return manager.reloadOrTryRestartUnitAsync(name, mode);
+    }
+
+    public CompletableFuture<JobResult> reloadOrTryRestartAsync(final String mode) {
+        return manager.reloadOrTryRestartUnitAsync(name, mode);
+    }
+
     public void kill(final Who who, final int signal) {
         kill(who.getValue(), signal);
     }
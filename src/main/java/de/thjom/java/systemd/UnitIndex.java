@@ -0,0 +1,65 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Inverted index of unit names by a single attribute value (e.g. active
+ * state). Writers are expected to be serialized by the owner, readers may
+ * access the index concurrently.
+ */
+final class UnitIndex {
+
+    private final ConcurrentMap<String, Set<String>> names = new ConcurrentHashMap<>();
+
+    void update(final String name, final String oldValue, final String newValue) {
+        if (Objects.equals(oldValue, newValue)) {
+            return;
+        }
+
+        remove(name, oldValue);
+
+        if (newValue != null) {
+            names.computeIfAbsent(newValue, k -> ConcurrentHashMap.newKeySet()).add(name);
+        }
+    }
+
+    void remove(final String name, final String value) {
+        if (value != null) {
+            names.computeIfPresent(value, (k, v) -> {
+                v.remove(name);
+
+                return v.isEmpty() ? null : v;
+            });
+        }
+    }
+
+    void clear() {
+        names.clear();
+    }
+
+    Set<String> get(final String value) {
+        Set<String> result = names.get(value);
+
+        return result != null ? Collections.unmodifiableSet(result) : Collections.emptySet();
+    }
+
+    Set<String> getValues() {
+        return Collections.unmodifiableSet(names.keySet());
+    }
+
+}
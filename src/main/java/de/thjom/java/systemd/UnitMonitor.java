@@ -11,25 +11,26 @@
 
 package de.thjom.java.systemd;
 
-import static de.thjom.java.systemd.Unit.Property.ACTIVE_STATE;
-import static de.thjom.java.systemd.Unit.Property.LOAD_STATE;
-import static de.thjom.java.systemd.Unit.Property.SUB_STATE;
-
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
 
 import org.freedesktop.DBus.Properties.PropertiesChanged;
 import org.freedesktop.dbus.DBusSigHandler;
 import org.freedesktop.dbus.DBusSignal;
-import org.freedesktop.dbus.Variant;
 import org.freedesktop.dbus.exceptions.DBusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +46,7 @@ abstract class UnitMonitor extends AbstractAdapter implements UnitStateNotifier
 
     protected final Manager manager;
     protected final ConcurrentMap<String, Unit> monitoredUnits = new ConcurrentHashMap<>();
+    protected final ConcurrentMap<String, Unit.StateTuple> unitStates = new ConcurrentHashMap<>();
 
     protected final List<UnitMonitorListener> unitMonitorListeners = new ArrayList<>();
 
@@ -53,6 +55,10 @@ abstract class UnitMonitor extends AbstractAdapter implements UnitStateNotifier
 
     private Timer pollingTimer;
 
+    // Object paths of the monitored units routed to the state handler by the demultiplexer
+    private final Set<String> routedPaths = new HashSet<>();
+    private DBusSigHandler<PropertiesChanged> stateRoute;
+
     protected UnitMonitor(final Manager manager) {
         this.manager = Objects.requireNonNull(manager);
     }
@@ -63,6 +69,12 @@ abstract class UnitMonitor extends AbstractAdapter implements UnitStateNotifier
         manager.addHandler(type, handler);
     }
 
+    @Override
+    public <T extends DBusSignal> void addHandler(final Class<T> type, final MatchRule rule, final DBusSigHandler<T> handler) throws DBusException {
+        manager.subscribe();
+        manager.addHandler(type, rule, handler);
+    }
+
     @Override
     public <T extends DBusSignal> void removeHandler(final Class<T> type, final DBusSigHandler<T> handler) throws DBusException {
         manager.removeHandler(type, handler);
@@ -84,17 +96,113 @@ abstract class UnitMonitor extends AbstractAdapter implements UnitStateNotifier
     }
 
     @Override
-    protected SignalConsumer<PropertiesChanged> createStateConsumer() {
-        return new SignalConsumer<>(s -> {
-            Optional<Unit> unit = getMonitoredUnit(Unit.extractName(s.getPath()));
+    protected SignalDispatcher getSignalDispatcher() {
+        return manager.getSignalDispatcher();
+    }
+
+    @Override
+    protected <T extends DBusSignal> SignalConsumer<T> createConsumer(final DBusSigHandler<T> handler) {
+        return manager.createConsumer(handler);
+    }
+
+    @Override
+    protected MatchRule getStateMatchRule() throws DBusException {
+        return Unit.createStateMatchRule();
+    }
+
+    @Override
+    protected ScheduledExecutorService getScheduler() {
+        return manager.getScheduler();
+    }
+
+    @Override
+    protected Executor getDeliveryExecutor() {
+        return manager.getDeliveryExecutor();
+    }
+
+    @Override
+    protected SignalQueueStatistics getSignalQueueStatistics() {
+        return manager.getSignalQueueStatistics();
+    }
+
+    @Override
+    protected PropertiesDemultiplexer getDemultiplexer() {
+        return manager.getPropertiesDemultiplexer();
+    }
+
+    @Override
+    protected void addStateRoutes(final PropertiesDemultiplexer demultiplexer, final DBusSigHandler<PropertiesChanged> handler) throws DBusException {
+        synchronized (routedPaths) {
+            stateRoute = handler;
+
+            routeStates(demultiplexer, getMonitoredPaths());
+        }
+    }
+
+    @Override
+    protected void removeStateRoutes(final PropertiesDemultiplexer demultiplexer, final DBusSigHandler<PropertiesChanged> handler) throws DBusException {
+        synchronized (routedPaths) {
+            routeStates(demultiplexer, Collections.emptySet());
 
-            if (unit.isPresent()) {
-                Map<String, Variant<?>> properties = s.changedProperties;
+            stateRoute = null;
+        }
+    }
 
-                if (properties.containsKey(ACTIVE_STATE) || properties.containsKey(LOAD_STATE) || properties.containsKey(SUB_STATE)) {
-                    synchronized (unitStateListeners) {
-                        unitStateListeners.forEach(l -> l.stateChanged(unit.get(), properties));
-                    }
+    /**
+     * Routes the state changes of the currently monitored units to the state
+     * handler (if the state listeners share the demultiplexer of the manager).
+     * To be called whenever the monitored units have changed.
+     */
+    protected void updateStateRoutes() {
+        synchronized (routedPaths) {
+            if (stateRoute != null) {
+                try {
+                    routeStates(getDemultiplexer(), getMonitoredPaths());
+                }
+                catch (final DBusException e) {
+                    log.error("Unable to route state changes of monitored units", e);
+                }
+            }
+        }
+    }
+
+    private Set<String> getMonitoredPaths() {
+        return monitoredUnits.keySet().stream()
+                .map(k -> Unit.OBJECT_PATH + k)
+                .collect(Collectors.toSet());
+    }
+
+    // Adds new routes first, so that the demultiplexer keeps its registration
+    private void routeStates(final PropertiesDemultiplexer demultiplexer, final Set<String> paths) throws DBusException {
+        for (String path : paths) {
+            if (!routedPaths.contains(path)) {
+                demultiplexer.add(path, stateRoute);
+                routedPaths.add(path);
+            }
+        }
+
+        for (String path : new ArrayList<>(routedPaths)) {
+            if (!paths.contains(path)) {
+                routedPaths.remove(path);
+                demultiplexer.remove(path, stateRoute);
+            }
+        }
+    }
+
+    @Override
+    protected DBusSigHandler<PropertiesChanged> createStateHandler() {
+        return manager.coalesce(s -> {
+            // Keys are escaped unit names, as is the last segment of the path
+            String key = Unit.extractName(s.getPath());
+            Unit unit = monitoredUnits.get(key);
+
+            if (unit != null) {
+                UnitStateEvent event = UnitStateEvent.create(unit, s.changedProperties, unitStates.get(key));
+
+                if (event != null) {
+                    unitStates.put(key, event.getState());
+
+                    unitStateListeners.forEach(l -> l.stateChanged(event));
                 }
             }
         });
@@ -110,8 +218,67 @@ abstract class UnitMonitor extends AbstractAdapter implements UnitStateNotifier
 
     public abstract void reset();
 
+    /**
+     * Updates the monitored units in place to the given ones and notifies the
+     * listeners about added and removed units. Adapters of units which are
+     * monitored already are kept.<p>
+     *
+     * @param units The units to be monitored by escaped unit name.
+     * @param states The prefetched unit states by escaped unit name.
+     */
+    protected void updateMonitoredUnits(final Map<String, Unit> units, final Map<String, Unit.StateTuple> states) {
+        List<Unit> addedUnits = new ArrayList<>();
+        List<Unit> removedUnits = new ArrayList<>();
+
+        for (Map.Entry<String, Unit> entry : monitoredUnits.entrySet()) {
+            if (!units.containsKey(entry.getKey()) && monitoredUnits.remove(entry.getKey(), entry.getValue())) {
+                removedUnits.add(entry.getValue());
+            }
+        }
+
+        for (Map.Entry<String, Unit> entry : units.entrySet()) {
+            if (monitoredUnits.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                addedUnits.add(entry.getValue());
+            }
+        }
+
+        unitStates.putAll(states);
+        unitStates.keySet().retainAll(units.keySet());
+
+        updateStateRoutes();
+
+        if (!addedUnits.isEmpty() || !removedUnits.isEmpty()) {
+            unitMonitorListeners.forEach(l -> l.monitorChanged(addedUnits, removedUnits));
+        }
+    }
+
     public abstract void refresh() throws DBusException;
 
+    protected synchronized void addMonitoredUnit(final String unitName) throws DBusException {
+        String key = Systemd.escapePath(unitName);
+
+        if (!monitoredUnits.containsKey(key)) {
+            Unit unit = manager.getUnit(unitName);
+
+            monitoredUnits.put(key, unit);
+            updateStateRoutes();
+
+            unitMonitorListeners.forEach(l -> l.monitorChanged(Collections.singletonList(unit), Collections.emptyList()));
+        }
+    }
+
+    protected synchronized void removeMonitoredUnit(final String unitName) {
+        String key = Systemd.escapePath(unitName);
+        Unit unit = monitoredUnits.remove(key);
+
+        unitStates.remove(key);
+        updateStateRoutes();
+
+        if (unit != null) {
+            unitMonitorListeners.forEach(l -> l.monitorChanged(Collections.emptyList(), Collections.singletonList(unit)));
+        }
+    }
+
     public synchronized void startPolling(final long delay, final long period) {
         TimerTask task = new TimerTask() {
 
@@ -157,6 +324,17 @@ abstract class UnitMonitor extends AbstractAdapter implements UnitStateNotifier
         return monitoredUnits.values();
     }
 
+    /**
+     * Returns the state of a monitored unit as retrieved with the last
+     * refresh (if the monitor prefetches states).<p>
+     *
+     * @param unitName The full unit name.
+     * @return The load, active and sub state of the last refresh.
+     */
+    public Optional<Unit.StateTuple> getUnitState(final String unitName) {
+        return Optional.ofNullable(unitStates.get(Systemd.escapePath(unitName)));
+    }
+
     public class ReloadingHandler implements DBusSigHandler<Reloading> {
 
         @Override
@@ -18,4 +18,15 @@ public interface UnitMonitorListener {
 
     void monitorRefreshed(Collection<Unit> monitoredUnits);
 
+    /**
+     * Called on refresh (before {@link #monitorRefreshed(Collection)}) if the
+     * set of monitored units has changed.<p>
+     *
+     * @param addedUnits The units which are monitored since this refresh.
+     * @param removedUnits The units which are no longer monitored.
+     */
+    default void monitorChanged(final Collection<Unit> addedUnits, final Collection<Unit> removedUnits) {
+        // Do nothing by default
+    }
+
 }
@@ -11,15 +11,26 @@
 
 package de.thjom.java.systemd;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.freedesktop.dbus.Variant;
 import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+
+import de.thjom.java.systemd.Unit.StateTuple;
+import de.thjom.java.systemd.types.UnitType;
 
 public class UnitNameMonitor extends UnitMonitor {
 
     protected final Set<String> monitoredNames = new HashSet<>();
 
+    private boolean nameListing = true;
+
     public UnitNameMonitor(final Manager manager) {
         super(manager);
     }
@@ -28,27 +39,87 @@ public class UnitNameMonitor extends UnitMonitor {
     public synchronized void reset() {
         monitoredNames.clear();
         monitoredUnits.clear();
+        unitStates.clear();
+
+        updateStateRoutes();
     }
 
+    /**
+     * Refreshes the monitored units. The states of all monitored units are
+     * retrieved with a single <code>ListUnitsByNames</code> call (see
+     * {@link #getUnitState(String)}) and the monitored units are updated in
+     * place (see {@link UnitMonitorListener#monitorChanged(java.util.Collection, java.util.Collection)}).
+     */
     @Override
     public synchronized void refresh() throws DBusException {
         try {
-            monitoredUnits.clear();
+            Map<String, Unit> units = new HashMap<>();
+            Map<String, StateTuple> states = new HashMap<>();
 
             for (String unitName : monitoredNames) {
-                monitoredUnits.put(Systemd.escapePath(unitName), manager.getUnit(unitName));
+                String key = Systemd.escapePath(unitName);
+                Unit unit = monitoredUnits.get(key);
+
+                units.put(key, unit != null ? unit : manager.getUnit(unitName));
+            }
+
+            for (UnitType row : listUnits()) {
+                String key = Systemd.escapePath(row.getUnitName());
+                Unit unit = units.get(key);
+
+                if (unit != null) {
+                    states.put(key, new StateTuple(row.getLoadState(), row.getActiveState(), row.getSubState()));
+
+                    prefetchState(unit, row);
+                }
             }
+
+            updateMonitoredUnits(units, states);
         }
         finally {
             unitMonitorListeners.forEach(l -> l.monitorRefreshed(monitoredUnits.values()));
         }
     }
 
+    private List<UnitType> listUnits() {
+        if (nameListing && !monitoredNames.isEmpty()) {
+            try {
+                return manager.listUnitsByNames(monitoredNames);
+            }
+            catch (final DBusExecutionException e) {
+                log.warn("Unable to list units by names, unit states will not be prefetched", e);
+
+                nameListing = false;
+            }
+        }
+
+        return Collections.emptyList();
+    }
+
+    private void prefetchState(final Unit unit, final UnitType row) {
+        Map<String, Variant<?>> properties = new HashMap<>();
+        putIfPresent(properties, Unit.Property.DESCRIPTION, row.getUnitDescription());
+        putIfPresent(properties, Unit.Property.LOAD_STATE, row.getLoadState());
+        putIfPresent(properties, Unit.Property.ACTIVE_STATE, row.getActiveState());
+        putIfPresent(properties, Unit.Property.SUB_STATE, row.getSubState());
+
+        // Seeds the property cache (only effective if property caching is enabled)
+        unit.getUnitProperties().update(properties, null);
+    }
+
+    private static void putIfPresent(final Map<String, Variant<?>> properties, final String name, final String value) {
+        if (value != null) {
+            properties.put(name, new Variant<>(value));
+        }
+    }
+
     public synchronized void addUnits(final String... fullUnitNames) throws DBusException {
         for (String unitName : fullUnitNames) {
             monitoredNames.add(unitName);
             monitoredUnits.put(Systemd.escapePath(unitName), manager.getUnit(unitName));
         }
+
+        updateStateRoutes();
     }
 
     public synchronized void addUnits(final Unit... units) {
@@ -56,20 +127,28 @@ public class UnitNameMonitor extends UnitMonitor {
             monitoredNames.add(unit.getId());
             monitoredUnits.put(Systemd.escapePath(unit.getId()), unit);
         }
+
+        updateStateRoutes();
     }
 
     public synchronized void removeUnits(final String... fullUnitNames) {
         for (String unitName : fullUnitNames) {
             monitoredNames.remove(unitName);
             monitoredUnits.remove(Systemd.escapePath(unitName));
+            unitStates.remove(Systemd.escapePath(unitName));
         }
+
+        updateStateRoutes();
     }
 
     public synchronized void removeUnits(final Unit... units) {
         for (Unit unit : units) {
             monitoredNames.remove(unit.getId());
             monitoredUnits.remove(Systemd.escapePath(unit.getId()));
+            unitStates.remove(Systemd.escapePath(unit.getId()));
         }
+
+        updateStateRoutes();
     }
 
     @Override
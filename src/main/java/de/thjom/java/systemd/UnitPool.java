@@ -0,0 +1,149 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.freedesktop.dbus.exceptions.DBusException;
+
+/**
+ * Bounded pool of unit adapters keyed by full unit name. Adapters are held
+ * by soft references and least recently used entries are dropped once the
+ * capacity is exceeded. A pool belongs to exactly one {@link Manager} and
+ * thereby to one bus connection.
+ */
+final class UnitPool {
+
+    @FunctionalInterface
+    interface Factory<T extends Unit> {
+
+        T create(Manager manager, String name) throws DBusException;
+
+    }
+
+    private final Map<String, Reference<Unit>> units = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int capacity;
+
+    UnitPool(final int capacity) {
+        setCapacity(capacity);
+    }
+
+    synchronized int getCapacity() {
+        return capacity;
+    }
+
+    synchronized void setCapacity(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.capacity = capacity;
+
+        trim();
+    }
+
+    synchronized int size() {
+        units.values().removeIf(r -> r.get() == null);
+
+        return units.size();
+    }
+
+    /**
+     * Returns the pooled adapter for the given unit or creates (and pools) a
+     * new one. The factory is invoked without holding the pool lock; if two
+     * threads race for the same unit the adapter pooled first wins.<p>
+     *
+     * @param manager The manager passed to the factory.
+     * @param name The full (normalized) unit name.
+     * @param type The adapter type expected for the unit name.
+     * @param factory Creates a new adapter on a pool miss.
+     * @return The pooled or newly created adapter.
+     * @throws DBusException If the adapter could not be created.
+     */
+    <T extends Unit> T get(final Manager manager, final String name, final Class<T> type, final Factory<T> factory) throws DBusException {
+        Unit unit = lookup(name);
+
+        if (type.isInstance(unit)) {
+            return type.cast(unit);
+        }
+
+        T created = factory.create(manager, name);
+
+        synchronized (this) {
+            if (capacity == 0) {
+                return created;
+            }
+
+            unit = lookup(name);
+
+            if (type.isInstance(unit)) {
+                return type.cast(unit);
+            }
+
+            units.put(name, new SoftReference<>(created));
+            created.setPooled(true);
+
+            trim();
+        }
+
+        return created;
+    }
+
+    synchronized void evict(final String name) {
+        release(units.remove(name));
+    }
+
+    synchronized void clear() {
+        units.values().forEach(UnitPool::release);
+        units.clear();
+    }
+
+    private synchronized Unit lookup(final String name) {
+        Reference<Unit> reference = units.get(name);
+
+        if (reference != null) {
+            Unit unit = reference.get();
+
+            if (unit == null) {
+                units.remove(name);
+            }
+
+            return unit;
+        }
+
+        return null;
+    }
+
+    private void trim() {
+        Iterator<Reference<Unit>> iterator = units.values().iterator();
+
+        while (units.size() > capacity && iterator.hasNext()) {
+            release(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    // Adapters still referenced by callers are no longer shared
+    private static void release(final Reference<Unit> reference) {
+        Unit unit = reference != null ? reference.get() : null;
+
+        if (unit != null) {
+            unit.setPooled(false);
+        }
+    }
+
+}
@@ -0,0 +1,575 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.CallbackHandler;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.DBusSignal;
+import org.freedesktop.dbus.UInt32;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.thjom.java.systemd.interfaces.ManagerInterface.JobNew;
+import de.thjom.java.systemd.interfaces.ManagerInterface.JobRemoved;
+import de.thjom.java.systemd.interfaces.ManagerInterface.UnitNew;
+import de.thjom.java.systemd.interfaces.ManagerInterface.UnitRemoved;
+import de.thjom.java.systemd.interfaces.PropertyInterface;
+import de.thjom.java.systemd.types.UnitType;
+
+/**
+ * In-memory mirror of the systemd unit table. The registry is seeded once
+ * via {@link Manager#listUnits()} and afterwards kept up to date solely from
+ * the <code>UnitNew</code>, <code>UnitRemoved</code>, <code>JobNew</code>,
+ * <code>JobRemoved</code> and <code>PropertiesChanged</code> signals, so
+ * queries do not cause any remote calls.<p>
+ *
+ * Units announced by <code>UnitNew</code> start with empty states until their
+ * first <code>PropertiesChanged</code> signal arrives.<p>
+ *
+ * The rows are indexed by unit type, load, active and sub state and, if
+ * enabled via {@link #setSliceIndexing(boolean)}, by owning slice. Use
+ * {@link #query()} to combine criteria.
+ */
+public class UnitRegistry {
+
+    private static final org.freedesktop.dbus.Path NO_JOB = new org.freedesktop.dbus.Path("/");
+
+    private static final Set<String> SLICED_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            Mount.UNIT_SUFFIX,
+            Scope.UNIT_SUFFIX,
+            Service.UNIT_SUFFIX,
+            Slice.UNIT_SUFFIX,
+            Socket.UNIT_SUFFIX,
+            Swap.UNIT_SUFFIX
+    )));
+
+    private static final Set<String> SLICED_INTERFACES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            Mount.SERVICE_NAME,
+            Scope.SERVICE_NAME,
+            Service.SERVICE_NAME,
+            Slice.SERVICE_NAME,
+            Socket.SERVICE_NAME,
+            Swap.SERVICE_NAME
+    )));
+
+    private final Logger log = LoggerFactory.getLogger(UnitRegistry.class);
+
+    private final Manager manager;
+
+    private final ConcurrentMap<String, UnitType> units = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> namesByPath = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> slices = new ConcurrentHashMap<>();
+
+    private final UnitIndex typeIndex = new UnitIndex();
+    private final UnitIndex loadStateIndex = new UnitIndex();
+    private final UnitIndex activeStateIndex = new UnitIndex();
+    private final UnitIndex subStateIndex = new UnitIndex();
+    private final UnitIndex sliceIndex = new UnitIndex();
+
+    private volatile boolean sliceIndexing;
+
+    private final Set<String> pendingSlices = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean sliceRequestScheduled = new AtomicBoolean();
+
+    private final Object updateLock = new Object();
+
+    private ForwardingHandler<DBusSignal> forwarder;
+    private final List<Registration<?>> registrations = new ArrayList<>();
+
+    public UnitRegistry(final Manager manager) {
+        this.manager = Objects.requireNonNull(manager);
+    }
+
+    /**
+     * Registers the signal handlers and seeds the registry. Signals received
+     * while seeding are applied after the initial unit list.<p>
+     *
+     * @throws DBusException In case of signal handler registration failures.
+     */
+    public synchronized void start() throws DBusException {
+        if (forwarder != null) {
+            return;
+        }
+
+        manager.subscribe();
+
+        forwarder = new ForwardingHandler<>(manager.createConsumer(this::apply), manager.getSignalDispatcher());
+        forwarder.startConsumer();
+
+        register(UnitNew.class);
+        register(UnitRemoved.class);
+        register(JobNew.class);
+        register(JobRemoved.class);
+        register(PropertiesChanged.class);
+
+        synchronized (updateLock) {
+            clear();
+
+            for (UnitType unit : manager.listUnits()) {
+                store(unit);
+            }
+        }
+
+        if (sliceIndexing) {
+            indexSlices(new ArrayList<>(units.keySet()));
+        }
+
+        log.debug(String.format("Unit registry seeded with %d units", units.size()));
+    }
+
+    public synchronized void stop() throws DBusException {
+        if (forwarder == null) {
+            return;
+        }
+
+        for (Registration<?> registration : registrations) {
+            registration.remove();
+        }
+
+        registrations.clear();
+
+        forwarder.stopConsumer();
+        forwarder = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return forwarder != null;
+    }
+
+    public boolean isSliceIndexing() {
+        return sliceIndexing;
+    }
+
+    /**
+     * Enables or disables the index by owning slice. The slice is not part of
+     * the unit table, so it is retrieved once per unit (in a batch while
+     * seeding, see {@link Manager#fetch(Collection, String...)}, and
+     * asynchronously for <code>UnitNew</code> signals, so the slice of a new
+     * unit is indexed shortly after the unit). Must be set before {@link #start()}.<p>
+     *
+     * @param sliceIndexing Whether to maintain the slice index.
+     */
+    public void setSliceIndexing(final boolean sliceIndexing) {
+        this.sliceIndexing = sliceIndexing;
+    }
+
+    public int size() {
+        return units.size();
+    }
+
+    public Optional<UnitType> getUnit(final String name) {
+        return Optional.ofNullable(units.get(name));
+    }
+
+    public Collection<UnitType> getUnits() {
+        return Collections.unmodifiableCollection(units.values());
+    }
+
+    public List<UnitType> getUnits(final Predicate<UnitType> filter) {
+        return units.values().stream().filter(filter).collect(Collectors.toList());
+    }
+
+    public List<UnitType> getUnits(final String suffix) {
+        return query().type(suffix).getUnits();
+    }
+
+    public List<UnitType> getUnitsByActiveState(final String activeState) {
+        return query().activeState(activeState).getUnits();
+    }
+
+    public List<UnitType> getFailedUnits() {
+        return getUnitsByActiveState("failed");
+    }
+
+    public List<UnitType> getFailedUnits(final String suffix) {
+        return query().type(suffix).activeState("failed").getUnits();
+    }
+
+    public Optional<String> getSlice(final String name) {
+        return Optional.ofNullable(slices.get(name));
+    }
+
+    public Query query() {
+        return new Query();
+    }
+
+    private <T extends DBusSignal> void register(final Class<T> type) throws DBusException {
+        Registration<T> registration = new Registration<>(type, forwarder::handle);
+
+        manager.addHandler(type, registration.handler);
+
+        registrations.add(registration);
+    }
+
+    private void apply(final DBusSignal signal) {
+        String created = null;
+
+        synchronized (updateLock) {
+            if (signal instanceof PropertiesChanged) {
+                applyPropertiesChanged((PropertiesChanged) signal);
+            }
+            else if (signal instanceof UnitNew) {
+                UnitNew s = (UnitNew) signal;
+
+                if (!units.containsKey(s.getId())) {
+                    store(new UnitType(s.getId(), "", "", "", "", "", s.getUnit(), new UInt32(0), "", NO_JOB));
+
+                    created = s.getId();
+                }
+            }
+            else if (signal instanceof UnitRemoved) {
+                remove(((UnitRemoved) signal).getId());
+            }
+            else if (signal instanceof JobNew) {
+                JobNew s = (JobNew) signal;
+                UnitType unit = units.get(s.getUnit());
+
+                if (unit != null) {
+                    store(withJob(unit, s.getId(), unit.getJobType(), s.getJob()));
+                }
+            }
+            else if (signal instanceof JobRemoved) {
+                JobRemoved s = (JobRemoved) signal;
+                UnitType unit = units.get(s.getUnit());
+
+                if (unit != null && unit.getJobId() == s.getId()) {
+                    store(withJob(unit, 0L, "", NO_JOB));
+                }
+            }
+        }
+
+        if (created != null && sliceIndexing && SLICED_TYPES.contains(getType(created))) {
+            requestSlice(created);
+        }
+    }
+
+    private void requestSlice(final String name) {
+        pendingSlices.add(name);
+
+        // Batches bursts of new units, the signal consumer does not wait for replies
+        if (sliceRequestScheduled.compareAndSet(false, true)) {
+            manager.getScheduler().execute(this::requestSlices);
+        }
+    }
+
+    private void requestSlices() {
+        sliceRequestScheduled.set(false);
+
+        Iterator<String> iterator = pendingSlices.iterator();
+
+        while (iterator.hasNext()) {
+            String name = iterator.next();
+            iterator.remove();
+
+            CallbackHandler<Variant<?>> callback = new CallbackHandler<Variant<?>>() {
+
+                @Override
+                public void handle(final Variant<?> value) {
+                    synchronized (updateLock) {
+                        if (units.containsKey(name) && !slices.containsKey(name)) {
+                            storeSlice(name, String.valueOf(value.getValue()));
+                        }
+                    }
+                }
+
+                @Override
+                public void handleError(final DBusExecutionException e) {
+                    log.warn(String.format("Unable to retrieve slice of unit '%s': %s", name, e.getMessage()));
+                }
+
+            };
+
+            try {
+                PropertyInterface iface = manager.dbus.getRemoteObject(Systemd.SERVICE_NAME, Unit.OBJECT_PATH + Systemd.escapePath(name), PropertyInterface.class);
+
+                manager.dbus.callWithCallback(iface, PropertyFetcher.METHOD_GET, callback, PropertyFetcher.resolveServiceName(name, Service.Property.SLICE), Service.Property.SLICE);
+            }
+            catch (final DBusException | DBusExecutionException e) {
+                log.warn(String.format("Unable to retrieve slice of unit '%s': %s", name, e.getMessage()));
+            }
+        }
+    }
+
+    private void applyPropertiesChanged(final PropertiesChanged signal) {
+        String name = namesByPath.get(signal.getPath());
+
+        if (name == null) {
+            return;
+        }
+
+        UnitType u = units.get(name);
+
+        if (u == null) {
+            return;
+        }
+
+        Map<String, Variant<?>> changed = signal.changedProperties;
+
+        if (SLICED_INTERFACES.contains(signal.interfaceName)) {
+            String slice = stringValue(changed, Service.Property.SLICE, null);
+
+            if (slice != null) {
+                storeSlice(name, slice);
+            }
+
+            return;
+        }
+
+        if (!Unit.SERVICE_NAME.equals(signal.interfaceName)) {
+            return;
+        }
+
+        String description = stringValue(changed, Unit.Property.DESCRIPTION, u.getUnitDescription());
+        String loadState = stringValue(changed, Unit.Property.LOAD_STATE, u.getLoadState());
+        String activeState = stringValue(changed, Unit.Property.ACTIVE_STATE, u.getActiveState());
+        String subState = stringValue(changed, Unit.Property.SUB_STATE, u.getSubState());
+        String following = stringValue(changed, Unit.Property.FOLLOWING, u.getFollowingUnit());
+
+        UnitType updated = new UnitType(u.getUnitName(), description, loadState, activeState, subState, following,
+                u.getUnitObjectPath(), new UInt32(u.getJobId()), u.getJobType(), u.getJobObjectPath());
+
+        Variant<?> job = changed.get(Unit.Property.JOB);
+
+        if (job != null && job.getValue() instanceof Object[]) {
+            Object[] tuple = (Object[]) job.getValue();
+
+            if (tuple.length == 2 && tuple[0] instanceof Number && tuple[1] instanceof org.freedesktop.dbus.Path) {
+                long jobId = ((Number) tuple[0]).longValue();
+
+                updated = withJob(updated, jobId, jobId == 0L ? "" : updated.getJobType(), (org.freedesktop.dbus.Path) tuple[1]);
+            }
+        }
+
+        store(updated);
+    }
+
+    private void indexSlices(final List<String> names) {
+        List<String> sliced = new ArrayList<>(names.size());
+
+        for (String name : names) {
+            if (SLICED_TYPES.contains(getType(name))) {
+                sliced.add(name);
+            }
+        }
+
+        if (sliced.isEmpty()) {
+            return;
+        }
+
+        try {
+            PropertyTable table = manager.fetch(sliced, Service.Property.SLICE);
+
+            synchronized (updateLock) {
+                for (String name : sliced) {
+                    if (units.containsKey(name) && !slices.containsKey(name)) {
+                        table.getValue(name, Service.Property.SLICE).ifPresent(v -> storeSlice(name, String.valueOf(v.getValue())));
+                    }
+                }
+            }
+        }
+        catch (final DBusException e) {
+            log.warn("Unable to retrieve slices of units", e);
+        }
+    }
+
+    private void store(final UnitType unit) {
+        String name = unit.getUnitName();
+        UnitType old = units.put(name, unit);
+
+        if (old == null) {
+            typeIndex.update(name, null, getType(name));
+        }
+
+        loadStateIndex.update(name, old != null ? old.getLoadState() : null, unit.getLoadState());
+        activeStateIndex.update(name, old != null ? old.getActiveState() : null, unit.getActiveState());
+        subStateIndex.update(name, old != null ? old.getSubState() : null, unit.getSubState());
+
+        if (unit.getUnitObjectPath() != null) {
+            namesByPath.put(unit.getUnitObjectPath().getPath(), name);
+        }
+    }
+
+    private void storeSlice(final String name, final String slice) {
+        sliceIndex.update(name, slices.put(name, slice), slice);
+    }
+
+    private void remove(final String name) {
+        UnitType unit = units.remove(name);
+
+        if (unit != null) {
+            typeIndex.remove(name, getType(name));
+            loadStateIndex.remove(name, unit.getLoadState());
+            activeStateIndex.remove(name, unit.getActiveState());
+            subStateIndex.remove(name, unit.getSubState());
+            sliceIndex.remove(name, slices.remove(name));
+
+            if (unit.getUnitObjectPath() != null) {
+                namesByPath.remove(unit.getUnitObjectPath().getPath());
+            }
+        }
+    }
+
+    private void clear() {
+        units.clear();
+        namesByPath.clear();
+        slices.clear();
+
+        typeIndex.clear();
+        loadStateIndex.clear();
+        activeStateIndex.clear();
+        subStateIndex.clear();
+        sliceIndex.clear();
+    }
+
+    private static String getType(final String name) {
+        int index = name.lastIndexOf('.');
+
+        return index >= 0 ? name.substring(index) : "";
+    }
+
+    private static UnitType withJob(final UnitType u, final long jobId, final String jobType, final org.freedesktop.dbus.Path jobPath) {
+        return new UnitType(u.getUnitName(), u.getUnitDescription(), u.getLoadState(), u.getActiveState(), u.getSubState(),
+                u.getFollowingUnit(), u.getUnitObjectPath(), new UInt32(jobId), jobType, jobPath);
+    }
+
+    private static String stringValue(final Map<String, Variant<?>> properties, final String name, final String defaultValue) {
+        Variant<?> value = properties.get(name);
+
+        return value != null && value.getValue() instanceof String ? (String) value.getValue() : defaultValue;
+    }
+
+    /**
+     * Conjunctive query over the indexes of a registry. Criteria which are not
+     * set match all units.
+     */
+    public final class Query {
+
+        private final List<Set<String>> criteria = new ArrayList<>(5);
+
+        private Query() {
+            super();
+        }
+
+        public Query type(final String suffix) {
+            criteria.add(typeIndex.get(suffix));
+
+            return this;
+        }
+
+        public Query loadState(final String loadState) {
+            criteria.add(loadStateIndex.get(loadState));
+
+            return this;
+        }
+
+        public Query activeState(final String activeState) {
+            criteria.add(activeStateIndex.get(activeState));
+
+            return this;
+        }
+
+        public Query subState(final String subState) {
+            criteria.add(subStateIndex.get(subState));
+
+            return this;
+        }
+
+        public Query slice(final String slice) {
+            criteria.add(sliceIndex.get(slice));
+
+            return this;
+        }
+
+        public Set<String> getNames() {
+            if (criteria.isEmpty()) {
+                return new HashSet<>(units.keySet());
+            }
+
+            List<Set<String>> sets = new ArrayList<>(criteria);
+            sets.sort(Comparator.comparingInt(Set::size));
+
+            Set<String> result = new HashSet<>();
+
+            for (String name : sets.get(0)) {
+                boolean matches = true;
+
+                for (int i = 1; i < sets.size() && matches; i++) {
+                    matches = sets.get(i).contains(name);
+                }
+
+                if (matches) {
+                    result.add(name);
+                }
+            }
+
+            return result;
+        }
+
+        public List<UnitType> getUnits() {
+            List<UnitType> result = new ArrayList<>();
+
+            for (String name : getNames()) {
+                UnitType unit = units.get(name);
+
+                if (unit != null) {
+                    result.add(unit);
+                }
+            }
+
+            return result;
+        }
+
+        public int count() {
+            return getNames().size();
+        }
+
+    }
+
+    private final class Registration<T extends DBusSignal> {
+
+        private final Class<T> type;
+        private final DBusSigHandler<T> handler;
+
+        Registration(final Class<T> type, final DBusSigHandler<T> handler) {
+            this.type = type;
+            this.handler = handler;
+        }
+
+        void remove() throws DBusException {
+            manager.removeHandler(type, handler);
+        }
+
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import static de.thjom.java.systemd.Unit.Property.ACTIVE_STATE;
+import static de.thjom.java.systemd.Unit.Property.INVOCATION_ID;
+import static de.thjom.java.systemd.Unit.Property.LOAD_STATE;
+import static de.thjom.java.systemd.Unit.Property.SUB_STATE;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.freedesktop.dbus.Variant;
+
+import de.thjom.java.systemd.Unit.ActiveState;
+import de.thjom.java.systemd.Unit.LoadState;
+import de.thjom.java.systemd.Unit.StateTuple;
+import de.thjom.java.systemd.Unit.SubState;
+
+/**
+ * State change of a unit. An event is created once per signal and shared by
+ * all listeners of an adapter. States not contained in the signal are taken
+ * over from the previous state (if known).
+ */
+public final class UnitStateEvent {
+
+    private final Unit unit;
+    private final Map<String, Variant<?>> changedProperties;
+    private final long timestamp;
+
+    private final StateTuple state;
+    private final StateTuple previousState;
+    private final String invocationId;
+
+    private final LoadState loadState;
+    private final ActiveState activeState;
+    private final SubState subState;
+
+    private UnitStateEvent(final Unit unit, final Map<String, Variant<?>> changedProperties, final long timestamp, final StateTuple state, final StateTuple previousState, final String invocationId) {
+        this.unit = Objects.requireNonNull(unit);
+        this.changedProperties = Objects.requireNonNull(changedProperties);
+        this.timestamp = timestamp;
+        this.state = state;
+        this.previousState = previousState;
+        this.invocationId = invocationId;
+
+        // Parsed once, shared by all listeners
+        this.loadState = LoadState.parse(state.getLoadState());
+        this.activeState = ActiveState.parse(state.getActiveState());
+        this.subState = SubState.parse(state.getSubState());
+    }
+
+    /**
+     * Creates the event for the given changed properties.<p>
+     *
+     * @param unit The unit.
+     * @param changedProperties The changed properties.
+     * @param previousState The last known state or <code>null</code>.
+     * @return The event or <code>null</code> if none of the states has changed.
+     */
+    static UnitStateEvent create(final Unit unit, final Map<String, Variant<?>> changedProperties, final StateTuple previousState) {
+        Variant<?> loadState = changedProperties.get(LOAD_STATE);
+        Variant<?> activeState = changedProperties.get(ACTIVE_STATE);
+        Variant<?> subState = changedProperties.get(SUB_STATE);
+
+        if (loadState == null && activeState == null && subState == null) {
+            return null;
+        }
+
+        StateTuple state = new StateTuple(
+                valueOf(loadState, previousState != null ? previousState.getLoadState() : null),
+                valueOf(activeState, previousState != null ? previousState.getActiveState() : null),
+                valueOf(subState, previousState != null ? previousState.getSubState() : null));
+
+        Variant<?> invocationId = changedProperties.get(INVOCATION_ID);
+        Object id = invocationId != null ? invocationId.getValue() : null;
+
+        return new UnitStateEvent(unit, changedProperties, System.currentTimeMillis(), state, previousState, id instanceof byte[] && ((byte[]) id).length > 0 ? Systemd.id128ToString((byte[]) id) : null);
+    }
+
+    /**
+     * Creates an event without previous state for the given changed
+     * properties (regardless of whether they contain states).<p>
+     *
+     * @param unit The unit.
+     * @param changedProperties The changed properties.
+     * @return The event.
+     */
+    static UnitStateEvent of(final Unit unit, final Map<String, Variant<?>> changedProperties) {
+        UnitStateEvent event = create(unit, changedProperties, null);
+
+        return event != null ? event : new UnitStateEvent(unit, changedProperties, System.currentTimeMillis(), new StateTuple(null, null, null), null, null);
+    }
+
+    private static String valueOf(final Variant<?> variant, final String defaultValue) {
+        return variant != null ? String.valueOf(variant.getValue()) : defaultValue;
+    }
+
+    /**
+     * Merges the given later event of the same unit into this event.<p>
+     *
+     * @param event The later event.
+     * @return The merged event having the previous state of this and the state of the later event.
+     */
+    UnitStateEvent merge(final UnitStateEvent event) {
+        Map<String, Variant<?>> merged = new HashMap<>(changedProperties);
+        merged.putAll(event.changedProperties);
+
+        return new UnitStateEvent(unit, merged, event.timestamp, event.state, previousState, event.invocationId != null ? event.invocationId : invocationId);
+    }
+
+    public Unit getUnit() {
+        return unit;
+    }
+
+    public Map<String, Variant<?>> getChangedProperties() {
+        return changedProperties;
+    }
+
+    /**
+     * Returns the time the change has been received.<p>
+     *
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public LoadState getLoadState() {
+        return loadState;
+    }
+
+    public ActiveState getActiveState() {
+        return activeState;
+    }
+
+    public SubState getSubState() {
+        return subState;
+    }
+
+    public LoadState getPreviousLoadState() {
+        return previousState != null ? LoadState.parse(previousState.getLoadState()) : LoadState.UNKNOWN;
+    }
+
+    public ActiveState getPreviousActiveState() {
+        return previousState != null ? ActiveState.parse(previousState.getActiveState()) : ActiveState.UNKNOWN;
+    }
+
+    public SubState getPreviousSubState() {
+        return previousState != null ? SubState.parse(previousState.getSubState()) : SubState.UNKNOWN;
+    }
+
+    /**
+     * Returns the state names (including those unknown to the enumerations).<p>
+     *
+     * @return The state after the change.
+     */
+    public StateTuple getState() {
+        return state;
+    }
+
+    /**
+     * @return The state before the change or <code>null</code> if unknown.
+     */
+    public StateTuple getPreviousState() {
+        return previousState;
+    }
+
+    /**
+     * @return The invocation ID (hex string) or <code>null</code> if not contained in the signal.
+     */
+    public String getInvocationId() {
+        return invocationId;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[unit=%s, state=%s, previousState=%s, invocationId=%s, timestamp=%d]", getClass().getSimpleName(), unit, state, previousState, invocationId, timestamp);
+    }
+
+}
@@ -20,4 +20,15 @@ public interface UnitStateListener {
 
     void stateChanged(Unit unit, Map<String, Variant<?>> changedProperties);
 
+    /**
+     * Called by adapters with the event of a state change, which is shared by
+     * all listeners. Override to use the typed states instead of the changed
+     * properties.<p>
+     *
+     * @param event The event.
+     */
+    default void stateChanged(final UnitStateEvent event) {
+        stateChanged(event.getUnit(), event.getChangedProperties());
+    }
+
 }
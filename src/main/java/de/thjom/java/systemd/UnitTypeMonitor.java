@@ -11,10 +11,21 @@
 
 package de.thjom.java.systemd;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.DBusSignal;
 import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
 
+import de.thjom.java.systemd.interfaces.ManagerInterface.Reloading;
+import de.thjom.java.systemd.interfaces.ManagerInterface.UnitNew;
+import de.thjom.java.systemd.interfaces.ManagerInterface.UnitRemoved;
 import de.thjom.java.systemd.types.UnitType;
 
 public class UnitTypeMonitor extends UnitMonitor {
@@ -37,10 +48,83 @@ public class UnitTypeMonitor extends UnitMonitor {
 
     protected final EnumSet<MonitoredType> monitoredTypes = EnumSet.noneOf(MonitoredType.class);
 
+    private boolean patternListing = true;
+
+    private UnitNewHandler unitNewHandler;
+    private UnitRemovedHandler unitRemovedHandler;
+
+    private ForwardingHandler<DBusSignal> forwarder;
+    private DBusSigHandler<UnitNew> unitNewForwarder;
+    private DBusSigHandler<UnitRemoved> unitRemovedForwarder;
+    private DBusSigHandler<Reloading> reloadingForwarder;
+
     public UnitTypeMonitor(final Manager manager) {
         super(manager);
     }
 
+    /**
+     * Registers handlers which add and remove units of the monitored types
+     * on <code>UnitNew</code> and <code>UnitRemoved</code> signals and do a
+     * full refresh after a reload. All signals pass one sequenced consumer,
+     * so a unit removed and re-added is handled in emission order.
+     */
+    @Override
+    public void addDefaultHandlers() throws DBusException {
+        manager.subscribe();
+
+        unitNewHandler = new UnitNewHandler();
+        unitRemovedHandler = new UnitRemovedHandler();
+        reloadingHandler = new ReloadingHandler();
+
+        forwarder = new ForwardingHandler<>(manager.createConsumer(this::apply), manager.getSignalDispatcher());
+        forwarder.startConsumer();
+
+        unitNewForwarder = forwarder::handle;
+        manager.addHandler(UnitNew.class, unitNewForwarder);
+
+        unitRemovedForwarder = forwarder::handle;
+        manager.addHandler(UnitRemoved.class, unitRemovedForwarder);
+
+        reloadingForwarder = forwarder::handle;
+        manager.addHandler(Reloading.class, reloadingForwarder);
+    }
+
+    @Override
+    public void removeDefaultHandlers() throws DBusException {
+        if (forwarder == null) {
+            return;
+        }
+
+        manager.removeHandler(UnitNew.class, unitNewForwarder);
+        manager.removeHandler(UnitRemoved.class, unitRemovedForwarder);
+        manager.removeHandler(Reloading.class, reloadingForwarder);
+
+        forwarder.stopConsumer();
+        forwarder = null;
+    }
+
+    private void apply(final DBusSignal signal) {
+        if (signal instanceof UnitNew) {
+            unitNewHandler.handle((UnitNew) signal);
+        }
+        else if (signal instanceof UnitRemoved) {
+            unitRemovedHandler.handle((UnitRemoved) signal);
+        }
+        else if (signal instanceof Reloading) {
+            reloadingHandler.handle((Reloading) signal);
+        }
+    }
+
+    protected boolean isIncluded(final String unitName) {
+        for (MonitoredType monitoredType : monitoredTypes) {
+            if (unitName.endsWith("." + monitoredType.name().toLowerCase())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     protected boolean isIncluded(final UnitType unit) {
         boolean monitored = false;
 
@@ -102,26 +186,66 @@ public class UnitTypeMonitor extends UnitMonitor {
     public synchronized void reset() {
         monitoredTypes.clear();
         monitoredUnits.clear();
+        unitStates.clear();
+
+        updateStateRoutes();
     }
 
     @Override
     public synchronized void refresh() throws DBusException {
         try {
-            monitoredUnits.clear();
+            Map<String, Unit> units = new HashMap<>();
+            Map<String, Unit.StateTuple> states = new HashMap<>();
 
-            for (UnitType unit : manager.listUnits()) {
+            for (UnitType unit : listUnits()) {
                 if (isIncluded(unit)) {
                     String name = unit.getUnitName();
+                    String key = Systemd.escapePath(name);
+                    Unit monitored = monitoredUnits.get(key);
 
-                    monitoredUnits.put(Systemd.escapePath(name), manager.getUnit(name));
+                    units.put(key, monitored != null ? monitored : manager.getUnit(name));
+                    states.put(key, new Unit.StateTuple(unit.getLoadState(), unit.getActiveState(), unit.getSubState()));
                 }
             }
+
+            updateMonitoredUnits(units, states);
         }
         finally {
             unitMonitorListeners.forEach(l -> l.monitorRefreshed(monitoredUnits.values()));
         }
     }
 
+    /**
+     * Lists the units of all monitored types. The unit types are filtered on
+     * the bus side by name pattern (e.g. <code>*.service</code>), falling back
+     * to listing all units for systemd versions without
+     * <code>ListUnitsByPatterns</code>.
+     */
+    private List<UnitType> listUnits() {
+        if (monitoredTypes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        if (patternListing) {
+            List<String> patterns = new ArrayList<>(monitoredTypes.size());
+
+            for (MonitoredType monitoredType : monitoredTypes) {
+                patterns.add("*." + monitoredType.name().toLowerCase());
+            }
+
+            try {
+                return manager.listUnitsByPatterns(Collections.emptyList(), patterns);
+            }
+            catch (final DBusExecutionException e) {
+                log.warn("Unable to list units by patterns, falling back to listing all units", e);
+
+                patternListing = false;
+            }
+        }
+
+        return manager.listUnits();
+    }
+
     public final void addMonitoredTypes(final MonitoredType... monitoredTypes) throws DBusException {
         for (MonitoredType monitoredType : monitoredTypes) {
             this.monitoredTypes.add(monitoredType);
@@ -138,6 +262,41 @@ public class UnitTypeMonitor extends UnitMonitor {
         refresh();
     }
 
+    public class UnitNewHandler implements DBusSigHandler<UnitNew> {
+
+        @Override
+        public void handle(final UnitNew signal) {
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Signal received (unit new: %s)", signal.getId()));
+            }
+
+            synchronized (UnitTypeMonitor.this) {
+                if (isIncluded(signal.getId())) {
+                    try {
+                        addMonitoredUnit(signal.getId());
+                    }
+                    catch (final DBusException e) {
+                        log.error(ERROR_MSG_MONITOR_REFRESH, e);
+                    }
+                }
+            }
+        }
+
+    }
+
+    public class UnitRemovedHandler implements DBusSigHandler<UnitRemoved> {
+
+        @Override
+        public void handle(final UnitRemoved signal) {
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Signal received (unit removed: %s)", signal.getId()));
+            }
+
+            removeMonitoredUnit(signal.getId());
+        }
+
+    }
+
     @Override
     public boolean monitorsUnit(final String unitName) {
         boolean monitored = super.monitorsUnit(unitName);
@@ -62,6 +62,15 @@ public interface ManagerInterface extends DBusInterface {
     @DBusMemberName(value = "ListUnits")
     List<UnitType> listUnits();
 
+    @DBusMemberName(value = "ListUnitsByNames")
+    List<UnitType> listUnitsByNames(List<String> names);
+
+    @DBusMemberName(value = "ListUnitsByPatterns")
+    List<UnitType> listUnitsByPatterns(List<String> states, List<String> patterns);
+
+    @DBusMemberName(value = "ListUnitsFiltered")
+    List<UnitType> listUnitsFiltered(List<String> states);
+
     @DBusMemberName(value = "LoadUnit")
     Path loadUnit(String name);
 
@@ -11,6 +11,8 @@
 
 package de.thjom.java.systemd.interfaces;
 
+import java.util.Map;
+
 import org.freedesktop.dbus.DBusInterface;
 import org.freedesktop.dbus.DBusInterfaceName;
 import org.freedesktop.dbus.DBusMemberName;
@@ -22,4 +24,7 @@ public interface PropertyInterface extends DBusInterface {
     @DBusMemberName(value = "Get")
     Variant<?> getProperty(String iface, String property);
 
+    @DBusMemberName(value = "GetAll")
+    Map<String, Variant<?>> getAllProperties(String iface);
+
 }
@@ -11,16 +11,21 @@
 
 package de.thjom.java.systemd;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Vector;
 
+import org.freedesktop.DBus;
+import org.freedesktop.dbus.CallbackHandler;
 import org.freedesktop.dbus.DBusConnection;
 import org.freedesktop.dbus.UInt64;
 import org.freedesktop.dbus.Variant;
 import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -31,6 +36,7 @@ import org.testng.Assert;
 
 import de.thjom.java.systemd.interfaces.ManagerInterface;
 import de.thjom.java.systemd.interfaces.PropertyInterface;
+import de.thjom.java.systemd.interfaces.ServiceInterface;
 
 class AbstractTestCase {
 
@@ -43,6 +49,9 @@ class AbstractTestCase {
     @Mock
     protected PropertyInterface piface;
 
+    @Mock
+    protected DBus bus;
+
     @InjectMocks
     protected Systemd systemd;
 
@@ -52,12 +61,62 @@ class AbstractTestCase {
         try {
             Mockito.when(dbus.getRemoteObject(Systemd.SERVICE_NAME, Systemd.OBJECT_PATH, ManagerInterface.class)).thenReturn(miface);
             Mockito.when(dbus.getRemoteObject(Mockito.eq(Systemd.SERVICE_NAME), Mockito.anyString(), Mockito.eq(PropertyInterface.class))).thenReturn(piface);
+            Mockito.when(dbus.getRemoteObject(InterfaceAdapter.DBUS_SERVICE_NAME, InterfaceAdapter.DBUS_OBJECT_PATH, DBus.class)).thenReturn(bus);
         }
         catch (DBusException e) {
             Assert.fail(e.getMessage(), e);
         }
     }
 
+    /**
+     * Lets the connection return a service interface mock for any object path.
+     */
+    protected void setupServiceMocks() {
+        try {
+            Mockito.when(dbus.getRemoteObject(Mockito.eq(Systemd.SERVICE_NAME), Mockito.anyString(), Mockito.eq(ServiceInterface.class))).then(invocation -> {
+                ServiceInterface siface = Mockito.mock(ServiceInterface.class);
+                Mockito.when(siface.getObjectPath()).thenReturn(invocation.getArgument(1));
+
+                return siface;
+            });
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Answers asynchronous calls of manager methods (with two arguments) by
+     * the stubbed methods of the manager interface mock.
+     */
+    @SuppressWarnings("unchecked")
+    protected void setupCallbackMocks() {
+        Mockito.doAnswer(invocation -> {
+            String methodName = invocation.getArgument(1);
+            CallbackHandler<Object> callback = invocation.getArgument(2);
+            Object[] args = Arrays.copyOfRange(invocation.getArguments(), 3, invocation.getArguments().length);
+
+            Method method = Arrays.stream(ManagerInterface.class.getMethods())
+                    .filter(m -> m.getName().equals(methodName) && m.getParameterCount() == args.length)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(methodName));
+
+            try {
+                callback.handle(method.invoke(miface, args));
+            }
+            catch (final InvocationTargetException e) {
+                if (e.getCause() instanceof DBusExecutionException) {
+                    callback.handleError((DBusExecutionException) e.getCause());
+                }
+                else {
+                    throw e.getCause();
+                }
+            }
+
+            return null;
+        }).when(dbus).callWithCallback(Mockito.eq(miface), Mockito.anyString(), Mockito.any(CallbackHandler.class), Mockito.any(), Mockito.any());
+    }
+
     protected void setupPropertyMocks(final Class<?> iface, final String serviceName, final String[] propertyNames) {
         try {
             for (String propertyName : propertyNames) {
@@ -0,0 +1,127 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import org.freedesktop.dbus.CallbackHandler;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.Unit.Mode;
+
+public class BulkOperationTest extends AbstractTestCase {
+
+    private Manager manager;
+    private FakeSystemd fake;
+
+    @Override
+    @BeforeClass(alwaysRun=true)
+    public void setup() {
+        super.setup();
+
+        try {
+            manager = systemd.getManager();
+
+            fake = new FakeSystemd(dbus, manager);
+            fake.answerJobCalls(dbus);
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    @AfterClass(alwaysRun=true)
+    public void teardown() throws DBusException {
+        manager.getJobTracker().stop();
+        fake.shutdown();
+    }
+
+    @Test(description="Tests bounded parallelism and aggregation of job results.")
+    public void testBulkStart() throws DBusException {
+        List<String> names = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+            names.add(String.format("worker@%d.service", i));
+        }
+
+        names.add("failing.service");
+        names.add("bogus.service");
+
+        fake.resetMaxInFlight();
+
+        BulkResult result = manager.bulk().concurrency(8).start(names, Mode.REPLACE);
+
+        Assert.assertTrue(fake.getMaxInFlight() <= 8);
+        Assert.assertEquals(result.getOutcomes().size(), names.size());
+        Assert.assertEquals(result.getOutcomes().get(0).getUnitName(), "worker@0.service");
+        Assert.assertEquals(result.getFailures().size(), 2);
+        Assert.assertFalse(result.isSuccess());
+
+        BulkResult.Outcome failing = result.getOutcomes().get(50);
+        Assert.assertEquals(failing.getResult().get(), JobResult.FAILED);
+        Assert.assertTrue(failing.getJob().isPresent());
+
+        BulkResult.Outcome bogus = result.getOutcomes().get(51);
+        Assert.assertFalse(bogus.getResult().isPresent());
+        Assert.assertTrue(bogus.getError().get() instanceof DBusExecutionException);
+
+        Mockito.verify(dbus, Mockito.times(52)).callWithCallback(Mockito.eq(miface), Mockito.eq("startUnit"), Mockito.any(CallbackHandler.class), Mockito.any(), Mockito.eq(Mode.REPLACE.getValue()));
+    }
+
+    @Test(description="Tests units whose jobs are not removed within the timeout.")
+    public void testTimeout() throws DBusException {
+        BulkResult result = manager.bulk().concurrency(1).timeout(200L).restart(Arrays.asList("stuck.service", "worker@1.service"), Mode.FAIL);
+
+        Assert.assertEquals(result.getFailures().size(), 2);
+        Assert.assertTrue(result.getOutcomes().get(0).getError().get() instanceof TimeoutException);
+        Assert.assertTrue(result.getOutcomes().get(1).getError().get() instanceof TimeoutException);
+        Assert.assertEquals(result.getOutcomes().get(1).getDuration(), 0L);
+    }
+
+    @Test(description="Tests units whose jobs cannot be tracked because the tracker has been stopped.")
+    public void testStoppedTracker() throws DBusException {
+        JobTracker tracker = manager.getJobTracker();
+
+        fake.setCallListener(u -> {
+            try {
+                tracker.stop();
+            }
+            catch (DBusException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        try {
+            BulkResult result = manager.bulk().concurrency(1).timeout(5000L).stop(Arrays.asList("worker@2.service", "worker@3.service"), Mode.REPLACE);
+
+            // Window permits are released, so the second unit is called as well
+            Assert.assertEquals(result.getFailures().size(), 2);
+            Assert.assertTrue(result.getOutcomes().get(0).getError().get() instanceof IllegalStateException);
+            Assert.assertTrue(result.getOutcomes().get(1).getError().get() instanceof IllegalStateException);
+            Assert.assertTrue(result.getDuration() < 2000L);
+        }
+        finally {
+            fake.setCallListener(u -> {});
+            manager.getJobTracker();
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.freedesktop.dbus.CallbackHandler;
+import org.freedesktop.dbus.DBusConnection;
+import org.freedesktop.dbus.DBusInterface;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.Path;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import de.thjom.java.systemd.interfaces.ManagerInterface.JobRemoved;
+
+/**
+ * Simulates the job handling of systemd on a mocked connection. Job paths
+ * are numbered, removals are signalled to the job tracker of the manager.
+ */
+final class FakeSystemd {
+
+    static final String JOB_PATH = Systemd.OBJECT_PATH + "/job/";
+
+    private final ScheduledExecutorService pid1 = Executors.newSingleThreadScheduledExecutor();
+
+    private final AtomicLong jobIds = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private final DBusSigHandler<JobRemoved> handler;
+
+    private volatile Consumer<String> callListener = u -> {};
+
+    /**
+     * Starts the job tracker of the manager and captures its handler.<p>
+     *
+     * @param dbus The mocked connection.
+     * @param manager The manager.
+     * @throws DBusException If the job tracker cannot be started.
+     */
+    @SuppressWarnings("unchecked")
+    FakeSystemd(final DBusConnection dbus, final Manager manager) throws DBusException {
+        manager.getJobTracker();
+
+        ArgumentCaptor<DBusSigHandler<JobRemoved>> captor = ArgumentCaptor.forClass(DBusSigHandler.class);
+        Mockito.verify(dbus, Mockito.atLeastOnce()).addSigHandler(Mockito.eq(JobRemoved.class), captor.capture());
+
+        List<DBusSigHandler<JobRemoved>> handlers = captor.getAllValues();
+        handler = handlers.get(handlers.size() - 1);
+    }
+
+    /**
+     * Answers asynchronous job method calls: replies with a new job and
+     * removes it a little later. Calls for <code>bogus*</code> units fail,
+     * jobs of <code>failing*</code> units fail and those of
+     * <code>stuck*</code> units are never removed.<p>
+     *
+     * @param dbus The mocked connection.
+     */
+    @SuppressWarnings("unchecked")
+    void answerJobCalls(final DBusConnection dbus) {
+        Mockito.doAnswer(invocation -> {
+            CallbackHandler<Path> callback = invocation.getArgument(2);
+            String unitName = invocation.getArgument(3);
+
+            callListener.accept(unitName);
+
+            if (unitName.startsWith("bogus")) {
+                pid1.execute(() -> callback.handleError(new DBusExecutionException("No such unit")));
+
+                return null;
+            }
+
+            Path job = nextJob();
+
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+            pid1.execute(() -> callback.handle(job));
+
+            if (!unitName.startsWith("stuck")) {
+                pid1.schedule(() -> {
+                    inFlight.decrementAndGet();
+                    removeJob(job, unitName, unitName.startsWith("failing") ? "failed" : "done");
+
+                    return null;
+                }, 5L, TimeUnit.MILLISECONDS);
+            }
+
+            return null;
+        }).when(dbus).callWithCallback(Mockito.any(DBusInterface.class), Mockito.anyString(), Mockito.any(CallbackHandler.class), Mockito.any(), Mockito.any());
+    }
+
+    Path nextJob() {
+        return new Path(JOB_PATH + jobIds.incrementAndGet());
+    }
+
+    void removeJob(final Path job, final String unitName, final String result) throws DBusException {
+        String path = job.getPath();
+
+        handler.handle(new JobRemoved(Systemd.OBJECT_PATH, Long.parseLong(path.substring(path.lastIndexOf('/') + 1)), job, unitName, result));
+    }
+
+    /**
+     * @param callListener Notified with the unit name of each answered call.
+     */
+    void setCallListener(final Consumer<String> callListener) {
+        this.callListener = callListener;
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    void resetMaxInFlight() {
+        maxInFlight.set(0);
+    }
+
+    void shutdown() {
+        pid1.shutdownNow();
+    }
+
+}
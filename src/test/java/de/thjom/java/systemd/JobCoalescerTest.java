@@ -0,0 +1,186 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.awaitility.Awaitility;
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.Path;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.Unit.Mode;
+
+public class JobCoalescerTest extends AbstractTestCase {
+
+    private Manager manager;
+    private FakeSystemd fake;
+    private DBusSigHandler<PropertiesChanged> stateHandler;
+
+    @Override
+    @BeforeClass
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        super.setup();
+        setupCallbackMocks();
+        setupServiceMocks();
+
+        try {
+            manager = systemd.getManager();
+
+            fake = new FakeSystemd(dbus, manager);
+
+            manager.getJobTracker().setJobTimeout(0L);
+            manager.setJobCoalescing(true);
+
+            ArgumentCaptor<DBusSigHandler<PropertiesChanged>> stateCaptor = ArgumentCaptor.forClass(DBusSigHandler.class);
+            Mockito.verify(dbus).addSigHandler(Mockito.eq(PropertiesChanged.class), stateCaptor.capture());
+
+            stateHandler = stateCaptor.getValue();
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    @Test(description="Tests attaching identical requests to a pending job.")
+    public void testCoalescing() throws Exception {
+        Mockito.when(miface.restartUnit(Mockito.eq("cronie.service"), Mockito.anyString())).then(i -> fake.nextJob());
+
+        long coalesced = manager.getCoalescedJobCount();
+
+        CompletableFuture<JobResult> first = manager.restartUnitAsync("cronie.service", Mode.REPLACE);
+        CompletableFuture<JobResult> second = manager.getService("cronie").restartAsync(Mode.REPLACE);
+        Path job = manager.restartUnit("cronie.service", Mode.REPLACE);
+        CompletableFuture<JobResult> other = manager.restartUnitAsync("cronie.service", Mode.FAIL);
+
+        Mockito.verify(miface, Mockito.times(1)).restartUnit("cronie.service", Mode.REPLACE.getValue());
+        Mockito.verify(miface, Mockito.times(1)).restartUnit("cronie.service", Mode.FAIL.getValue());
+        Assert.assertEquals(manager.getCoalescedJobCount() - coalesced, 2L);
+        Assert.assertNotSame(first, second);
+
+        // Cancelling an attached request does not affect the others
+        second.cancel(false);
+
+        fake.removeJob(job, "cronie.service", "done");
+
+        Assert.assertEquals(first.get(2L, TimeUnit.SECONDS), JobResult.DONE);
+        Assert.assertFalse(other.isDone());
+
+        // Requests after the job has been removed enqueue a new job
+        Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> !manager.restartUnit("cronie.service", Mode.REPLACE).equals(job));
+
+        Mockito.verify(miface, Mockito.times(2)).restartUnit("cronie.service", Mode.REPLACE.getValue());
+    }
+
+    @Test(description="Tests attaching to a job whose method call is still in flight.")
+    public void testInFlight() throws Exception {
+        CountDownLatch called = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Mockito.when(miface.reloadOrRestartUnit("sshd.service", Mode.REPLACE.getValue())).then(i -> {
+            called.countDown();
+            release.await(2L, TimeUnit.SECONDS);
+
+            return fake.nextJob();
+        });
+
+        CompletableFuture<Path> first = CompletableFuture.supplyAsync(() -> manager.reloadOrRestartUnit("sshd.service", Mode.REPLACE));
+
+        Assert.assertTrue(called.await(2L, TimeUnit.SECONDS));
+
+        CompletableFuture<Path> second = CompletableFuture.supplyAsync(() -> manager.reloadOrRestartUnit("sshd.service", Mode.REPLACE));
+
+        Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> manager.getCoalescedJobCount() > 0L);
+        Assert.assertFalse(second.isDone());
+
+        release.countDown();
+
+        Assert.assertEquals(second.get(2L, TimeUnit.SECONDS), first.get(2L, TimeUnit.SECONDS));
+        Mockito.verify(miface, Mockito.times(1)).reloadOrRestartUnit("sshd.service", Mode.REPLACE.getValue());
+
+        fake.removeJob(first.get(), "sshd.service", "done");
+    }
+
+    @Test(description="Tests that requests do not attach to a running job.")
+    public void testRunningJob() throws Exception {
+        Mockito.when(miface.startUnit(Mockito.eq("sshd.service"), Mockito.anyString())).then(i -> fake.nextJob());
+
+        Path waiting = manager.startUnit("sshd.service", Mode.REPLACE);
+
+        // Other interfaces and waiting jobs do not detach the job
+        stateHandler.handle(new PropertiesChanged(waiting.getPath(), Unit.SERVICE_NAME, Collections.singletonMap("State", new Variant<>("running")), Collections.emptyList()));
+        stateHandler.handle(createJobStateChanged(waiting, JobCoalescer.STATE_WAITING));
+
+        Assert.assertEquals(manager.startUnit("sshd.service", Mode.REPLACE), waiting);
+
+        stateHandler.handle(createJobStateChanged(waiting, "running"));
+
+        Path next = manager.startUnit("sshd.service", Mode.REPLACE);
+
+        Assert.assertNotEquals(next, waiting);
+        Mockito.verify(miface, Mockito.times(2)).startUnit("sshd.service", Mode.REPLACE.getValue());
+
+        // A job running before the reply of its call is not joinable either
+        Path early = fake.nextJob();
+
+        Mockito.when(miface.startUnit("sshd.service", Mode.FAIL.getValue())).then(i -> {
+            stateHandler.handle(createJobStateChanged(early, "running"));
+
+            return early;
+        });
+
+        Assert.assertEquals(manager.startUnit("sshd.service", Mode.FAIL), early);
+        Assert.assertEquals(manager.startUnit("sshd.service", Mode.FAIL), early);
+        Mockito.verify(miface, Mockito.times(2)).startUnit("sshd.service", Mode.FAIL.getValue());
+
+        fake.removeJob(waiting, "sshd.service", "done");
+        fake.removeJob(next, "sshd.service", "done");
+        fake.removeJob(early, "sshd.service", "done");
+    }
+
+    @Test(description="Tests failed method calls not being retained.")
+    public void testFailure() throws Exception {
+        Mockito.when(miface.stopUnit("bogus.service", Mode.REPLACE.getValue())).thenThrow(new DBusExecutionException("No such unit")).thenReturn(fake.nextJob());
+
+        CompletableFuture<JobResult> failed = manager.stopUnitAsync("bogus.service", Mode.REPLACE);
+
+        try {
+            failed.get(2L, TimeUnit.SECONDS);
+
+            Assert.fail("Call should have failed");
+        }
+        catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof DBusExecutionException);
+        }
+
+        Assert.assertNotNull(manager.stopUnit("bogus.service", Mode.REPLACE));
+        Mockito.verify(miface, Mockito.times(2)).stopUnit("bogus.service", Mode.REPLACE.getValue());
+    }
+
+    private static PropertiesChanged createJobStateChanged(final Path job, final String state) throws DBusException {
+        return new PropertiesChanged(job.getPath(), JobCoalescer.JOB_INTERFACE, Collections.singletonMap("State", new Variant<>(state)), Collections.emptyList());
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.awaitility.Awaitility;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.Path;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.Unit.Mode;
+import de.thjom.java.systemd.interfaces.ManagerInterface.JobRemoved;
+
+public class JobTrackerTest extends AbstractTestCase {
+
+    private static final String JOB_PATH = Systemd.OBJECT_PATH + "/job/";
+
+    private Manager manager;
+    private DBusSigHandler<JobRemoved> handler;
+
+    @Override
+    @BeforeClass
+    public void setup() {
+        super.setup();
+        setupCallbackMocks();
+
+        try {
+            manager = systemd.getManager();
+
+            startTracker();
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void startTracker() throws DBusException {
+        manager.getJobTracker().setJobTimeout(0L);
+
+        ArgumentCaptor<DBusSigHandler<JobRemoved>> captor = ArgumentCaptor.forClass(DBusSigHandler.class);
+        Mockito.verify(dbus, Mockito.atLeastOnce()).addSigHandler(Mockito.eq(JobRemoved.class), captor.capture());
+
+        handler = captor.getAllValues().get(captor.getAllValues().size() - 1);
+    }
+
+    @Test(description="Tests completion of job futures by JobRemoved signals.")
+    public void testCompletion() throws Exception {
+        Mockito.when(miface.startUnit("cronie.service", Mode.REPLACE.getValue())).thenReturn(new Path(JOB_PATH + "1"));
+        Mockito.when(miface.stopUnit("sshd.service", Mode.FAIL.getValue())).thenReturn(new Path(JOB_PATH + "2"));
+
+        CompletableFuture<JobResult> started = manager.startUnitAsync("cronie.service", Mode.REPLACE);
+        CompletableFuture<JobResult> stopped = manager.stopUnitAsync("sshd.service", Mode.FAIL);
+
+        Assert.assertSame(manager.getJobTracker().track(new Path(JOB_PATH + "1")), manager.getJobTracker().track(new Path(JOB_PATH + "1")));
+        Assert.assertEquals(manager.getJobTracker().getPendingCount(), 2);
+        Mockito.verify(dbus).callWithCallback(Mockito.eq(miface), Mockito.eq("startUnit"), Mockito.any(), Mockito.eq("cronie.service"), Mockito.eq(Mode.REPLACE.getValue()));
+
+        handler.handle(new JobRemoved(Systemd.OBJECT_PATH, 2L, new Path(JOB_PATH + "2"), "sshd.service", "canceled"));
+        handler.handle(new JobRemoved(Systemd.OBJECT_PATH, 1L, new Path(JOB_PATH + "1"), "cronie.service", "done"));
+
+        Assert.assertEquals(started.get(2L, TimeUnit.SECONDS), JobResult.DONE);
+        Assert.assertEquals(stopped.get(2L, TimeUnit.SECONDS), JobResult.CANCELED);
+        Assert.assertTrue(started.get().isSuccess());
+        Assert.assertEquals(manager.getJobTracker().getPendingCount(), 0);
+    }
+
+    @Test(description="Tests jobs removed before their future has been requested.")
+    public void testEarlyRemoval() throws Exception {
+        Path job = new Path(JOB_PATH + "3");
+
+        handler.handle(new JobRemoved(Systemd.OBJECT_PATH, 3L, job, "cronie.service", "failed"));
+
+        // Signal is handled by the consumer thread
+        Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> manager.getJobTracker().getRetainedCount() == 1);
+
+        Mockito.when(miface.restartUnit("cronie.service", Mode.REPLACE.getValue())).thenReturn(job);
+
+        CompletableFuture<JobResult> restarted = manager.restartUnitAsync("cronie.service", Mode.REPLACE);
+
+        Assert.assertEquals(restarted.get(2L, TimeUnit.SECONDS), JobResult.FAILED);
+        Assert.assertEquals(manager.getJobTracker().getPendingCount(), 0);
+    }
+
+    @Test(description="Tests failed method calls, timeouts and stopping the tracker.")
+    public void testFailures() throws Exception {
+        Mockito.when(miface.reloadUnit("bogus.service", Mode.REPLACE.getValue())).thenThrow(new DBusExecutionException("No such unit"));
+
+        CompletableFuture<JobResult> reloaded = manager.reloadUnitAsync("bogus.service", Mode.REPLACE);
+
+        try {
+            reloaded.get();
+            Assert.fail("Exception expected");
+        }
+        catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof DBusExecutionException);
+        }
+
+        manager.getJobTracker().setJobTimeout(100L);
+
+        CompletableFuture<JobResult> timedOut = manager.getJobTracker().track(new Path(JOB_PATH + "4"));
+
+        try {
+            timedOut.get(2L, TimeUnit.SECONDS);
+            Assert.fail("Exception expected");
+        }
+        catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+
+        manager.getJobTracker().setJobTimeout(0L);
+
+        CompletableFuture<JobResult> cancelled = manager.getJobTracker().track(new Path(JOB_PATH + "5"));
+        manager.getJobTracker().stop();
+
+        Assert.assertTrue(cancelled.isCompletedExceptionally());
+
+        startTracker();
+    }
+
+    @Test(description="Tests a tracker stopped while the method call is in flight.")
+    public void testStoppedWhileCalling() throws Exception {
+        JobTracker tracker = manager.getJobTracker();
+
+        Mockito.when(miface.stopUnit("cronie.service", Mode.REPLACE.getValue())).then(i -> {
+            tracker.stop();
+
+            return new Path(JOB_PATH + "6");
+        });
+
+        CompletableFuture<JobResult> stopped = manager.stopUnitAsync("cronie.service", Mode.REPLACE);
+
+        try {
+            stopped.get(2L, TimeUnit.SECONDS);
+            Assert.fail("Exception expected");
+        }
+        catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        startTracker();
+    }
+
+}
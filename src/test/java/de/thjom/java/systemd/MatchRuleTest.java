@@ -0,0 +1,44 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.interfaces.ManagerInterface.UnitNew;
+
+public class MatchRuleTest {
+
+    @Test(description="Tests formatting of match rules.")
+    public void testFormatting() throws DBusException {
+        Assert.assertEquals(MatchRule.signal(UnitNew.class).toString(), "type='signal',interface='org.freedesktop.systemd1.Manager',member='UnitNew'");
+
+        MatchRule rule = MatchRule.signal(PropertiesChanged.class)
+                .sender(Systemd.SERVICE_NAME)
+                .pathNamespace("/org/freedesktop/systemd1/unit")
+                .arg(2, "it's")
+                .arg(0, Unit.SERVICE_NAME);
+
+        Assert.assertEquals(rule.toString(), "type='signal',sender='org.freedesktop.systemd1',interface='org.freedesktop.DBus.Properties',member='PropertiesChanged',"
+                + "path_namespace='/org/freedesktop/systemd1/unit',arg0='org.freedesktop.systemd1.Unit',arg2='it'\\''s'");
+
+        Assert.assertEquals(MatchRule.signal(PropertiesChanged.class).path("/a"), MatchRule.signal(PropertiesChanged.class).path("/a"));
+    }
+
+    @Test(description="Tests argument index validation.", expectedExceptions=IllegalArgumentException.class)
+    public void testArgIndex() throws DBusException {
+        MatchRule.signal(PropertiesChanged.class).arg(64, "value");
+    }
+
+}
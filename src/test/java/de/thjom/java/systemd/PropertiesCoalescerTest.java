@@ -0,0 +1,119 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.awaitility.Awaitility;
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PropertiesCoalescerTest {
+
+    private static final String OBJECT_PATH_CRONIE = Unit.OBJECT_PATH + Systemd.escapePath("cronie.service");
+    private static final String OBJECT_PATH_SSHD = Unit.OBJECT_PATH + Systemd.escapePath("sshd.service");
+
+    @Test(description="Tests merging of property changes per object path and interface.")
+    public void testCoalescing() throws DBusException {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        SignalQueueStatistics statistics = new SignalQueueStatistics(null);
+        List<PropertiesChanged> received = Collections.synchronizedList(new ArrayList<>());
+
+        PropertiesCoalescer coalescer = new PropertiesCoalescer(received::add, scheduler, Runnable::run, 100L, statistics);
+
+        try {
+            coalescer.handle(createSignal(OBJECT_PATH_CRONIE, Unit.SERVICE_NAME, Unit.Property.ACTIVE_STATE, "deactivating", Collections.emptyList()));
+            coalescer.handle(createSignal(OBJECT_PATH_CRONIE, Unit.SERVICE_NAME, Unit.Property.SUB_STATE, "stop-sigterm", Collections.singletonList(Unit.Property.ACTIVE_ENTER_TIMESTAMP)));
+            coalescer.handle(createSignal(OBJECT_PATH_CRONIE, Service.SERVICE_NAME, Service.Property.MAIN_PID, "0", Collections.emptyList()));
+            coalescer.handle(createSignal(OBJECT_PATH_SSHD, Unit.SERVICE_NAME, Unit.Property.ACTIVE_STATE, "active", Collections.emptyList()));
+            coalescer.handle(createSignal(OBJECT_PATH_CRONIE, Unit.SERVICE_NAME, Unit.Property.ACTIVE_STATE, "active", Collections.emptyList()));
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> received.size() == 3);
+
+            Assert.assertEquals(statistics.getCoalesced(), 2L);
+
+            PropertiesChanged merged = received.stream()
+                    .filter(s -> s.getPath().equals(OBJECT_PATH_CRONIE) && s.interfaceName.equals(Unit.SERVICE_NAME))
+                    .findFirst()
+                    .get();
+
+            Assert.assertEquals(merged.changedProperties.size(), 2);
+            Assert.assertEquals(merged.changedProperties.get(Unit.Property.ACTIVE_STATE).getValue(), "active");
+            Assert.assertEquals(merged.changedProperties.get(Unit.Property.SUB_STATE).getValue(), "stop-sigterm");
+            Assert.assertEquals(merged.invalidatedProperties, Collections.singletonList(Unit.Property.ACTIVE_ENTER_TIMESTAMP));
+
+            coalescer.handle(createSignal(OBJECT_PATH_SSHD, Unit.SERVICE_NAME, Unit.Property.ACTIVE_STATE, "deactivating", Collections.emptyList()));
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> received.size() == 4);
+
+            Assert.assertEquals(received.get(3).changedProperties.get(Unit.Property.ACTIVE_STATE).getValue(), "deactivating");
+        }
+        finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test(description="Tests that merged signals are delivered by the executor instead of the scheduler.")
+    public void testDeliveryThread() throws DBusException {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "scheduler"));
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "delivery"));
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocked = new CountDownLatch(1);
+
+        PropertiesCoalescer coalescer = new PropertiesCoalescer(s -> {
+            threads.add(Thread.currentThread().getName());
+
+            try {
+                blocked.await();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, scheduler, executor, 10L, new SignalQueueStatistics(null));
+
+        try {
+            coalescer.handle(createSignal(OBJECT_PATH_CRONIE, Unit.SERVICE_NAME, Unit.Property.ACTIVE_STATE, "active", Collections.emptyList()));
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> threads.size() == 1);
+
+            // A blocked delegate must not stall the scheduler
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> scheduler.schedule(() -> true, 0L, TimeUnit.MILLISECONDS).get());
+
+            Assert.assertEquals(threads.get(0), "delivery");
+        }
+        finally {
+            blocked.countDown();
+            scheduler.shutdown();
+            executor.shutdown();
+        }
+    }
+
+    private static PropertiesChanged createSignal(final String path, final String interfaceName, final String propertyName, final String value, final List<String> invalidated) throws DBusException {
+        Map<String, Variant<?>> changed = new HashMap<>();
+        changed.put(propertyName, new Variant<>(value));
+
+        return new PropertiesChanged(path, interfaceName, changed, invalidated);
+    }
+
+}
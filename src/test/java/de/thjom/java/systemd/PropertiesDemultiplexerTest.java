@@ -0,0 +1,170 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.awaitility.Awaitility;
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.interfaces.ServiceInterface;
+
+public class PropertiesDemultiplexerTest extends AbstractTestCase {
+
+    @Override
+    @BeforeClass
+    public void setup() {
+        super.setup();
+
+        try {
+            Mockito.when(dbus.getRemoteObject(Mockito.eq(Systemd.SERVICE_NAME), Mockito.anyString(), Mockito.eq(ServiceInterface.class))).then(invocation -> {
+                ServiceInterface siface = Mockito.mock(ServiceInterface.class);
+                Mockito.when(siface.getObjectPath()).thenReturn(invocation.getArgument(1));
+
+                return siface;
+            });
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    @Test(description="Tests routing of state changes via a single shared signal handler.")
+    @SuppressWarnings("unchecked")
+    public void testRouting() throws DBusException {
+        Manager manager = systemd.getManager();
+        manager.setStateDemultiplexing(true);
+
+        Service cronie = manager.getService("cronie");
+        Service sshd = manager.getService("sshd");
+
+        UnitMonitor monitor = new UnitMonitor(manager) {
+
+            @Override
+            public void reset() {
+                // Do nothing (simple mock object)
+            }
+
+            @Override
+            public void refresh() throws DBusException {
+                // Do nothing (simple mock object)
+            }
+
+        };
+        monitor.monitoredUnits.put(Systemd.escapePath("sshd.service"), sshd);
+
+        List<String> cronieChanges = Collections.synchronizedList(new ArrayList<>());
+        List<String> sshdChanges = Collections.synchronizedList(new ArrayList<>());
+        List<String> monitorChanges = Collections.synchronizedList(new ArrayList<>());
+
+        UnitStateListener cronieListener = (u, p) -> cronieChanges.add(u.name);
+        UnitStateListener sshdListener = (u, p) -> sshdChanges.add(u.name);
+        UnitStateListener monitorListener = (u, p) -> monitorChanges.add(u.name);
+
+        Mockito.clearInvocations(dbus);
+
+        cronie.addListener(cronieListener);
+        sshd.addListener(sshdListener);
+        monitor.addListener(monitorListener);
+
+        ArgumentCaptor<DBusSigHandler<PropertiesChanged>> captor = ArgumentCaptor.forClass(DBusSigHandler.class);
+        Mockito.verify(dbus, Mockito.times(1)).addSigHandler(Mockito.eq(PropertiesChanged.class), captor.capture());
+
+        Assert.assertTrue(manager.getPropertiesDemultiplexer().isRegistered());
+
+        DBusSigHandler<PropertiesChanged> handler = captor.getValue();
+        handler.handle(createPropertiesChanged("cronie.service"));
+        handler.handle(createPropertiesChanged("sshd.service"));
+        handler.handle(createPropertiesChanged("avahi-daemon.service"));
+
+        Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> cronieChanges.size() == 1 && sshdChanges.size() == 1 && monitorChanges.size() == 1);
+
+        Assert.assertEquals(cronieChanges, Collections.singletonList("cronie.service"));
+        Assert.assertEquals(sshdChanges, Collections.singletonList("sshd.service"));
+        Assert.assertEquals(monitorChanges, Collections.singletonList("sshd.service"));
+
+        cronie.removeListener(cronieListener);
+        sshd.removeListener(sshdListener);
+
+        Mockito.verify(dbus, Mockito.never()).removeSigHandler(Mockito.eq(PropertiesChanged.class), Mockito.any(DBusSigHandler.class));
+
+        monitor.removeListener(monitorListener);
+
+        Mockito.verify(dbus).removeSigHandler(PropertiesChanged.class, handler);
+
+        Assert.assertFalse(manager.getPropertiesDemultiplexer().isRegistered());
+
+        manager.setStateDemultiplexing(false);
+    }
+
+    @Test(description="Tests that monitors route the state changes of their monitored units only.")
+    public void testMonitorRoutes() throws DBusException {
+        Manager manager = systemd.getManager();
+        manager.setStateDemultiplexing(true);
+
+        Service cronie = manager.getService("cronie");
+        Service sshd = manager.getService("sshd");
+
+        UnitMonitor monitor = new UnitMonitor(manager) {
+
+            @Override
+            public void reset() {
+                // Do nothing (simple mock object)
+            }
+
+            @Override
+            public void refresh() throws DBusException {
+                // Do nothing (simple mock object)
+            }
+
+        };
+        monitor.monitoredUnits.put(Systemd.escapePath("sshd.service"), sshd);
+
+        PropertiesDemultiplexer demultiplexer = manager.getPropertiesDemultiplexer();
+        UnitStateListener listener = (u, p) -> { /* Do nothing (test case) */ };
+
+        monitor.addListener(listener);
+
+        Assert.assertFalse(demultiplexer.isRouted(null));
+        Assert.assertTrue(demultiplexer.isRouted(sshd.getObjectPath()));
+        Assert.assertFalse(demultiplexer.isRouted(cronie.getObjectPath()));
+
+        monitor.updateMonitoredUnits(Collections.singletonMap(Systemd.escapePath("cronie.service"), cronie), Collections.emptyMap());
+
+        Assert.assertTrue(demultiplexer.isRouted(cronie.getObjectPath()));
+        Assert.assertFalse(demultiplexer.isRouted(sshd.getObjectPath()));
+        Assert.assertTrue(demultiplexer.isRegistered());
+
+        monitor.removeListener(listener);
+
+        Assert.assertFalse(demultiplexer.isRouted(cronie.getObjectPath()));
+        Assert.assertFalse(demultiplexer.isRegistered());
+
+        manager.setStateDemultiplexing(false);
+    }
+
+    private static PropertiesChanged createPropertiesChanged(final String unitName) throws DBusException {
+        return new PropertiesChanged(Unit.OBJECT_PATH + Systemd.escapePath(unitName), Unit.SERVICE_NAME, Collections.singletonMap(Unit.Property.ACTIVE_STATE, new Variant<>("active")), Collections.emptyList());
+    }
+
+}
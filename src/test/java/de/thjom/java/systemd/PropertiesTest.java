@@ -0,0 +1,246 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.awaitility.Awaitility;
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.features.TasksAccounting;
+import de.thjom.java.systemd.interfaces.PropertyInterface;
+import de.thjom.java.systemd.interfaces.ServiceInterface;
+
+public class PropertiesTest extends AbstractTestCase {
+
+    private static final String OBJECT_PATH_CRONIE = Unit.OBJECT_PATH + Systemd.escapePath("cronie.service");
+
+    @Mock
+    private ServiceInterface siface;
+
+    @Mock
+    private PropertyInterface upiface;
+
+    @Override
+    @BeforeClass
+    public void setup() {
+        super.setup();
+
+        Map<String, Variant<?>> unitProperties = new HashMap<>();
+        unitProperties.put(Unit.Property.ID, new Variant<>("cronie.service"));
+        unitProperties.put(Unit.Property.ACTIVE_STATE, new Variant<>("active"));
+        unitProperties.put(Unit.Property.SUB_STATE, new Variant<>("running"));
+
+        Map<String, Variant<?>> serviceProperties = new HashMap<>();
+        serviceProperties.put(Service.Property.MAIN_PID, new Variant<>(4711));
+        serviceProperties.put(Service.Property.TYPE, new Variant<>("forking"));
+
+        try {
+            Mockito.when(siface.getObjectPath()).thenReturn(OBJECT_PATH_CRONIE);
+            Mockito.when(dbus.getRemoteObject(Systemd.SERVICE_NAME, OBJECT_PATH_CRONIE, ServiceInterface.class)).thenReturn(siface);
+            Mockito.when(dbus.getRemoteObject(Systemd.SERVICE_NAME, OBJECT_PATH_CRONIE, PropertyInterface.class)).thenReturn(upiface);
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+
+        Mockito.when(upiface.getObjectPath()).thenReturn(OBJECT_PATH_CRONIE);
+        Mockito.when(upiface.getAllProperties(Unit.SERVICE_NAME)).thenReturn(unitProperties);
+        Mockito.when(upiface.getAllProperties(Service.SERVICE_NAME)).thenReturn(serviceProperties);
+        Mockito.doReturn(new Variant<>("inactive")).when(upiface).getProperty(Unit.SERVICE_NAME, Unit.Property.ACTIVE_STATE);
+        Mockito.doReturn(new Variant<>("Command Scheduler")).when(upiface).getProperty(Unit.SERVICE_NAME, Unit.Property.DESCRIPTION);
+    }
+
+    @Test(description="Tests retrieval of a snapshot of a single interface.")
+    public void testSnapshot() throws DBusException {
+        Service service = systemd.getManager().getService("cronie");
+        PropertySnapshot snapshot = service.getUnitProperties().snapshot();
+
+        Assert.assertEquals(snapshot.getObjectPath(), OBJECT_PATH_CRONIE);
+        Assert.assertEquals(snapshot.getInterfaceNames().size(), 1);
+        Assert.assertTrue(snapshot.contains(Unit.Property.ID));
+        Assert.assertFalse(snapshot.contains(Service.Property.MAIN_PID));
+        Assert.assertEquals(snapshot.getString(Unit.Property.SUB_STATE), "running");
+
+        try {
+            snapshot.getVariant(Unit.Property.DESCRIPTION);
+
+            Assert.fail("Missing property must not be resolved");
+        }
+        catch (NoSuchElementException e) {
+            // Expected
+        }
+    }
+
+    @Test(description="Tests snapshot of a unit and snapshot attachment.")
+    public void testUnitSnapshot() throws DBusException {
+        Mockito.clearInvocations(upiface);
+
+        Service service = systemd.getManager().getService("cronie");
+        PropertySnapshot snapshot = service.snapshot();
+
+        Assert.assertEquals(snapshot.getInterfaceNames().size(), 2);
+        Assert.assertEquals(snapshot.getString(Unit.Property.ID), "cronie.service");
+        Assert.assertEquals(snapshot.getInteger(Service.Property.MAIN_PID), 4711);
+        Assert.assertEquals(snapshot.getVariant(Service.SERVICE_NAME, Service.Property.TYPE).getValue(), "forking");
+
+        Assert.assertEquals(service.getActiveState(), "inactive");
+
+        // Pooled adapters are shared and refuse snapshots
+        Assert.assertThrows(IllegalStateException.class, () -> service.attachSnapshot(snapshot));
+
+        Service view = systemd.getManager().createSnapshotView(service, snapshot);
+
+        Assert.assertNotSame(view, service);
+        Assert.assertNotSame(systemd.getManager().getService("cronie"), view);
+        Assert.assertEquals(view.getActiveState(), "active");
+        Assert.assertEquals(view.getMainPID(), 4711);
+        Assert.assertEquals(view.getType(), "forking");
+
+        // Properties missing in snapshot are still retrieved from the bus
+        Assert.assertEquals(view.getDescription(), "Command Scheduler");
+
+        Mockito.verify(upiface, Mockito.times(1)).getProperty(Unit.SERVICE_NAME, Unit.Property.ACTIVE_STATE);
+
+        Assert.assertEquals(service.getActiveState(), "inactive");
+        Assert.assertFalse(service.getUnitProperties().getAttachedSnapshot().isPresent());
+
+        view.detachSnapshot();
+
+        Assert.assertEquals(view.getActiveState(), "inactive");
+    }
+
+    @Test(description="Tests property caching and cache statistics.")
+    public void testCaching() throws DBusException {
+        Mockito.clearInvocations(upiface);
+
+        Service service = systemd.getManager().getService("cronie");
+        Properties properties = service.getUnitProperties();
+
+        Assert.assertFalse(properties.isCaching());
+
+        properties.enableCaching();
+
+        Assert.assertEquals(properties.getString(Unit.Property.DESCRIPTION), "Command Scheduler");
+        Assert.assertEquals(properties.getString(Unit.Property.DESCRIPTION), "Command Scheduler");
+        Assert.assertEquals(properties.getCacheStatistics().getHits(), 1L);
+        Assert.assertEquals(properties.getCacheStatistics().getMisses(), 1L);
+
+        Mockito.verify(upiface, Mockito.times(1)).getProperty(Unit.SERVICE_NAME, Unit.Property.DESCRIPTION);
+
+        // Signal payloads are applied in place
+        properties.update(Collections.singletonMap(Unit.Property.DESCRIPTION, new Variant<>("Cron")), Collections.emptyList());
+
+        Assert.assertEquals(properties.getString(Unit.Property.DESCRIPTION), "Cron");
+
+        properties.update(Collections.emptyMap(), Collections.singletonList(Unit.Property.DESCRIPTION));
+
+        Assert.assertEquals(properties.getString(Unit.Property.DESCRIPTION), "Command Scheduler");
+
+        // Properties without change signals are never cached
+        properties.update(Collections.singletonMap(TasksAccounting.Property.TASKS_CURRENT, new Variant<>(1L)), Collections.emptyList());
+        properties.getVariant(TasksAccounting.Property.TASKS_CURRENT);
+        properties.getVariant(TasksAccounting.Property.TASKS_CURRENT);
+
+        Mockito.verify(upiface, Mockito.times(2)).getProperty(Unit.SERVICE_NAME, TasksAccounting.Property.TASKS_CURRENT);
+
+        properties.invalidate();
+        properties.getString(Unit.Property.DESCRIPTION);
+
+        Mockito.verify(upiface, Mockito.times(3)).getProperty(Unit.SERVICE_NAME, Unit.Property.DESCRIPTION);
+
+        properties.disableCaching();
+
+        Assert.assertFalse(properties.isCaching());
+    }
+
+    @Test(description="Tests properties without change signals not being cached.")
+    public void testUncachedProperties() throws DBusException {
+        String[] propertyNames = {
+                Socket.Property.NCONNECTIONS,
+                Socket.Property.NACCEPTED,
+                Service.Property.NFILE_DESCRIPTOR_STORE,
+                Manager.Property.LOG_LEVEL,
+                Manager.Property.LOG_TARGET,
+                Manager.Property.ENVIRONMENT,
+                Manager.Property.SYSTEM_STATE,
+                Manager.Property.TAINTED,
+                Manager.Property.NJOBS,
+                TasksAccounting.Property.TASKS_CURRENT
+        };
+
+        Properties properties = systemd.getManager().getService("cronie").getUnitProperties();
+        properties.enableCaching();
+
+        try {
+            for (String propertyName : propertyNames) {
+                Assert.assertFalse(Properties.CACHEABLE_PROPERTIES.contains(propertyName), propertyName);
+
+                Mockito.clearInvocations(upiface);
+
+                properties.update(Collections.singletonMap(propertyName, new Variant<>("stale")), Collections.emptyList());
+                properties.getVariant(propertyName);
+                properties.getVariant(propertyName);
+
+                Mockito.verify(upiface, Mockito.times(2)).getProperty(Unit.SERVICE_NAME, propertyName);
+            }
+        }
+        finally {
+            properties.disableCaching();
+        }
+    }
+
+    @Test(description="Tests signal driven property caching on manager level.")
+    public void testManagerCaching() throws DBusException {
+        Manager manager = systemd.getManager();
+        Service service = manager.getService("cronie");
+
+        manager.enablePropertyCaching();
+
+        Assert.assertTrue(manager.isPropertyCaching());
+        Assert.assertTrue(service.getProperties().isCaching());
+        Assert.assertTrue(manager.getService("cronie").getUnitProperties().isCaching());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<DBusSigHandler<PropertiesChanged>> captor = ArgumentCaptor.forClass(DBusSigHandler.class);
+        Mockito.verify(dbus).addSigHandler(Mockito.eq(PropertiesChanged.class), captor.capture());
+
+        long hits = manager.getPropertyCacheStatistics().getHits();
+
+        Assert.assertEquals(service.getActiveState(), "inactive");
+
+        PropertiesChanged signal = new PropertiesChanged(OBJECT_PATH_CRONIE, Unit.SERVICE_NAME, Collections.singletonMap(Unit.Property.ACTIVE_STATE, new Variant<>("activating")), Collections.emptyList());
+        captor.getValue().handle(signal);
+
+        Awaitility.await().until(() -> "activating".equals(service.getActiveState()));
+
+        Assert.assertTrue(manager.getPropertyCacheStatistics().getHits() > hits);
+
+        manager.disablePropertyCaching();
+
+        Assert.assertFalse(service.getProperties().isCaching());
+        Assert.assertEquals(service.getActiveState(), "inactive");
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.freedesktop.dbus.CallbackHandler;
+import org.freedesktop.dbus.DBusInterface;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.interfaces.PropertyInterface;
+
+public class PropertyFetcherTest extends AbstractTestCase {
+
+    private static final String UNKNOWN_PROPERTY = "Unknown";
+
+    private final ExecutorService bus = Executors.newFixedThreadPool(32);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private volatile long latency;
+
+    @Override
+    @BeforeClass(alwaysRun=true)
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        super.setup();
+
+        Mockito.when(piface.getProperty(Mockito.anyString(), Mockito.anyString())).then(invocation -> {
+            String iface = invocation.getArgument(0);
+            String property = invocation.getArgument(1);
+
+            if (latency > 0L) {
+                Thread.sleep(latency);
+            }
+
+            if (UNKNOWN_PROPERTY.equals(property)) {
+                throw new DBusExecutionException("Unknown property");
+            }
+
+            return new Variant<>(iface + "/" + property);
+        });
+
+        Mockito.doAnswer(invocation -> {
+            PropertyInterface iface = invocation.getArgument(0);
+            CallbackHandler<Variant<?>> callback = invocation.getArgument(2);
+            String serviceName = invocation.getArgument(3);
+            String propertyName = invocation.getArgument(4);
+
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+            bus.submit(() -> {
+                try {
+                    Variant<?> value = iface.getProperty(serviceName, propertyName);
+
+                    inFlight.decrementAndGet();
+                    callback.handle(value);
+                }
+                catch (final DBusExecutionException e) {
+                    inFlight.decrementAndGet();
+                    callback.handleError(e);
+                }
+            });
+
+            return null;
+        }).when(dbus).callWithCallback(Mockito.any(DBusInterface.class), Mockito.eq(PropertyFetcher.METHOD_GET), Mockito.any(CallbackHandler.class), Mockito.any(), Mockito.any());
+    }
+
+    @AfterClass(alwaysRun=true)
+    public void teardown() {
+        bus.shutdownNow();
+    }
+
+    @Test(description="Tests resolution of the providing interface by property and unit name.")
+    public void testResolveServiceName() {
+        Assert.assertEquals(PropertyFetcher.resolveServiceName("cronie.service", Unit.Property.ACTIVE_STATE), Unit.SERVICE_NAME);
+        Assert.assertEquals(PropertyFetcher.resolveServiceName("cronie.service", Service.Property.MAIN_PID), Service.SERVICE_NAME);
+        Assert.assertEquals(PropertyFetcher.resolveServiceName("sshd.socket", Socket.Property.ACCEPT), Socket.SERVICE_NAME);
+
+        try {
+            PropertyFetcher.resolveServiceName("cronie.unknown", Service.Property.MAIN_PID);
+
+            Assert.fail("Unknown unit type must not be resolved");
+        }
+        catch (final IllegalArgumentException e) {
+            // Expected
+        }
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> PropertyFetcher.resolveServiceName("cronie", Service.Property.MAIN_PID));
+    }
+
+    @Test(description="Tests that invalid unit names are rejected before any call is issued.")
+    @SuppressWarnings("unchecked")
+    public void testInvalidUnitName() throws DBusException {
+        Manager manager = systemd.getManager();
+
+        Mockito.clearInvocations(dbus);
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> manager.fetch(Arrays.asList("cronie.service", "cronie"), Service.Property.MAIN_PID));
+
+        Mockito.verify(dbus, Mockito.never()).callWithCallback(Mockito.any(DBusInterface.class), Mockito.eq(PropertyFetcher.METHOD_GET), Mockito.any(CallbackHandler.class), Mockito.any(), Mockito.any());
+    }
+
+    @Test(description="Tests batch retrieval of properties of several units.")
+    public void testFetch() throws DBusException {
+        Manager manager = systemd.getManager();
+        List<String> unitNames = Arrays.asList("cronie.service", "sshd.socket", "multi-user.target");
+
+        PropertyTable table = manager.fetch(unitNames, Unit.Property.ACTIVE_STATE, Unit.Property.SUB_STATE);
+
+        Assert.assertEquals(table.getUnitNames(), unitNames);
+        Assert.assertFalse(table.hasErrors());
+
+        for (String unitName : unitNames) {
+            Assert.assertEquals(table.getRow(unitName).size(), 2);
+            Assert.assertEquals(table.getValue(unitName, Unit.Property.ACTIVE_STATE).get().getValue(), Unit.SERVICE_NAME + "/" + Unit.Property.ACTIVE_STATE);
+        }
+
+        table = manager.fetch(Arrays.asList("cronie.service"), Service.Property.MAIN_PID, UNKNOWN_PROPERTY);
+
+        Assert.assertEquals(table.getValue("cronie.service", Service.Property.MAIN_PID).get().getValue(), Service.SERVICE_NAME + "/" + Service.Property.MAIN_PID);
+        Assert.assertFalse(table.getValue("cronie.service", UNKNOWN_PROPERTY).isPresent());
+        Assert.assertTrue(table.getError("cronie.service", UNKNOWN_PROPERTY).isPresent());
+        Assert.assertEquals(table.getErrorCount(), 1);
+    }
+
+    @Test(description="Tests that the number of calls in flight never exceeds the window.")
+    public void testFetchWindow() throws DBusException {
+        Manager manager = systemd.getManager();
+        List<String> unitNames = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+            unitNames.add("unit" + i + ".service");
+        }
+
+        int window = manager.getFetchWindow();
+
+        try {
+            latency = 1L;
+            maxInFlight.set(0);
+            manager.setFetchWindow(4);
+
+            PropertyTable table = manager.fetch(unitNames, Unit.Property.ID, Unit.Property.LOAD_STATE);
+
+            Assert.assertFalse(table.hasErrors());
+            Assert.assertTrue(maxInFlight.get() <= 4);
+        }
+        finally {
+            latency = 0L;
+            manager.setFetchWindow(window);
+        }
+    }
+
+    @Test(description="Tests the fetch timeout while calls are still submitted and late replies.")
+    public void testFetchTimeout() throws DBusException, InterruptedException {
+        Manager manager = systemd.getManager();
+        List<String> unitNames = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            unitNames.add("unit" + i + ".service");
+        }
+
+        int window = manager.getFetchWindow();
+        long timeout = manager.getFetchTimeout();
+
+        try {
+            latency = 300L;
+            manager.setFetchWindow(2);
+            manager.setFetchTimeout(100L);
+
+            long start = System.nanoTime();
+            PropertyTable table = manager.fetch(unitNames, Unit.Property.ID);
+
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 250L);
+            Assert.assertEquals(table.getErrorCount(), unitNames.size());
+
+            // Replies arriving after the timeout are discarded
+            Thread.sleep(400L);
+
+            Assert.assertEquals(table.getErrorCount(), unitNames.size());
+            Assert.assertFalse(table.getValue("unit0.service", Unit.Property.ID).isPresent());
+        }
+        finally {
+            latency = 0L;
+            manager.setFetchWindow(window);
+            manager.setFetchTimeout(timeout);
+        }
+    }
+
+    @Test(description="Compares batch retrieval with sequential retrieval of unit properties.", groups="manual")
+    public void benchmarkFetch() throws DBusException {
+        Manager manager = systemd.getManager();
+        List<String> unitNames = new ArrayList<>();
+        String[] propertyNames = { Unit.Property.ID, Unit.Property.ACTIVE_STATE, Unit.Property.SUB_STATE, Unit.Property.LOAD_STATE };
+
+        for (int i = 0; i < 200; i++) {
+            unitNames.add("unit" + i + ".service");
+        }
+
+        try {
+            latency = 1L;
+
+            long start = System.nanoTime();
+
+            for (String unitName : unitNames) {
+                Properties properties = Properties.create(manager, Unit.OBJECT_PATH + Systemd.escapePath(unitName), Unit.SERVICE_NAME);
+
+                for (String propertyName : propertyNames) {
+                    properties.getVariant(propertyName);
+                }
+            }
+
+            long sequential = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            manager.fetch(unitNames, propertyNames);
+
+            long pipelined = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            System.out.println(String.format("%d calls: sequential %d ms, pipelined %d ms (window %d)", unitNames.size() * propertyNames.length, sequential, pipelined, manager.getFetchWindow()));
+        }
+        finally {
+            latency = 0L;
+        }
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import org.freedesktop.dbus.DBusInterface;
+import org.freedesktop.dbus.DBusSignal;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class RingSignalSequencerTest implements DBusInterface {
+
+    @Test(description="Tests ring sequencer ordering.")
+    public void testSequencerLogic() throws DBusException, InterruptedException {
+        RingSignalSequencer<TestSignal> sequencer = new RingSignalSequencer<>(100);
+        sequencer.setTransferDelay(1000L);
+
+        Assert.assertEquals(sequencer.getCapacity(), 128);
+
+        for (long serial : new long[] { 5L, 3L, 4L, 1L, 2L }) {
+            sequencer.put(new TestSignal(serial));
+        }
+
+        Assert.assertEquals(sequencer.size(), 5);
+
+        for (long serial = 1L; serial <= 5L; serial++) {
+            Assert.assertEquals(sequencer.take().getSerial(), serial);
+        }
+
+        sequencer.put(new TestSignal(8L));
+        sequencer.put(new TestSignal(6L));
+
+        Assert.assertEquals(sequencer.poll(0L, TimeUnit.MILLISECONDS).getSerial(), 6L);
+        Assert.assertNull(sequencer.poll(10L, TimeUnit.MILLISECONDS));
+
+        sequencer.put(new TestSignal(7L));
+
+        List<TestSignal> drain = new ArrayList<>();
+
+        Assert.assertEquals(sequencer.drainTo(drain), 2);
+        Assert.assertEquals(drain.get(0).getSerial(), 7L);
+        Assert.assertEquals(drain.get(1).getSerial(), 8L);
+        Assert.assertEquals(sequencer.size(), 0);
+    }
+
+    @Test(description="Tests the bounded wait on serial gaps.")
+    public void testReorderingWindow() throws DBusException, InterruptedException {
+        RingSignalSequencer<TestSignal> sequencer = new RingSignalSequencer<>(16);
+        sequencer.setTransferDelay(200L);
+
+        sequencer.put(new TestSignal(1L));
+        sequencer.take();
+
+        sequencer.put(new TestSignal(3L));
+
+        long start = System.nanoTime();
+
+        Assert.assertEquals(sequencer.poll(1L, TimeUnit.SECONDS).getSerial(), 3L);
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150L);
+
+        sequencer.put(new TestSignal(2L));
+        sequencer.put(new TestSignal(4L));
+
+        Assert.assertEquals(sequencer.poll(0L, TimeUnit.MILLISECONDS).getSerial(), 2L);
+        Assert.assertEquals(sequencer.poll(0L, TimeUnit.MILLISECONDS).getSerial(), 4L);
+    }
+
+    @Test(description="Tests dropping of signals arriving at a full ring.")
+    public void testOverflowPolicy() throws DBusException, InterruptedException {
+        RingSignalSequencer<TestSignal> sequencer = new RingSignalSequencer<>(2, OverflowPolicy.DROP_NEWEST, new SignalQueueStatistics(null));
+
+        for (long serial = 1L; serial <= 4L; serial++) {
+            sequencer.put(new TestSignal(serial));
+        }
+
+        Assert.assertEquals(sequencer.size(), 2);
+        Assert.assertEquals(sequencer.getStatistics().getDropped(), 2L);
+        Assert.assertEquals(sequencer.take().getSerial(), 1L);
+        Assert.assertEquals(sequencer.take().getSerial(), 2L);
+
+        Assert.assertFalse(RingSignalSequencer.isSupported(OverflowPolicy.COALESCE));
+    }
+
+    @Test(description="Tests that the reorder buffer is bounded by the capacity of the ring.")
+    public void testBoundedReorderBuffer() throws DBusException, InterruptedException {
+        RingSignalSequencer<TestSignal> sequencer = new RingSignalSequencer<>(4, OverflowPolicy.DROP_NEWEST, new SignalQueueStatistics(null));
+        sequencer.setTransferDelay(5000L);
+
+        sequencer.put(new TestSignal(1L));
+        sequencer.take();
+
+        // Gap at serial 2
+        for (long serial = 3L; serial <= 5L; serial++) {
+            sequencer.put(new TestSignal(serial));
+        }
+
+        Assert.assertNull(sequencer.poll(0L, TimeUnit.MILLISECONDS));
+
+        for (long serial = 6L; serial <= 9L; serial++) {
+            sequencer.put(new TestSignal(serial));
+        }
+
+        // The full reorder buffer releases its head without waiting, remaining signals stay in the ring
+        Assert.assertEquals(sequencer.poll(0L, TimeUnit.MILLISECONDS).getSerial(), 3L);
+        Assert.assertEquals(sequencer.size(), 6);
+
+        sequencer.put(new TestSignal(10L));
+        sequencer.put(new TestSignal(11L));
+
+        Assert.assertEquals(sequencer.getStatistics().getDropped(), 1L);
+
+        List<TestSignal> drain = new ArrayList<>();
+        sequencer.drainTo(drain);
+
+        Assert.assertEquals(drain.stream().map(TestSignal::getSerial).collect(Collectors.toList()), Arrays.asList(4L, 5L, 6L, 7L, 8L, 9L, 10L));
+    }
+
+    @Test(description="Tests concurrent producers on a ring smaller than the number of signals.")
+    public void testSequencerAccess() throws DBusException, InterruptedException {
+        RingSignalSequencer<TestSignal> sequencer = new RingSignalSequencer<>(16);
+        int numProducers = 4;
+        int numSignals = 1000;
+
+        // Released immediately (no predecessor), then allow generous reordering
+        sequencer.setTransferDelay(0L);
+        sequencer.put(new TestSignal(-1L));
+        sequencer.take();
+        sequencer.setTransferDelay(5000L);
+
+        List<Thread> producers = startProducers(sequencer, numProducers, numSignals);
+
+        // A producer lagging behind by more than the capacity is not waited for, but the order per producer is kept
+        long[] lastSerials = new long[numProducers];
+        Arrays.fill(lastSerials, -1L);
+
+        for (int i = 0; i < numProducers * numSignals; i++) {
+            TestSignal signal = sequencer.poll(10L, TimeUnit.SECONDS);
+
+            Assert.assertNotNull(signal);
+
+            int producer = (int) (signal.getSerial() % numProducers);
+
+            Assert.assertTrue(signal.getSerial() > lastSerials[producer]);
+
+            lastSerials[producer] = signal.getSerial();
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        Assert.assertEquals(sequencer.size(), 0);
+    }
+
+    @Test(description="Compares the throughput of lock-free and locking sequencers with concurrent producers.", groups="manual")
+    public void benchmarkThroughput() throws DBusException, InterruptedException {
+        int numProducers = 4;
+        int numSignals = 100000;
+
+        IntFunction<SignalQueue<TestSignal>> locking = SignalSequencer::new;
+        IntFunction<SignalQueue<TestSignal>> lockFree = RingSignalSequencer::new;
+
+        for (int round = 0; round < 3; round++) {
+            long lockingTime = measure(locking.apply(1024), numProducers, numSignals);
+            long lockFreeTime = measure(lockFree.apply(1024), numProducers, numSignals);
+
+            System.out.println(String.format("%d signals, %d producers: SignalSequencer %d ms, RingSignalSequencer %d ms",
+                    numProducers * numSignals, numProducers, lockingTime, lockFreeTime));
+        }
+    }
+
+    private long measure(final SignalQueue<TestSignal> sequencer, final int numProducers, final int numSignals) throws DBusException, InterruptedException {
+        sequencer.setTransferDelay(0L);
+        sequencer.put(new TestSignal(-1L));
+        sequencer.take();
+        sequencer.setTransferDelay(1000L);
+
+        List<Thread> producers = startProducers(sequencer, numProducers, numSignals);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < numProducers * numSignals; i++) {
+            sequencer.take();
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        return elapsed;
+    }
+
+    private static List<Thread> startProducers(final SignalQueue<TestSignal> sequencer, final int numProducers, final int numSignals) throws DBusException {
+        List<Thread> producers = new ArrayList<>();
+
+        for (int i = 0; i < numProducers; i++) {
+            // Signals are created upfront, producer i puts every n-th serial
+            TestSignal[] signals = new TestSignal[numSignals];
+
+            for (int j = 0; j < numSignals; j++) {
+                signals[j] = new TestSignal((long) j * numProducers + i);
+            }
+
+            producers.add(new Thread(() -> {
+                try {
+                    for (TestSignal signal : signals) {
+                        sequencer.put(signal);
+                    }
+                }
+                catch (InterruptedException e) {
+                    // Do nothing
+                }
+            }));
+        }
+
+        producers.forEach(Thread::start);
+
+        return producers;
+    }
+
+    @Override
+    public boolean isRemote() {
+        return false;
+    }
+
+    @Override
+    public String getObjectPath() {
+        return Systemd.OBJECT_PATH;
+    }
+
+    private static class TestSignal extends DBusSignal {
+
+        public TestSignal(final long serial) throws DBusException {
+            super(Systemd.OBJECT_PATH);
+
+            this.serial = serial;
+        }
+
+    }
+
+}
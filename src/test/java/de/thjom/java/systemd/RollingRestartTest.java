@@ -0,0 +1,247 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.awaitility.Awaitility;
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.CallbackHandler;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.RollingRestart.FailureAction;
+import de.thjom.java.systemd.RollingRestart.State;
+import de.thjom.java.systemd.RollingRestartEvent.Type;
+
+public class RollingRestartTest extends AbstractTestCase {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private Manager manager;
+    private FakeSystemd fake;
+    private volatile String polledActiveState = "active";
+    private volatile String polledSubState = "running";
+
+    // Units are unavailable from their restart until they are reported healthy or failed
+    private final Consumer<String> callListener = u -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+    @Override
+    @BeforeClass(alwaysRun=true)
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        super.setup();
+        setupServiceMocks();
+
+        try {
+            // States are polled asynchronously after the restart job
+            Mockito.doAnswer(invocation -> {
+                CallbackHandler<Map<String, Variant<?>>> callback = invocation.getArgument(2);
+
+                Map<String, Variant<?>> properties = new HashMap<>();
+                properties.put(Unit.Property.LOAD_STATE, new Variant<>("loaded"));
+                properties.put(Unit.Property.ACTIVE_STATE, new Variant<>(polledActiveState));
+                properties.put(Unit.Property.SUB_STATE, new Variant<>(polledSubState));
+
+                callback.handle(properties);
+
+                return null;
+            }).when(dbus).callWithCallback(Mockito.eq(piface), Mockito.eq(PropertyFetcher.METHOD_GET_ALL), Mockito.any(CallbackHandler.class), Mockito.eq(Unit.SERVICE_NAME));
+
+            manager = systemd.getManager();
+
+            fake = new FakeSystemd(dbus, manager);
+            fake.setCallListener(callListener);
+            fake.answerJobCalls(dbus);
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    @AfterClass(alwaysRun=true)
+    public void teardown() throws DBusException {
+        manager.getJobTracker().stop();
+        fake.shutdown();
+    }
+
+    @Test(description="Tests restarting in batches with bounded unavailability.")
+    public void testBatches() throws DBusException {
+        List<String> names = workers(0, 6);
+        List<RollingRestartEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        maxInFlight.set(0);
+        inFlight.set(0);
+
+        RollingRestart restart = manager.rollingRestart(names).batchSize(3).maxUnavailable(2).addListener(e -> {
+            if (e.getType() == Type.UNIT_HEALTHY || e.getType() == Type.UNIT_FAILED) {
+                inFlight.decrementAndGet();
+            }
+
+            events.add(e);
+        });
+
+        Assert.assertEquals(restart.execute(), State.COMPLETED);
+        Assert.assertEquals(restart.getHealthyCount(), 6);
+        Assert.assertTrue(maxInFlight.get() <= 2);
+
+        Assert.assertEquals(count(events, Type.BATCH_STARTED), 2);
+        Assert.assertEquals(count(events, Type.UNIT_RESTARTED), 6);
+        Assert.assertEquals(count(events, Type.UNIT_HEALTHY), 6);
+        Assert.assertEquals(events.get(events.size() - 1).getType(), Type.COMPLETED);
+
+        // The second batch starts after all units of the first batch are healthy
+        int secondBatch = events.indexOf(events.stream().filter(e -> e.getType() == Type.BATCH_STARTED && e.getBatch() == 1).findFirst().get());
+        Assert.assertEquals(events.subList(0, secondBatch).stream().filter(e -> e.getType() == Type.UNIT_HEALTHY).count(), 3L);
+
+        Assert.assertThrows(IllegalStateException.class, restart::execute);
+    }
+
+    @Test(description="Tests pausing and resuming when the failure budget is exceeded.")
+    public void testFailureBudget() throws DBusException {
+        List<String> names = new ArrayList<>(workers(10, 2));
+        names.add(1, "failing.service");
+
+        RollingRestart restart = manager.rollingRestart(names).batchSize(2).failureBudget(0, FailureAction.PAUSE);
+
+        Assert.assertEquals(restart.execute(), State.PAUSED);
+        Assert.assertEquals(restart.getOutcomes().size(), 2);
+        Assert.assertEquals(restart.getFailedCount(), 1);
+
+        BulkResult.Outcome failing = restart.getOutcomes().stream().filter(o -> o.getUnitName().equals("failing.service")).findFirst().get();
+        Assert.assertEquals(failing.getResult().get(), JobResult.FAILED);
+
+        Assert.assertEquals(restart.execute(), State.COMPLETED);
+        Assert.assertEquals(restart.getHealthyCount(), 2);
+        Assert.assertEquals(restart.getOutcomes().size(), 3);
+    }
+
+    @Test(description="Tests health gating via state change signals and health timeout.")
+    @SuppressWarnings("unchecked")
+    public void testHealthGating() throws Exception {
+        polledActiveState = "activating";
+        polledSubState = "start";
+
+        try {
+            List<RollingRestartEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+            RollingRestart restart = manager.rollingRestart(Arrays.asList("slow.service", "hung.service")).batchSize(2).healthTimeout(500L).failureBudget(0, FailureAction.ABORT).addListener(events::add);
+
+            Mockito.clearInvocations(dbus);
+
+            CompletableFuture<State> result = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return restart.execute();
+                }
+                catch (DBusException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> count(events, Type.UNIT_RESTARTED) == 2);
+
+            ArgumentCaptor<DBusSigHandler<PropertiesChanged>> captor = ArgumentCaptor.forClass(DBusSigHandler.class);
+            Mockito.verify(dbus).addSigHandler(Mockito.eq(PropertiesChanged.class), captor.capture());
+
+            captor.getValue().handle(new PropertiesChanged(Unit.OBJECT_PATH + Systemd.escapePath("slow.service"), Unit.SERVICE_NAME, running(), Collections.emptyList()));
+
+            Assert.assertEquals(result.get(2L, TimeUnit.SECONDS), State.ABORTED);
+            Assert.assertEquals(restart.getHealthyCount(), 1);
+            Assert.assertEquals(restart.getFailedCount(), 1);
+
+            BulkResult.Outcome hung = restart.getOutcomes().stream().filter(o -> o.getUnitName().equals("hung.service")).findFirst().get();
+            Assert.assertEquals(hung.getResult().get(), JobResult.DONE);
+            Assert.assertTrue(hung.getError().get() instanceof TimeoutException);
+            Assert.assertFalse(hung.isSuccess());
+
+            Assert.assertEquals(events.get(events.size() - 1).getType(), Type.ABORTED);
+        }
+        finally {
+            polledActiveState = "active";
+            polledSubState = "running";
+        }
+    }
+
+    @Test(description="Tests that units whose restart jobs cannot be tracked fail without waiting for the health timeout.")
+    public void testStoppedTracker() throws DBusException {
+        JobTracker tracker = manager.getJobTracker();
+
+        fake.setCallListener(u -> {
+            try {
+                tracker.stop();
+            }
+            catch (DBusException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        try {
+            RollingRestart restart = manager.rollingRestart(Collections.singletonList("orphan.service")).healthTimeout(5000L);
+
+            long start = System.nanoTime();
+
+            restart.execute();
+
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000L);
+            Assert.assertEquals(restart.getFailedCount(), 1);
+            Assert.assertTrue(restart.getOutcomes().get(0).getError().get() instanceof IllegalStateException);
+        }
+        finally {
+            fake.setCallListener(callListener);
+            manager.getJobTracker();
+        }
+    }
+
+    private static List<String> workers(final int first, final int count) {
+        List<String> names = new ArrayList<>();
+
+        for (int i = first; i < first + count; i++) {
+            names.add(String.format("worker@%d.service", i));
+        }
+
+        return names;
+    }
+
+    private static long count(final List<RollingRestartEvent> events, final Type type) {
+        synchronized (events) {
+            return events.stream().filter(e -> e.getType() == type).collect(Collectors.counting());
+        }
+    }
+
+    private static Map<String, Variant<?>> running() {
+        Map<String, Variant<?>> properties = new HashMap<>();
+        properties.put(Unit.Property.ACTIVE_STATE, new Variant<>("active"));
+        properties.put(Unit.Property.SUB_STATE, new Variant<>("running"));
+
+        return properties;
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.awaitility.Awaitility;
+import org.freedesktop.dbus.DBusInterface;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.DBusSignal;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.interfaces.ManagerInterface.Reloading;
+
+public class SignalDispatcherTest extends AbstractTestCase implements DBusInterface {
+
+    @Override
+    @BeforeClass
+    public void setup() {
+        super.setup();
+    }
+
+    @Test(description="Tests ordered dispatching of many consumers on a shared pool.")
+    public void testDispatching() throws DBusException {
+        int numConsumers = 100;
+        int numSignals = 20;
+
+        SignalDispatcher dispatcher = SignalDispatcher.create(2);
+        dispatcher.setBatchSize(4);
+
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        List<List<Long>> received = new ArrayList<>();
+        List<ForwardingHandler<TestSignal>> forwarders = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < numConsumers; i++) {
+                List<Long> serials = Collections.synchronizedList(new ArrayList<>());
+
+                SignalConsumer<TestSignal> consumer = new SignalConsumer<>(s -> {
+                    threadNames.add(Thread.currentThread().getName());
+                    serials.add(s.getSerial());
+                });
+                consumer.getSequencer().setTransferDelay(0L);
+
+                ForwardingHandler<TestSignal> forwarder = new ForwardingHandler<>(consumer, dispatcher);
+                forwarder.startConsumer();
+
+                received.add(serials);
+                forwarders.add(forwarder);
+            }
+
+            for (long serial = 1L; serial <= numSignals; serial++) {
+                for (ForwardingHandler<TestSignal> forwarder : forwarders) {
+                    forwarder.handle(new TestSignal(serial));
+                }
+            }
+
+            Awaitility.await().atMost(10L, TimeUnit.SECONDS).until(() -> received.stream().allMatch(l -> l.size() == numSignals));
+
+            for (List<Long> serials : received) {
+                List<Long> sorted = new ArrayList<>(serials);
+                Collections.sort(sorted);
+
+                Assert.assertEquals(serials, sorted);
+            }
+
+            Assert.assertTrue(threadNames.size() <= 2);
+            Assert.assertTrue(threadNames.stream().allMatch(n -> n.startsWith(SignalDispatcher.class.getSimpleName())));
+        }
+        finally {
+            forwarders.forEach(ForwardingHandler::stopConsumer);
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test(description="Tests that consumers holding back signals for a gap do not block the pool.")
+    public void testHeldBackSignals() throws DBusException {
+        SignalDispatcher dispatcher = SignalDispatcher.create(1);
+
+        List<Long> gapped = Collections.synchronizedList(new ArrayList<>());
+        List<Long> other = Collections.synchronizedList(new ArrayList<>());
+
+        SignalConsumer<TestSignal> gappedConsumer = new SignalConsumer<>(s -> gapped.add(s.getSerial()));
+        gappedConsumer.getSequencer().setTransferDelay(500L);
+
+        SignalConsumer<TestSignal> otherConsumer = new SignalConsumer<>(s -> other.add(s.getSerial()));
+        otherConsumer.getSequencer().setTransferDelay(0L);
+
+        ForwardingHandler<TestSignal> gappedForwarder = new ForwardingHandler<>(gappedConsumer, dispatcher);
+        ForwardingHandler<TestSignal> otherForwarder = new ForwardingHandler<>(otherConsumer, dispatcher);
+
+        try {
+            gappedForwarder.startConsumer();
+            otherForwarder.startConsumer();
+
+            gappedForwarder.handle(new TestSignal(1L));
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> gapped.size() == 1);
+
+            long start = System.nanoTime();
+
+            gappedForwarder.handle(new TestSignal(3L));
+            otherForwarder.handle(new TestSignal(1L));
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> other.size() == 1);
+
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 400L);
+            Assert.assertEquals(gapped.size(), 1);
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> gapped.size() == 2);
+
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 500L);
+            Assert.assertEquals(gapped, Arrays.asList(1L, 3L));
+        }
+        finally {
+            gappedForwarder.stopConsumer();
+            otherForwarder.stopConsumer();
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test(description="Tests that stopping a dispatched consumer handles the queued signals.")
+    public void testStopDrainsQueue() throws DBusException {
+        SignalDispatcher dispatcher = SignalDispatcher.create(1);
+
+        List<Long> received = Collections.synchronizedList(new ArrayList<>());
+
+        SignalConsumer<TestSignal> consumer = new SignalConsumer<>(s -> received.add(s.getSerial()));
+        consumer.getSequencer().setTransferDelay(10000L);
+
+        ForwardingHandler<TestSignal> forwarder = new ForwardingHandler<>(consumer, dispatcher);
+
+        try {
+            forwarder.startConsumer();
+
+            // All held back within the reordering window
+            forwarder.handle(new TestSignal(2L));
+            forwarder.handle(new TestSignal(4L));
+            forwarder.handle(new TestSignal(3L));
+
+            forwarder.stopConsumer();
+
+            Assert.assertEquals(received, Arrays.asList(2L, 3L, 4L));
+            Assert.assertEquals(consumer.getSequencer().size(), 0);
+        }
+        finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test(description="Tests that adapter consumers use the dispatcher of the manager.")
+    @SuppressWarnings("unchecked")
+    public void testManagerDispatcher() throws DBusException {
+        Manager manager = systemd.getManager();
+        SignalDispatcher dispatcher = SignalDispatcher.create(1);
+
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        DBusSigHandler<Reloading> handler = s -> threadNames.add(Thread.currentThread().getName());
+
+        try {
+            manager.setSignalDispatcher(dispatcher);
+            manager.addConsumer(Reloading.class, handler);
+
+            ArgumentCaptor<DBusSigHandler<Reloading>> captor = ArgumentCaptor.forClass(DBusSigHandler.class);
+            Mockito.verify(dbus).addSigHandler(Mockito.eq(Reloading.class), captor.capture());
+
+            captor.getValue().handle(new Reloading(Systemd.OBJECT_PATH, false));
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> !threadNames.isEmpty());
+
+            Assert.assertTrue(threadNames.iterator().next().startsWith(SignalDispatcher.class.getSimpleName()));
+
+            manager.removeConsumer(Reloading.class, handler);
+        }
+        finally {
+            manager.setSignalDispatcher(null);
+            dispatcher.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRemote() {
+        return false;
+    }
+
+    @Override
+    public String getObjectPath() {
+        return Systemd.OBJECT_PATH;
+    }
+
+    private static class TestSignal extends DBusSignal {
+
+        public TestSignal(final long serial) throws DBusException {
+            super(Systemd.OBJECT_PATH);
+
+            this.serial = serial;
+        }
+
+    }
+
+}
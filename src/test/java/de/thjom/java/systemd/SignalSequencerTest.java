@@ -16,11 +16,16 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import org.freedesktop.DBus.Properties.PropertiesChanged;
 import org.freedesktop.dbus.DBusInterface;
 import org.freedesktop.dbus.DBusSignal;
+import org.freedesktop.dbus.Variant;
 import org.freedesktop.dbus.exceptions.DBusException;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -91,6 +96,8 @@ public class SignalSequencerTest implements DBusInterface {
     @Test(description="Tests concurrent sequencer access.")
     public void testSequencerAccess() throws DBusException {
         SignalSequencer<TestSignal> sequencer = new SignalSequencer<>(10000);
+        sequencer.setTransferDelay(50L);
+
         int numSignals = 30;
 
         SignalProducer producer = new SignalProducer(sequencer, numSignals);
@@ -133,6 +140,217 @@ public class SignalSequencerTest implements DBusInterface {
         Assert.assertTrue(Arrays.equals(drainedData.toArray(), testData.toArray()));
     }
 
+    @Test(description="Tests immediate release of contiguous signals and the bounded wait on gaps.")
+    public void testReorderingWindow() throws DBusException, InterruptedException {
+        SignalSequencer<TestSignal> sequencer = new SignalSequencer<>(100);
+        sequencer.setTransferDelay(200L);
+
+        sequencer.put(new TestSignal(1L));
+        sequencer.take();
+
+        sequencer.put(new TestSignal(2L));
+
+        long start = System.nanoTime();
+
+        Assert.assertEquals(sequencer.poll(1L, TimeUnit.SECONDS).getSerial(), 2L);
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100L);
+
+        sequencer.put(new TestSignal(5L));
+
+        Assert.assertNull(sequencer.poll(20L, TimeUnit.MILLISECONDS));
+
+        sequencer.put(new TestSignal(3L));
+        sequencer.put(new TestSignal(4L));
+
+        Assert.assertEquals(sequencer.poll(0L, TimeUnit.MILLISECONDS).getSerial(), 3L);
+        Assert.assertEquals(sequencer.poll(0L, TimeUnit.MILLISECONDS).getSerial(), 4L);
+        Assert.assertEquals(sequencer.poll(0L, TimeUnit.MILLISECONDS).getSerial(), 5L);
+
+        sequencer.put(new TestSignal(7L));
+
+        start = System.nanoTime();
+
+        Assert.assertEquals(sequencer.poll(1L, TimeUnit.SECONDS).getSerial(), 7L);
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150L);
+
+        sequencer.put(new TestSignal(6L));
+
+        Assert.assertEquals(sequencer.poll(0L, TimeUnit.MILLISECONDS).getSerial(), 6L);
+        Assert.assertEquals(sequencer.size(), 0);
+    }
+
+    @Test(description="Tests the overflow policies and their counters.")
+    public void testOverflowPolicies() throws DBusException, InterruptedException {
+        SignalQueueStatistics total = new SignalQueueStatistics(null);
+
+        SignalSequencer<TestSignal> dropNewest = new SignalSequencer<>(2, OverflowPolicy.DROP_NEWEST, new SignalQueueStatistics(total));
+        SignalSequencer<TestSignal> dropOldest = new SignalSequencer<>(2, OverflowPolicy.DROP_OLDEST, new SignalQueueStatistics(total));
+
+        for (long serial = 1L; serial <= 4L; serial++) {
+            dropNewest.put(new TestSignal(serial));
+            dropOldest.put(new TestSignal(serial));
+        }
+
+        List<TestSignal> drain = new ArrayList<>();
+        dropNewest.drainTo(drain);
+
+        Assert.assertEquals(drain, Arrays.asList(new TestSignal(1L), new TestSignal(2L)));
+        Assert.assertEquals(dropNewest.getStatistics().getDropped(), 2L);
+
+        drain.clear();
+        dropOldest.drainTo(drain);
+
+        Assert.assertEquals(drain, Arrays.asList(new TestSignal(3L), new TestSignal(4L)));
+        Assert.assertEquals(dropOldest.getStatistics().getDropped(), 2L);
+
+        Assert.assertEquals(total.getDropped(), 4L);
+
+        SignalSequencer<DBusSignal> coalesce = new SignalSequencer<>(2, OverflowPolicy.COALESCE, new SignalQueueStatistics(total));
+
+        PropertiesChanged first = createPropertiesChanged("cronie.service", "activating");
+        PropertiesChanged other = createPropertiesChanged("sshd.service", "active");
+        PropertiesChanged second = createPropertiesChanged("cronie.service", "active");
+        PropertiesChanged third = createPropertiesChanged("avahi-daemon.service", "active");
+
+        coalesce.put(first);
+        coalesce.put(other);
+        coalesce.put(second);
+
+        Assert.assertEquals(coalesce.size(), 2);
+        Assert.assertEquals(coalesce.getStatistics().getCoalesced(), 1L);
+
+        coalesce.put(third);
+
+        List<DBusSignal> signals = new ArrayList<>();
+        coalesce.drainTo(signals);
+
+        Assert.assertEquals(signals.size(), 2);
+        Assert.assertFalse(signals.contains(first));
+        Assert.assertFalse(signals.contains(other));
+        Assert.assertTrue(signals.contains(second));
+        Assert.assertTrue(signals.contains(third));
+        Assert.assertEquals(coalesce.getStatistics().getDropped(), 1L);
+        Assert.assertEquals(total.getCoalesced(), 1L);
+        Assert.assertEquals(total.getDropped(), 5L);
+    }
+
+    @Test(description="Measures the release latency of contiguous and gapped signal streams.", groups="manual")
+    public void benchmarkLatency() throws DBusException, InterruptedException {
+        int numSignals = 5000;
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            for (int gapRate : new int[] { 0, 100, 10 }) {
+                SignalSequencer<TestSignal> sequencer = new SignalSequencer<>(numSignals);
+                long[] latencies = new long[numSignals];
+                long serial = 0L;
+
+                sequencer.put(new TestSignal(serial++));
+                sequencer.take();
+
+                for (int i = 0; i < numSignals; i++) {
+                    long start = System.nanoTime();
+
+                    if (gapRate > 0 && i % gapRate == 0 && i + 1 < numSignals) {
+                        // Successor arrives first, the outstanding signal follows after 1 ms
+                        TestSignal late = new TestSignal(serial);
+
+                        sequencer.put(new TestSignal(serial + 1));
+                        executor.schedule(() -> {
+                            sequencer.put(late);
+
+                            return null;
+                        }, 1L, TimeUnit.MILLISECONDS);
+
+                        sequencer.take();
+                        latencies[i++] = System.nanoTime() - start;
+
+                        serial += 2;
+                    }
+                    else {
+                        sequencer.put(new TestSignal(serial++));
+                    }
+
+                    sequencer.take();
+                    latencies[i] = System.nanoTime() - start;
+                }
+
+                Arrays.sort(latencies);
+
+                System.out.println(String.format("gap rate %s: p50 %d us, p99 %d us, max %d us (window %d ms)",
+                        gapRate > 0 ? "1/" + gapRate : "none",
+                        TimeUnit.NANOSECONDS.toMicros(latencies[numSignals / 2]),
+                        TimeUnit.NANOSECONDS.toMicros(latencies[numSignals * 99 / 100]),
+                        TimeUnit.NANOSECONDS.toMicros(latencies[numSignals - 1]),
+                        sequencer.getTransferDelay()));
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(description="Measures the release latency of a consumer seeing only some serials of a sender.", groups="manual")
+    public void benchmarkSparseLatency() throws DBusException, InterruptedException {
+        int numSignals = 200;
+        Random random = new Random(42L);
+
+        // Default window first (as used by the consumers of a manager), then the former default and no window
+        for (Long window : new Long[] { null, 50L, 0L }) {
+            SignalSequencer<TestSignal> sequencer = new SignalSequencer<>(numSignals);
+
+            if (window != null) {
+                sequencer.setTransferDelay(window);
+            }
+
+            long[] latencies = new long[numSignals];
+            long serial = 0L;
+
+            sequencer.put(new TestSignal(serial));
+            sequencer.take();
+
+            for (int i = 0; i < numSignals; i++) {
+                // Replies and signals for other consumers use up serials in between
+                serial += 1 + random.nextInt(4);
+
+                long start = System.nanoTime();
+
+                sequencer.put(new TestSignal(serial));
+                sequencer.take();
+
+                latencies[i] = System.nanoTime() - start;
+            }
+
+            Arrays.sort(latencies);
+
+            System.out.println(String.format("sparse serials: p50 %d us, p99 %d us, max %d us (window %d ms%s)",
+                    TimeUnit.NANOSECONDS.toMicros(latencies[numSignals / 2]),
+                    TimeUnit.NANOSECONDS.toMicros(latencies[numSignals * 99 / 100]),
+                    TimeUnit.NANOSECONDS.toMicros(latencies[numSignals - 1]),
+                    sequencer.getTransferDelay(),
+                    window == null ? ", default" : ""));
+        }
+    }
+
+    @Test(description="Tests that a zero reordering window releases signals in arrival order.")
+    public void testZeroReorderingWindow() throws DBusException, InterruptedException {
+        SignalSequencer<TestSignal> sequencer = new SignalSequencer<>(100);
+        sequencer.setTransferDelay(0L);
+
+        sequencer.put(new TestSignal(3L));
+        sequencer.put(new TestSignal(7L));
+
+        Assert.assertEquals(sequencer.poll(0L, TimeUnit.MILLISECONDS).getSerial(), 3L);
+        Assert.assertEquals(sequencer.poll(0L, TimeUnit.MILLISECONDS).getSerial(), 7L);
+        Assert.assertEquals(sequencer.getReleaseDelay(), -1L);
+    }
+
+    private static PropertiesChanged createPropertiesChanged(final String unitName, final String activeState) throws DBusException {
+        Map<String, Variant<?>> changed = Collections.singletonMap(Unit.Property.ACTIVE_STATE, new Variant<>(activeState));
+
+        return new PropertiesChanged(Unit.OBJECT_PATH + Systemd.escapePath(unitName), Unit.SERVICE_NAME, changed, Collections.emptyList());
+    }
+
     @Override
     public boolean isRemote() {
         return false;
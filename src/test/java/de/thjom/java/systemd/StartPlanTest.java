@@ -0,0 +1,152 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.BulkResult.Outcome;
+import de.thjom.java.systemd.Unit.Mode;
+
+public class StartPlanTest {
+
+    @Test(description="Tests computation of topological waves.")
+    public void testWaves() {
+        Map<String, Set<String>> graph = new LinkedHashMap<>();
+        graph.put("app.service", set("db.service", "cache.service"));
+        graph.put("db.service", set("network.target"));
+        graph.put("cache.service", set("network.target"));
+        graph.put("network.target", set());
+        graph.put("metrics.service", set());
+
+        StartPlan plan = StartPlan.create(graph);
+
+        Assert.assertEquals(plan.getWaves().size(), 3);
+        Assert.assertEquals(plan.getWaves().get(0), Arrays.asList("network.target", "metrics.service"));
+        Assert.assertEquals(plan.getWaves().get(1), Arrays.asList("db.service", "cache.service"));
+        Assert.assertEquals(plan.getWaves().get(2), Collections.singletonList("app.service"));
+        Assert.assertTrue(plan.getUnorderedUnits().isEmpty());
+    }
+
+    @Test(description="Tests placement of units on ordering cycles.")
+    public void testCycle() {
+        Map<String, Set<String>> graph = new LinkedHashMap<>();
+        graph.put("a.service", set());
+        graph.put("b.service", set("a.service", "c.service"));
+        graph.put("c.service", set("b.service"));
+
+        StartPlan plan = StartPlan.create(graph);
+
+        Assert.assertEquals(plan.getWaves().size(), 2);
+        Assert.assertEquals(plan.getWaves().get(0), Collections.singletonList("a.service"));
+        Assert.assertEquals(plan.getUnorderedUnits(), set("b.service", "c.service"));
+        Assert.assertEquals(new LinkedHashSet<>(plan.getWaves().get(1)), set("b.service", "c.service"));
+    }
+
+    @Test(description="Tests the critical path weighted by job durations.")
+    public void testCriticalPath() {
+        Map<String, Set<String>> graph = new LinkedHashMap<>();
+        graph.put("app.service", set("db.service", "cache.service"));
+        graph.put("db.service", set("network.target"));
+        graph.put("cache.service", set("network.target"));
+        graph.put("network.target", set());
+
+        StartPlan plan = StartPlan.create(graph);
+
+        Map<String, Long> durations = new HashMap<>();
+        durations.put("network.target", 5L);
+        durations.put("db.service", 300L);
+        durations.put("cache.service", 20L);
+        durations.put("app.service", 50L);
+
+        Assert.assertEquals(plan.getCriticalPath(durations), Arrays.asList("network.target", "db.service", "app.service"));
+    }
+
+    @Test(description="Tests wave by wave execution stopping after a failed wave.")
+    public void testExecute() throws DBusException {
+        Map<String, Set<String>> graph = new LinkedHashMap<>();
+        graph.put("app.service", set("db.service"));
+        graph.put("db.service", set("network.target"));
+        graph.put("network.target", set());
+
+        StartPlan plan = StartPlan.create(graph);
+
+        BulkOperation operation = Mockito.mock(BulkOperation.class);
+        Mockito.when(operation.start(Collections.singletonList("network.target"), Mode.REPLACE)).thenReturn(result(outcome("network.target", JobResult.DONE, 5L)));
+        Mockito.when(operation.start(Collections.singletonList("db.service"), Mode.REPLACE)).thenReturn(result(outcome("db.service", JobResult.FAILED, 100L)));
+
+        StartReport report = plan.execute(operation, Mode.REPLACE);
+
+        Mockito.verify(operation, Mockito.never()).start(Collections.singletonList("app.service"), Mode.REPLACE);
+
+        Assert.assertFalse(report.isSuccess());
+        Assert.assertEquals(report.getWaveResults().size(), 2);
+        Assert.assertEquals(report.getWaveLatencies(), Arrays.asList(5L, 100L));
+        Assert.assertEquals(report.getCriticalPath(), Arrays.asList("network.target", "db.service"));
+        Assert.assertEquals(report.getCriticalPathDuration(), 105L);
+    }
+
+    @Test(description="Tests that failed retrieval of ordering dependencies fails the plan.")
+    public void testFetchError() throws DBusException {
+        List<String> unitNames = Arrays.asList("app.service", "db.service");
+        List<String> propertyNames = Arrays.asList(StartPlan.ORDERING_PROPERTIES);
+
+        PropertyTable table = new PropertyTable(unitNames, propertyNames);
+        table.putValue("app.service", Unit.Property.AFTER, new Variant<>(new String[] { "db.service" }));
+        table.putValue("app.service", Unit.Property.BEFORE, new Variant<>(new String[0]));
+        table.putValue("db.service", Unit.Property.BEFORE, new Variant<>(new String[] { "app.service" }));
+
+        Manager manager = Mockito.mock(Manager.class);
+        Mockito.when(manager.fetch(Mockito.anyCollection(), Mockito.anyCollection())).thenReturn(table);
+
+        Assert.assertEquals(StartPlan.create(manager, unitNames, false).getWaves().size(), 2);
+
+        table.putError("db.service", Unit.Property.AFTER, new DBusExecutionException("No reply received within timeout"));
+
+        try {
+            StartPlan.create(manager, unitNames, false);
+
+            Assert.fail("Exception expected");
+        }
+        catch (final DBusException e) {
+            Assert.assertTrue(e.getMessage().contains("db.service"));
+        }
+    }
+
+    private static Set<String> set(final String... unitNames) {
+        return new LinkedHashSet<>(Arrays.asList(unitNames));
+    }
+
+    private static Outcome outcome(final String unitName, final JobResult result, final long duration) {
+        return new Outcome(unitName, null, result, null, 1L, duration);
+    }
+
+    private static BulkResult result(final Outcome... outcomes) {
+        List<Outcome> list = Arrays.asList(outcomes);
+
+        return new BulkResult(list, list.stream().mapToLong(Outcome::getDuration).max().orElse(0L));
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.awaitility.Awaitility;
+import org.freedesktop.dbus.Variant;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class StateChangeBatcherTest {
+
+    private static final Map<String, Variant<?>> ACTIVE = Collections.singletonMap(Unit.Property.ACTIVE_STATE, new Variant<>("active"));
+
+    @Test(description="Tests delivery of full batches on the calling thread.")
+    public void testBatchSize() {
+        Unit unit = Mockito.mock(Service.class);
+        List<List<UnitStateEvent>> batches = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        StateChangeBatcher batcher = new StateChangeBatcher(c -> {
+            batches.add(c);
+            threads.add(Thread.currentThread());
+        }, 3, 60000L, null, null);
+
+        for (int i = 0; i < 7; i++) {
+            batcher.stateChanged(unit, ACTIVE);
+        }
+
+        Assert.assertEquals(batches.size(), 2);
+        Assert.assertEquals(batches.get(0).size(), 3);
+        Assert.assertEquals(batches.get(1).size(), 3);
+        Assert.assertSame(batches.get(0).get(0).getUnit(), unit);
+        Assert.assertSame(batches.get(0).get(0).getChangedProperties(), ACTIVE);
+        Assert.assertTrue(threads.stream().allMatch(t -> t == Thread.currentThread()));
+
+        batcher.flush();
+
+        Assert.assertEquals(batches.size(), 3);
+        Assert.assertEquals(batches.get(2).size(), 1);
+
+        // Nothing pending
+        batcher.flush();
+
+        Assert.assertEquals(batches.size(), 3);
+    }
+
+    @Test(description="Tests delivery of incomplete batches after the maximum delay.")
+    public void testMaxDelay() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "scheduler"));
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "delivery"));
+        Unit unit = Mockito.mock(Service.class);
+        List<List<UnitStateEvent>> batches = Collections.synchronizedList(new ArrayList<>());
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            StateChangeBatcher batcher = new StateChangeBatcher(c -> {
+                batches.add(c);
+                threads.add(Thread.currentThread().getName());
+            }, 100, 100L, scheduler, executor);
+
+            batcher.stateChanged(unit, ACTIVE);
+            batcher.stateChanged(unit, ACTIVE);
+
+            Assert.assertTrue(batches.isEmpty());
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> batches.size() == 1);
+
+            Assert.assertEquals(batches.get(0).size(), 2);
+            Assert.assertEquals(threads, Collections.singletonList("delivery"));
+
+            // No delay means no batching at all
+            batches.clear();
+            batcher = new StateChangeBatcher(batches::add, 100, 0L, scheduler, executor);
+
+            batcher.stateChanged(unit, ACTIVE);
+            batcher.stateChanged(unit, ACTIVE);
+
+            Assert.assertEquals(batches.size(), 2);
+        }
+        finally {
+            scheduler.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+}
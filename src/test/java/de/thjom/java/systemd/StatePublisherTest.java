@@ -0,0 +1,232 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.awaitility.Awaitility;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.DBusSignal;
+import org.freedesktop.dbus.Variant;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class StatePublisherTest {
+
+    private static final Map<String, Variant<?>> ACTIVE = Collections.singletonMap(Unit.Property.ACTIVE_STATE, new Variant<>("active"));
+    private static final Map<String, Variant<?>> RUNNING = Collections.singletonMap(Unit.Property.SUB_STATE, new Variant<>("running"));
+
+    @Test(description="Tests delivery of requested events only.")
+    public void testBackpressure() {
+        TestAdapter adapter = new TestAdapter();
+        TestSubscriber subscriber = new TestSubscriber();
+        Unit unit = Mockito.mock(Service.class);
+
+        adapter.getStatePublisher(10, OverflowPolicy.BLOCK).subscribe(subscriber);
+
+        Assert.assertEquals(adapter.unitStateListeners.size(), 1);
+
+        subscriber.subscription.request(2L);
+
+        for (int i = 0; i < 5; i++) {
+            adapter.publish(unit, ACTIVE);
+        }
+
+        Assert.assertEquals(subscriber.events.size(), 2);
+
+        subscriber.subscription.request(10L);
+
+        Assert.assertEquals(subscriber.events.size(), 5);
+        Assert.assertSame(subscriber.events.get(0).getUnit(), unit);
+        Assert.assertSame(subscriber.events.get(0).getChangedProperties(), ACTIVE);
+
+        subscriber.subscription.cancel();
+
+        Assert.assertTrue(adapter.unitStateListeners.isEmpty());
+        Assert.assertNull(subscriber.error);
+    }
+
+    @Test(description="Tests overflow policies of the subscriber buffer.")
+    public void testOverflowPolicies() {
+        Unit cronie = mockUnit("cronie.service");
+        Unit sshd = mockUnit("sshd.service");
+
+        // Drop oldest
+        TestAdapter adapter = new TestAdapter();
+        TestSubscriber subscriber = new TestSubscriber();
+        SignalQueueStatistics statistics = new SignalQueueStatistics(null);
+
+        new StatePublisher(adapter, 2, OverflowPolicy.DROP_OLDEST, statistics).subscribe(subscriber);
+
+        adapter.publish(cronie, ACTIVE);
+        adapter.publish(sshd, ACTIVE);
+        adapter.publish(cronie, RUNNING);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        Assert.assertEquals(statistics.getDropped(), 1L);
+        Assert.assertEquals(subscriber.events.size(), 2);
+        Assert.assertSame(subscriber.events.get(0).getUnit(), sshd);
+
+        // Coalesce
+        adapter = new TestAdapter();
+        subscriber = new TestSubscriber();
+        statistics = new SignalQueueStatistics(null);
+
+        new StatePublisher(adapter, 2, OverflowPolicy.COALESCE, statistics).subscribe(subscriber);
+
+        adapter.publish(cronie, ACTIVE);
+        adapter.publish(sshd, ACTIVE);
+        // Another adapter instance of the same unit (e.g. a snapshot view)
+        adapter.publish(mockUnit("cronie.service"), RUNNING);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        Assert.assertEquals(statistics.getCoalesced(), 1L);
+        Assert.assertEquals(subscriber.events.size(), 2);
+        Assert.assertSame(subscriber.events.get(0).getUnit(), sshd);
+        Assert.assertSame(subscriber.events.get(1).getUnit(), cronie);
+        Assert.assertEquals(subscriber.events.get(1).getChangedProperties().keySet().size(), 2);
+
+        // Drop newest
+        adapter = new TestAdapter();
+        subscriber = new TestSubscriber();
+        statistics = new SignalQueueStatistics(null);
+
+        new StatePublisher(adapter, 1, OverflowPolicy.DROP_NEWEST, statistics).subscribe(subscriber);
+
+        adapter.publish(cronie, ACTIVE);
+        adapter.publish(sshd, ACTIVE);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        Assert.assertEquals(statistics.getDropped(), 1L);
+        Assert.assertEquals(subscriber.events.size(), 1);
+        Assert.assertSame(subscriber.events.get(0).getUnit(), cronie);
+    }
+
+    @Test(description="Tests that a full buffer blocks the publishing thread until events are requested.")
+    public void testBlocking() throws InterruptedException {
+        TestAdapter adapter = new TestAdapter();
+        TestSubscriber subscriber = new TestSubscriber();
+        Unit unit = Mockito.mock(Service.class);
+
+        adapter.getStatePublisher(1, OverflowPolicy.BLOCK).subscribe(subscriber);
+
+        Thread publisher = new Thread(() -> {
+            adapter.publish(unit, ACTIVE);
+            adapter.publish(unit, RUNNING);
+        });
+        publisher.start();
+
+        Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> publisher.getState() == Thread.State.WAITING);
+
+        subscriber.subscription.request(2L);
+        publisher.join(2000L);
+
+        Assert.assertFalse(publisher.isAlive());
+
+        Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> subscriber.events.size() == 2);
+    }
+
+    @Test(description="Tests that non-positive requests cancel the subscription with an error.")
+    public void testInvalidRequest() {
+        TestAdapter adapter = new TestAdapter();
+        TestSubscriber subscriber = new TestSubscriber();
+
+        adapter.getStatePublisher().subscribe(subscriber);
+        subscriber.subscription.request(0L);
+
+        Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+        Assert.assertTrue(adapter.unitStateListeners.isEmpty());
+    }
+
+    private static Unit mockUnit(final String name) {
+        Unit unit = Mockito.mock(Service.class);
+
+        try {
+            Field field = Unit.class.getDeclaredField("name");
+            field.setAccessible(true);
+            field.set(unit, name);
+        }
+        catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return unit;
+    }
+
+    private static class TestAdapter extends AbstractAdapter {
+
+        @Override
+        public void addListener(final UnitStateListener listener) {
+            // Without signal handler
+            unitStateListeners.add(listener);
+        }
+
+        @Override
+        public void removeListener(final UnitStateListener listener) {
+            unitStateListeners.remove(listener);
+        }
+
+        @Override
+        public <T extends DBusSignal> void addHandler(final Class<T> type, final DBusSigHandler<T> handler) {
+            // Do nothing (test case)
+        }
+
+        @Override
+        public <T extends DBusSignal> void removeHandler(final Class<T> type, final DBusSigHandler<T> handler) {
+            // Do nothing (test case)
+        }
+
+        void publish(final Unit unit, final Map<String, Variant<?>> properties) {
+            unitStateListeners.forEach(l -> l.stateChanged(unit, properties));
+        }
+
+    }
+
+    private static class TestSubscriber implements Flow.Subscriber<UnitStateEvent> {
+
+        private final List<UnitStateEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final UnitStateEvent item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            // Do nothing (test case)
+        }
+
+    }
+
+}
@@ -29,6 +29,15 @@ public class SystemdTest {
         Assert.assertEquals(Systemd.escapePath(null), "");
     }
 
+    @Test(description="Tests object path unescape function.")
+    public void testPathUnescaping() {
+        Assert.assertEquals(Systemd.unescapePath("cronie_2eservice"), "cronie.service");
+        Assert.assertEquals(Systemd.unescapePath("user_401000_2eservice"), "user@1000.service");
+        Assert.assertEquals(Systemd.unescapePath("worker_5f1_2eservice"), "worker_1.service");
+        Assert.assertEquals(Systemd.unescapePath("trailing_2"), "trailing_2");
+        Assert.assertEquals(Systemd.unescapePath(null), "");
+    }
+
     @Test(description="Tests micro-timestamp conversion to java.util.Date object.")
     public void testTimestampConversion() {
         long tstamp = System.currentTimeMillis();
@@ -19,13 +19,20 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.awaitility.Awaitility;
 import org.freedesktop.DBus;
 import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.DBusConnection;
+import org.freedesktop.dbus.DBusMatchRule;
 import org.freedesktop.dbus.DBusSigHandler;
 import org.freedesktop.dbus.Variant;
 import org.freedesktop.dbus.exceptions.DBusException;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import de.thjom.java.systemd.interfaces.ManagerInterface;
+import de.thjom.java.systemd.interfaces.PropertyInterface;
+
 public class UnitMonitorTest extends AbstractTestCase {
 
     @Override
@@ -115,6 +122,68 @@ public class UnitMonitorTest extends AbstractTestCase {
         }
     }
 
+    @Test(description="Tests the narrowed match rule of the state listener handlers of two monitors.")
+    public void testStateMatchRule() throws DBusException {
+        // Own connection mocks, the unrestricted rule is shared by all handlers of a connection
+        DBusConnection connection = Mockito.mock(DBusConnection.class);
+        DBus connectionBus = Mockito.mock(DBus.class);
+
+        Mockito.when(connection.getRemoteObject(Systemd.SERVICE_NAME, Systemd.OBJECT_PATH, ManagerInterface.class)).thenReturn(miface);
+        Mockito.when(connection.getRemoteObject(Mockito.eq(Systemd.SERVICE_NAME), Mockito.anyString(), Mockito.eq(PropertyInterface.class))).thenReturn(piface);
+        Mockito.when(connection.getRemoteObject(InterfaceAdapter.DBUS_SERVICE_NAME, InterfaceAdapter.DBUS_OBJECT_PATH, DBus.class)).thenReturn(connectionBus);
+
+        Manager manager = Manager.create(connection);
+        UnitMonitor first = createMonitor(manager);
+        UnitMonitor second = createMonitor(manager);
+
+        String rule = "type='signal',interface='org.freedesktop.DBus.Properties',member='PropertiesChanged',path_namespace='/org/freedesktop/systemd1/unit',arg0='org.freedesktop.systemd1.Unit'";
+        String unrestrictedRule = new DBusMatchRule(PropertiesChanged.class).toString();
+
+        UnitStateListener firstListener = (u, p) -> { /* Do nothing (test case) */ };
+        UnitStateListener secondListener = (u, p) -> { /* Do nothing (test case) */ };
+
+        InOrder order = Mockito.inOrder(connectionBus);
+
+        first.addListener(firstListener);
+
+        order.verify(connectionBus).AddMatch(rule);
+        order.verify(connectionBus).RemoveMatch(unrestrictedRule);
+
+        second.addListener(secondListener);
+
+        order.verify(connectionBus).AddMatch(rule);
+
+        first.removeListener(firstListener);
+
+        order.verify(connectionBus).RemoveMatch(rule);
+
+        second.removeListener(secondListener);
+
+        // Restored only for the last handler, the connection removes it again
+        order.verify(connectionBus).AddMatch(unrestrictedRule);
+        order.verify(connectionBus).RemoveMatch(rule);
+        order.verifyNoMoreInteractions();
+
+        Mockito.verify(connectionBus, Mockito.times(1)).AddMatch(unrestrictedRule);
+        Mockito.verify(connectionBus, Mockito.times(1)).RemoveMatch(unrestrictedRule);
+    }
+
+    private UnitMonitor createMonitor(final Manager manager) {
+        return new UnitMonitor(manager) {
+
+            @Override
+            public void reset() {
+                // Do nothing (simple mock object)
+            }
+
+            @Override
+            public void refresh() throws DBusException {
+                // Do nothing (simple mock object)
+            }
+
+        };
+    }
+
     @Test(description="Tests configuration of timer feature.")
     public void testTimerConfiguration() {
         final AtomicBoolean refreshed = new AtomicBoolean();
@@ -11,6 +11,11 @@
 
 package de.thjom.java.systemd;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.freedesktop.dbus.Path;
+import org.freedesktop.dbus.UInt32;
 import org.freedesktop.dbus.Variant;
 import org.freedesktop.dbus.exceptions.DBusException;
 import org.mockito.Mock;
@@ -23,6 +28,7 @@ import org.testng.annotations.Test;
 
 import de.thjom.java.systemd.interfaces.PropertyInterface;
 import de.thjom.java.systemd.interfaces.ServiceInterface;
+import de.thjom.java.systemd.types.UnitType;
 
 public class UnitNameMonitorTest extends AbstractTestCase {
 
@@ -42,6 +48,22 @@ public class UnitNameMonitorTest extends AbstractTestCase {
         super.setup();
 
         try {
+            Mockito.when(miface.listUnitsByNames(Mockito.anyList())).then(new Answer<List<UnitType>>() {
+
+                @Override
+                public List<UnitType> answer(final InvocationOnMock invocation) throws Throwable {
+                    List<String> names = invocation.getArgument(0);
+                    List<UnitType> list = new ArrayList<>();
+
+                    for (String name : names) {
+                        list.add(new UnitType(name, "", "loaded", "active", "running", "", new Path(Unit.OBJECT_PATH + Systemd.escapePath(name)), new UInt32(0L), "", new Path("/")));
+                    }
+
+                    return list;
+                }
+
+            });
+
             Mockito.when(siface0.getObjectPath()).thenReturn(OBJECT_PATH_AVAHI);
             Mockito.when(dbus.getRemoteObject(Mockito.eq(Systemd.SERVICE_NAME), Mockito.eq(OBJECT_PATH_AVAHI), Mockito.eq(ServiceInterface.class))).thenReturn(siface0);
 
@@ -172,6 +194,37 @@ public class UnitNameMonitorTest extends AbstractTestCase {
         Assert.assertEquals(monitor.getMonitoredUnits().size(), 3);
     }
 
+    @Test(description="Tests batched refreshing with prefetched unit states.")
+    public void testBatchedRefreshing() {
+        UnitNameMonitor monitor = null;
+        Unit cronie = null;
+
+        try {
+            monitor = new UnitNameMonitor(systemd.getManager());
+            monitor.addUnits("avahi-daemon.service", "cronie.service", "polkit.service");
+
+            cronie = monitor.getMonitoredUnit("cronie.service").get();
+
+            Mockito.clearInvocations(miface);
+
+            monitor.refresh();
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+
+        Mockito.verify(miface, Mockito.times(1)).listUnitsByNames(Mockito.anyList());
+
+        Assert.assertEquals(monitor.getMonitoredUnits().size(), 3);
+        Assert.assertSame(monitor.getMonitoredUnit("cronie.service").get(), cronie);
+        Assert.assertEquals(monitor.getUnitState("cronie.service").get().getActiveState(), "active");
+        Assert.assertEquals(monitor.getUnitState("polkit.service").get().getSubState(), "running");
+
+        monitor.removeUnits("polkit.service");
+
+        Assert.assertFalse(monitor.getUnitState("polkit.service").isPresent());
+    }
+
     @Test(description="Tests reset of monitoring configuration.")
     public void testMonitorResetting() {
         UnitNameMonitor monitor = null;
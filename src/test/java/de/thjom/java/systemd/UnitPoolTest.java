@@ -0,0 +1,152 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.interfaces.ManagerInterface.UnitRemoved;
+import de.thjom.java.systemd.interfaces.ServiceInterface;
+
+public class UnitPoolTest extends AbstractTestCase {
+
+    @Mock
+    private ServiceInterface siface;
+
+    @Override
+    @BeforeClass(alwaysRun=true)
+    public void setup() {
+        super.setup();
+
+        Mockito.when(siface.getObjectPath()).thenReturn(Unit.OBJECT_PATH + Systemd.escapePath("pooled.service"));
+
+        try {
+            Mockito.when(dbus.getRemoteObject(Mockito.eq(Systemd.SERVICE_NAME), Mockito.anyString(), Mockito.eq(ServiceInterface.class))).thenReturn(siface);
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    @Test(description="Tests that repeated lookups return the pooled adapter.")
+    public void testPooling() throws DBusException {
+        Manager manager = systemd.getManager();
+        String objectPath = Unit.OBJECT_PATH + Systemd.escapePath("pooled.service");
+
+        Service service = manager.getService("pooled");
+
+        Assert.assertSame(manager.getService("pooled.service"), service);
+        Assert.assertSame(manager.getUnit("pooled.service"), service);
+
+        Mockito.verify(dbus, Mockito.times(1)).getRemoteObject(Systemd.SERVICE_NAME, objectPath, ServiceInterface.class);
+    }
+
+    @Test(description="Tests eviction of pooled adapters on unit removal.")
+    @SuppressWarnings("unchecked")
+    public void testEviction() throws DBusException {
+        Manager manager = systemd.getManager();
+        Service service = manager.getService("removed");
+
+        ArgumentCaptor<DBusSigHandler<UnitRemoved>> captor = ArgumentCaptor.forClass(DBusSigHandler.class);
+        Mockito.verify(dbus).addSigHandler(Mockito.eq(UnitRemoved.class), captor.capture());
+
+        String objectPath = Unit.OBJECT_PATH + Systemd.escapePath("removed.service");
+        captor.getValue().handle(new UnitRemoved(Systemd.OBJECT_PATH, "removed.service", new org.freedesktop.dbus.Path(objectPath)));
+
+        Assert.assertNotSame(manager.getService("removed"), service);
+    }
+
+    @Test(description="Tests the capacity bound of the pool.")
+    public void testCapacity() throws DBusException {
+        Manager manager = systemd.getManager();
+
+        try {
+            manager.clearUnitPool();
+            manager.setUnitPoolCapacity(2);
+
+            Service first = manager.getService("first");
+            manager.getService("second");
+            manager.getService("third");
+
+            Assert.assertNotSame(manager.getService("first"), first);
+
+            Service third = manager.getService("third");
+            PropertySnapshot snapshot = PropertySnapshot.of(third.getObjectPath(), Unit.SERVICE_NAME, Collections.emptyMap());
+
+            Assert.assertThrows(IllegalStateException.class, () -> third.attachSnapshot(snapshot));
+
+            manager.setUnitPoolCapacity(0);
+
+            Assert.assertNotSame(manager.getService("fourth"), manager.getService("fourth"));
+
+            // Trimmed adapters are no longer shared
+            third.attachSnapshot(snapshot);
+
+            Assert.assertTrue(third.getUnitProperties().getAttachedSnapshot().isPresent());
+        }
+        finally {
+            manager.setUnitPoolCapacity(Manager.DEFAULT_UNIT_POOL_CAPACITY);
+        }
+    }
+
+    @Test(description="Measures latency and allocation of repeated unit lookups with and without pooling.", groups="manual")
+    public void benchmarkPooling() throws DBusException {
+        Manager manager = systemd.getManager();
+        int units = 500;
+        int rounds = 20;
+
+        try {
+            for (int capacity : new int[] { 0, Manager.DEFAULT_UNIT_POOL_CAPACITY }) {
+                manager.clearUnitPool();
+                manager.setUnitPoolCapacity(capacity);
+
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+
+                for (int r = 0; r < rounds; r++) {
+                    for (int i = 0; i < units; i++) {
+                        manager.getUnit("bench" + i + ".service");
+                    }
+                }
+
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                bytes = allocatedBytes() - bytes;
+
+                System.out.println(String.format("%d lookups (capacity %d): %d ms, %d KiB allocated", units * rounds, capacity, elapsed, bytes / 1024));
+            }
+        }
+        finally {
+            manager.setUnitPoolCapacity(Manager.DEFAULT_UNIT_POOL_CAPACITY);
+        }
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+
+        return 0L;
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.awaitility.Awaitility;
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.CallbackHandler;
+import org.freedesktop.dbus.DBusInterface;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.DBusSignal;
+import org.freedesktop.dbus.Path;
+import org.freedesktop.dbus.UInt32;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.interfaces.ManagerInterface.JobNew;
+import de.thjom.java.systemd.interfaces.ManagerInterface.JobRemoved;
+import de.thjom.java.systemd.interfaces.ManagerInterface.UnitNew;
+import de.thjom.java.systemd.interfaces.ManagerInterface.UnitRemoved;
+import de.thjom.java.systemd.interfaces.PropertyInterface;
+import de.thjom.java.systemd.types.UnitType;
+
+public class UnitRegistryTest extends AbstractTestCase {
+
+    private static final Path OBJECT_PATH_CRONIE = new Path(Unit.OBJECT_PATH + Systemd.escapePath("cronie.service"));
+    private static final Path OBJECT_PATH_AVAHI = new Path(Unit.OBJECT_PATH + Systemd.escapePath("avahi-daemon.service"));
+    private static final Path OBJECT_PATH_TMP = new Path(Unit.OBJECT_PATH + Systemd.escapePath("tmp.mount"));
+    private static final Path OBJECT_PATH_SSHD = new Path(Unit.OBJECT_PATH + Systemd.escapePath("sshd.service"));
+
+    private static final Path OBJECT_PATH_APP_SOCKET = new Path(Unit.OBJECT_PATH + Systemd.escapePath("app.socket"));
+    private static final Path OBJECT_PATH_SSHD_SOCKET = new Path(Unit.OBJECT_PATH + Systemd.escapePath("sshd.socket"));
+
+    private static final Path NO_JOB = new Path("/");
+
+    @Mock
+    private PropertyInterface pifaceApp;
+
+    @Override
+    @BeforeClass
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        super.setup();
+
+        List<UnitType> list = new ArrayList<>();
+        list.add(new UnitType("cronie.service", "Command Scheduler", "loaded", "active", "running", "", OBJECT_PATH_CRONIE, new UInt32(0L), "", NO_JOB));
+        list.add(new UnitType("avahi-daemon.service", "Avahi", "loaded", "failed", "failed", "", OBJECT_PATH_AVAHI, new UInt32(0L), "", NO_JOB));
+        list.add(new UnitType("tmp.mount", "Temporary Directory", "loaded", "failed", "failed", "", OBJECT_PATH_TMP, new UInt32(0L), "", NO_JOB));
+        list.add(new UnitType("app.socket", "App Socket", "loaded", "active", "listening", "", OBJECT_PATH_APP_SOCKET, new UInt32(0L), "", NO_JOB));
+        list.add(new UnitType("sshd.socket", "SSH Socket", "loaded", "active", "listening", "", OBJECT_PATH_SSHD_SOCKET, new UInt32(0L), "", NO_JOB));
+
+        Mockito.when(miface.listUnits()).thenReturn(list);
+
+        Mockito.doAnswer(invocation -> {
+            PropertyInterface iface = invocation.getArgument(0);
+            CallbackHandler<Variant<?>> callback = invocation.getArgument(2);
+
+            callback.handle(new Variant<>(iface == pifaceApp ? "system-app.slice" : "system.slice"));
+
+            return null;
+        }).when(dbus).callWithCallback(Mockito.any(DBusInterface.class), Mockito.anyString(), Mockito.any(CallbackHandler.class), Mockito.any(), Mockito.any());
+
+        try {
+            Mockito.when(dbus.getRemoteObject(Systemd.SERVICE_NAME, OBJECT_PATH_APP_SOCKET.getPath(), PropertyInterface.class)).thenReturn(pifaceApp);
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    @Test(description="Tests seeding and signal driven updates of the unit registry.")
+    public void testRegistry() throws DBusException {
+        Manager manager = systemd.getManager();
+        UnitRegistry registry = new UnitRegistry(manager);
+
+        registry.start();
+
+        try {
+            Assert.assertTrue(registry.isRunning());
+            Assert.assertEquals(registry.size(), 5);
+            Assert.assertEquals(registry.getFailedUnits().size(), 2);
+            Assert.assertEquals(registry.getFailedUnits(Service.UNIT_SUFFIX).size(), 1);
+            Assert.assertEquals(registry.getUnits(Mount.UNIT_SUFFIX).size(), 1);
+
+            DBusSigHandler<UnitNew> unitNewHandler = captureHandler(UnitNew.class);
+            DBusSigHandler<UnitRemoved> unitRemovedHandler = captureHandler(UnitRemoved.class);
+            DBusSigHandler<JobNew> jobNewHandler = captureHandler(JobNew.class);
+            DBusSigHandler<JobRemoved> jobRemovedHandler = captureHandler(JobRemoved.class);
+            DBusSigHandler<PropertiesChanged> propertiesChangedHandler = captureHandler(PropertiesChanged.class);
+
+            Map<String, Variant<?>> changed = new HashMap<>();
+            changed.put(Unit.Property.ACTIVE_STATE, new Variant<>("failed"));
+            changed.put(Unit.Property.SUB_STATE, new Variant<>("failed"));
+
+            unitNewHandler.handle(new UnitNew(Systemd.OBJECT_PATH, "sshd.service", OBJECT_PATH_SSHD));
+            unitRemovedHandler.handle(new UnitRemoved(Systemd.OBJECT_PATH, "tmp.mount", OBJECT_PATH_TMP));
+            propertiesChangedHandler.handle(new PropertiesChanged(OBJECT_PATH_CRONIE.getPath(), Unit.SERVICE_NAME, changed, Collections.emptyList()));
+            jobNewHandler.handle(new JobNew(Systemd.OBJECT_PATH, 42L, new Path("/org/freedesktop/systemd1/job/42"), "sshd.service"));
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> registry.getUnit("sshd.service").map(UnitType::getJobId).orElse(0) == 42);
+
+            Assert.assertEquals(registry.size(), 5);
+            Assert.assertFalse(registry.getUnit("tmp.mount").isPresent());
+            Assert.assertEquals(registry.getUnit("cronie.service").get().getActiveState(), "failed");
+            Assert.assertEquals(registry.getUnit("cronie.service").get().getUnitDescription(), "Command Scheduler");
+            Assert.assertEquals(registry.getFailedUnits(Service.UNIT_SUFFIX).size(), 2);
+
+            jobRemovedHandler.handle(new JobRemoved(Systemd.OBJECT_PATH, 42L, new Path("/org/freedesktop/systemd1/job/42"), "sshd.service", "done"));
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> registry.getUnit("sshd.service").get().getJobId() == 0);
+        }
+        finally {
+            registry.stop();
+        }
+
+        Assert.assertFalse(registry.isRunning());
+    }
+
+    @Test(description="Tests indexed queries including the slice index.")
+    public void testQuery() throws DBusException {
+        Manager manager = systemd.getManager();
+        UnitRegistry registry = new UnitRegistry(manager);
+
+        registry.setSliceIndexing(true);
+        registry.start();
+
+        try {
+            Assert.assertEquals(registry.query().type(Socket.UNIT_SUFFIX).subState("listening").count(), 2);
+            Assert.assertEquals(registry.query().type(Socket.UNIT_SUFFIX).subState("listening").slice("system-app.slice").getNames(), Collections.singleton("app.socket"));
+            Assert.assertEquals(registry.query().slice("system.slice").count(), 4);
+            Assert.assertEquals(registry.query().type(Service.UNIT_SUFFIX).activeState("failed").loadState("loaded").count(), 1);
+            Assert.assertEquals(registry.query().count(), registry.size());
+            Assert.assertEquals(registry.getSlice("sshd.socket").get(), "system.slice");
+
+            DBusSigHandler<UnitNew> unitNewHandler = captureHandler(UnitNew.class);
+            DBusSigHandler<UnitRemoved> unitRemovedHandler = captureHandler(UnitRemoved.class);
+            DBusSigHandler<PropertiesChanged> propertiesChangedHandler = captureHandler(PropertiesChanged.class);
+
+            // Slices of new units are retrieved asynchronously
+            unitNewHandler.handle(new UnitNew(Systemd.OBJECT_PATH, "sshd.service", OBJECT_PATH_SSHD));
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> registry.getSlice("sshd.service").isPresent());
+
+            Assert.assertEquals(registry.query().slice("system.slice").count(), 5);
+
+            Map<String, Variant<?>> changed = new HashMap<>();
+            changed.put(Unit.Property.SUB_STATE, new Variant<>("running"));
+
+            propertiesChangedHandler.handle(new PropertiesChanged(OBJECT_PATH_SSHD_SOCKET.getPath(), Unit.SERVICE_NAME, changed, Collections.emptyList()));
+            unitRemovedHandler.handle(new UnitRemoved(Systemd.OBJECT_PATH, "app.socket", OBJECT_PATH_APP_SOCKET));
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> registry.query().type(Socket.UNIT_SUFFIX).count() == 1);
+
+            Assert.assertEquals(registry.query().subState("listening").count(), 0);
+            Assert.assertEquals(registry.query().subState("running").getNames(), new HashSet<>(Arrays.asList("cronie.service", "sshd.socket")));
+            Assert.assertEquals(registry.query().slice("system-app.slice").count(), 0);
+        }
+        finally {
+            registry.stop();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends DBusSignal> DBusSigHandler<T> captureHandler(final Class<T> type) throws DBusException {
+        ArgumentCaptor<DBusSigHandler<T>> captor = ArgumentCaptor.forClass(DBusSigHandler.class);
+        Mockito.verify(dbus, Mockito.atLeastOnce()).addSigHandler(Mockito.eq(type), captor.capture());
+
+        return captor.getValue();
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Java-systemd implementation
+ * Copyright (c) 2016 Markus Enax
+ *
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of either the GNU Lesser General Public License Version 2 or the
+ * Academic Free Licence Version 3.0.
+ *
+ * Full licence texts are included in the COPYING file with this program.
+ */
+
+package de.thjom.java.systemd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.freedesktop.DBus.Properties.PropertiesChanged;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.Variant;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import de.thjom.java.systemd.Unit.ActiveState;
+import de.thjom.java.systemd.Unit.LoadState;
+import de.thjom.java.systemd.Unit.StateTuple;
+import de.thjom.java.systemd.Unit.SubState;
+import de.thjom.java.systemd.interfaces.ServiceInterface;
+
+public class UnitStateEventTest extends AbstractTestCase {
+
+    @Mock
+    private ServiceInterface siface;
+
+    @Override
+    @BeforeClass
+    public void setup() {
+        super.setup();
+
+        Mockito.when(siface.getObjectPath()).thenReturn(Unit.OBJECT_PATH + Systemd.escapePath("cronie.service"));
+
+        try {
+            Mockito.when(dbus.getRemoteObject(Mockito.eq(Systemd.SERVICE_NAME), Mockito.anyString(), Mockito.eq(ServiceInterface.class))).thenReturn(siface);
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    @Test(description="Tests parsing of state names.")
+    public void testParsing() {
+        Assert.assertEquals(ActiveState.parse("active"), ActiveState.ACTIVE);
+        Assert.assertEquals(ActiveState.parse("deactivating"), ActiveState.DEACTIVATING);
+        Assert.assertEquals(ActiveState.parse("bogus"), ActiveState.UNKNOWN);
+        Assert.assertEquals(ActiveState.parse(null), ActiveState.UNKNOWN);
+        Assert.assertEquals(LoadState.parse("not-found"), LoadState.NOT_FOUND);
+        Assert.assertEquals(SubState.parse("stop-sigterm"), SubState.STOP_SIGTERM);
+        Assert.assertEquals(SubState.parse("listening"), SubState.LISTENING);
+        Assert.assertEquals(SubState.parse(""), SubState.UNKNOWN);
+
+        for (SubState state : SubState.values()) {
+            Assert.assertSame(SubState.parse(state.getValue()), state);
+        }
+    }
+
+    @Test(description="Tests creation of events with previous states.")
+    public void testCreation() {
+        Unit unit = Mockito.mock(Service.class);
+
+        Assert.assertNull(UnitStateEvent.create(unit, Collections.singletonMap(Unit.Property.ACTIVE_ENTER_TIMESTAMP, new Variant<>(1L)), null));
+
+        Map<String, Variant<?>> properties = new HashMap<>();
+        properties.put(Unit.Property.ACTIVE_STATE, new Variant<>("deactivating"));
+        properties.put(Unit.Property.SUB_STATE, new Variant<>("stop-sigterm"));
+        properties.put(Unit.Property.INVOCATION_ID, new Variant<>(new byte[] { 0x0a, (byte) 0xbc }));
+
+        UnitStateEvent event = UnitStateEvent.create(unit, properties, new StateTuple("loaded", "active", "running"));
+
+        Assert.assertSame(event.getUnit(), unit);
+        Assert.assertEquals(event.getLoadState(), LoadState.LOADED);
+        Assert.assertEquals(event.getActiveState(), ActiveState.DEACTIVATING);
+        Assert.assertEquals(event.getSubState(), SubState.STOP_SIGTERM);
+        Assert.assertEquals(event.getPreviousActiveState(), ActiveState.ACTIVE);
+        Assert.assertEquals(event.getPreviousSubState(), SubState.RUNNING);
+        Assert.assertEquals(event.getInvocationId(), "0abc");
+
+        UnitStateEvent next = UnitStateEvent.create(unit, Collections.singletonMap(Unit.Property.ACTIVE_STATE, new Variant<>("inactive")), null);
+        UnitStateEvent merged = event.merge(next);
+
+        Assert.assertEquals(merged.getActiveState(), ActiveState.INACTIVE);
+        Assert.assertEquals(merged.getPreviousActiveState(), ActiveState.ACTIVE);
+        Assert.assertEquals(merged.getInvocationId(), "0abc");
+        Assert.assertEquals(merged.getChangedProperties().size(), 3);
+    }
+
+    @Test(description="Tests that all listeners of a unit share the event of a signal.")
+    public void testSharedEvent() throws DBusException {
+        Unit unit = systemd.getManager().getService("cronie");
+
+        List<UnitStateEvent> received = new ArrayList<>();
+        unit.unitStateListeners.add(new TestListener(received));
+        unit.unitStateListeners.add(new TestListener(received));
+
+        DBusSigHandler<PropertiesChanged> handler = unit.createStateHandler();
+        handler.handle(new PropertiesChanged(siface.getObjectPath(), Unit.SERVICE_NAME, Collections.singletonMap(Unit.Property.ACTIVE_STATE, new Variant<>("active")), Collections.emptyList()));
+        handler.handle(new PropertiesChanged(siface.getObjectPath(), Unit.SERVICE_NAME, Collections.singletonMap(Unit.Property.ACTIVE_STATE, new Variant<>("deactivating")), Collections.emptyList()));
+
+        Assert.assertEquals(received.size(), 4);
+        Assert.assertSame(received.get(0), received.get(1));
+        Assert.assertEquals(received.get(2).getPreviousActiveState(), ActiveState.ACTIVE);
+        Assert.assertEquals(received.get(2).getActiveState(), ActiveState.DEACTIVATING);
+    }
+
+    private static class TestListener implements UnitStateListener {
+
+        private final List<UnitStateEvent> received;
+
+        TestListener(final List<UnitStateEvent> received) {
+            this.received = received;
+        }
+
+        @Override
+        public void stateChanged(final Unit unit, final Map<String, Variant<?>> changedProperties) {
+            Assert.fail("Typed event expected");
+        }
+
+        @Override
+        public void stateChanged(final UnitStateEvent event) {
+            received.add(event);
+        }
+
+    }
+
+}
@@ -12,11 +12,20 @@
 package de.thjom.java.systemd;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import org.awaitility.Awaitility;
+import org.freedesktop.dbus.DBusSigHandler;
+import org.freedesktop.dbus.Path;
 import org.freedesktop.dbus.UInt32;
 import org.freedesktop.dbus.Variant;
 import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
@@ -26,6 +35,9 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import de.thjom.java.systemd.UnitTypeMonitor.MonitoredType;
+import de.thjom.java.systemd.interfaces.ManagerInterface.Reloading;
+import de.thjom.java.systemd.interfaces.ManagerInterface.UnitNew;
+import de.thjom.java.systemd.interfaces.ManagerInterface.UnitRemoved;
 import de.thjom.java.systemd.interfaces.MountInterface;
 import de.thjom.java.systemd.interfaces.PropertyInterface;
 import de.thjom.java.systemd.interfaces.ServiceInterface;
@@ -55,6 +67,26 @@ public class UnitTypeMonitorTest extends AbstractTestCase {
     @Mock
     private PropertyInterface piface0, piface1, piface2, piface3, piface4, piface5;
 
+    private final Answer<List<UnitType>> patternListing = new Answer<List<UnitType>>() {
+
+        @Override
+        public List<UnitType> answer(final InvocationOnMock invocation) throws Throwable {
+            List<String> patterns = invocation.getArgument(1);
+            List<UnitType> list = new ArrayList<>();
+
+            for (UnitType unit : createUnits()) {
+                for (String pattern : patterns) {
+                    if (unit.getUnitName().endsWith(pattern.substring(1))) {
+                        list.add(unit);
+                    }
+                }
+            }
+
+            return list;
+        }
+
+    };
+
     @Override
     @BeforeClass
     public void setup() {
@@ -65,21 +97,13 @@ public class UnitTypeMonitorTest extends AbstractTestCase {
 
                 @Override
                 public List<UnitType> answer(final InvocationOnMock invocation) throws Throwable {
-                    List<UnitType> list = new ArrayList<>();
-                    list.add(new UnitType("boot.mount", null, null, null, null, null, null, new UInt32(0L), null, null));
-                    list.add(new UnitType("run-user-1000.mount", null, null, null, null, null, null, new UInt32(0L), null, null));
-                    list.add(new UnitType("tmp.mount", null, null, null, null, null, null, new UInt32(0L), null, null));
-
-                    list.add(new UnitType("avahi-daemon.service", null, null, null, null, null, null, new UInt32(0L), null, null));
-                    list.add(new UnitType("cronie.service", null, null, null, null, null, null, new UInt32(0L), null, null));
-
-                    list.add(new UnitType("systemd-initctl.socket", null, null, null, null, null, null, new UInt32(0L), null, null));
-
-                    return list;
+                    return createUnits();
                 }
 
             });
 
+            Mockito.when(miface.listUnitsByPatterns(Mockito.anyList(), Mockito.anyList())).then(patternListing);
+
             Mockito.when(miface0.getObjectPath()).thenReturn(OBJECT_PATH_MOUNT_BOOT);
             Mockito.when(dbus.getRemoteObject(Mockito.eq(Systemd.SERVICE_NAME), Mockito.eq(OBJECT_PATH_MOUNT_BOOT), Mockito.eq(MountInterface.class))).thenReturn(miface0);
 
@@ -164,6 +188,20 @@ public class UnitTypeMonitorTest extends AbstractTestCase {
         }
     }
 
+    private static List<UnitType> createUnits() {
+        List<UnitType> list = new ArrayList<>();
+        list.add(new UnitType("boot.mount", null, null, null, null, null, null, new UInt32(0L), null, null));
+        list.add(new UnitType("run-user-1000.mount", null, null, null, null, null, null, new UInt32(0L), null, null));
+        list.add(new UnitType("tmp.mount", null, null, null, null, null, null, new UInt32(0L), null, null));
+
+        list.add(new UnitType("avahi-daemon.service", null, null, null, null, null, null, new UInt32(0L), null, null));
+        list.add(new UnitType("cronie.service", null, null, null, null, null, null, new UInt32(0L), null, null));
+
+        list.add(new UnitType("systemd-initctl.socket", null, null, null, null, null, null, new UInt32(0L), null, null));
+
+        return list;
+    }
+
     @Test(description="Tests monitoring configuration.")
     public void testMonitorConfiguration() {
         UnitTypeMonitor monitor = null;
@@ -243,6 +281,152 @@ public class UnitTypeMonitorTest extends AbstractTestCase {
         Assert.assertEquals(monitor.getMonitoredUnits().size(), 6);
     }
 
+    @Test(description="Tests in-place refreshing with delta notifications.")
+    public void testMonitorDelta() {
+        List<Collection<Unit>> added = new ArrayList<>();
+        List<Collection<Unit>> removed = new ArrayList<>();
+
+        UnitTypeMonitor monitor = null;
+        Unit socket = null;
+
+        try {
+            monitor = new UnitTypeMonitor(systemd.getManager());
+            monitor.addListener(new UnitMonitorListener() {
+
+                @Override
+                public void monitorRefreshed(final Collection<Unit> monitoredUnits) {
+                    // Do nothing
+                }
+
+                @Override
+                public void monitorChanged(final Collection<Unit> addedUnits, final Collection<Unit> removedUnits) {
+                    added.add(addedUnits);
+                    removed.add(removedUnits);
+                }
+
+            });
+
+            monitor.addMonitoredTypes(MonitoredType.SOCKET);
+
+            socket = monitor.getMonitoredUnit("systemd-initctl.socket").get();
+
+            monitor.addMonitoredTypes(MonitoredType.MOUNT);
+            monitor.refresh();
+            monitor.removeMonitoredTypes(MonitoredType.MOUNT);
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+
+        Assert.assertEquals(added.size(), 3);
+        Assert.assertEquals(added.get(0).size(), 1);
+        Assert.assertEquals(added.get(1).size(), 3);
+        Assert.assertTrue(removed.get(1).isEmpty());
+        Assert.assertTrue(added.get(2).isEmpty());
+        Assert.assertEquals(removed.get(2).size(), 3);
+
+        Assert.assertEquals(monitor.getMonitoredUnits().size(), 1);
+        Assert.assertSame(monitor.getMonitoredUnit("systemd-initctl.socket").get(), socket);
+    }
+
+    @Test(description="Tests signal driven membership of monitored units.")
+    @SuppressWarnings("unchecked")
+    public void testSignalMembership() {
+        UnitTypeMonitor monitor = null;
+
+        try {
+            monitor = new UnitTypeMonitor(systemd.getManager());
+            monitor.addMonitoredTypes(MonitoredType.MOUNT, MonitoredType.SERVICE);
+
+            Mockito.clearInvocations(dbus, miface);
+
+            monitor.addDefaultHandlers();
+
+            ArgumentCaptor<DBusSigHandler<UnitNew>> unitNewCaptor = ArgumentCaptor.forClass(DBusSigHandler.class);
+            ArgumentCaptor<DBusSigHandler<UnitRemoved>> unitRemovedCaptor = ArgumentCaptor.forClass(DBusSigHandler.class);
+            ArgumentCaptor<DBusSigHandler<Reloading>> reloadingCaptor = ArgumentCaptor.forClass(DBusSigHandler.class);
+
+            Mockito.verify(dbus).addSigHandler(Mockito.eq(UnitNew.class), unitNewCaptor.capture());
+            Mockito.verify(dbus).addSigHandler(Mockito.eq(UnitRemoved.class), unitRemovedCaptor.capture());
+            Mockito.verify(dbus).addSigHandler(Mockito.eq(Reloading.class), reloadingCaptor.capture());
+
+            UnitTypeMonitor m = monitor;
+
+            unitRemovedCaptor.getValue().handle(new UnitRemoved(Systemd.OBJECT_PATH, "cronie.service", new Path(OBJECT_PATH_SERVICE_CRONIE)));
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> m.getMonitoredUnits().size() == 4);
+            Assert.assertFalse(monitor.monitorsUnit("cronie.service"));
+
+            unitNewCaptor.getValue().handle(new UnitNew(Systemd.OBJECT_PATH, "systemd-initctl.socket", new Path(OBJECT_PATH_SOCKET_INITCTL)));
+            unitNewCaptor.getValue().handle(new UnitNew(Systemd.OBJECT_PATH, "cronie.service", new Path(OBJECT_PATH_SERVICE_CRONIE)));
+
+            Awaitility.await().atMost(2L, TimeUnit.SECONDS).until(() -> m.getMonitoredUnits().size() == 5);
+            Assert.assertTrue(monitor.monitorsUnit("cronie.service"));
+            Assert.assertFalse(monitor.monitorsUnit("systemd-initctl.socket"));
+
+            // Removal and re-addition of the same unit are applied in order
+            unitRemovedCaptor.getValue().handle(new UnitRemoved(Systemd.OBJECT_PATH, "cronie.service", new Path(OBJECT_PATH_SERVICE_CRONIE)));
+            unitNewCaptor.getValue().handle(new UnitNew(Systemd.OBJECT_PATH, "cronie.service", new Path(OBJECT_PATH_SERVICE_CRONIE)));
+            reloadingCaptor.getValue().handle(new Reloading(Systemd.OBJECT_PATH, true));
+
+            Mockito.verify(miface, Mockito.never()).listUnits();
+            Mockito.verify(miface, Mockito.never()).listUnitsByPatterns(Mockito.anyList(), Mockito.anyList());
+
+            reloadingCaptor.getValue().handle(new Reloading(Systemd.OBJECT_PATH, false));
+
+            Mockito.verify(miface, Mockito.timeout(2000L)).listUnitsByPatterns(Mockito.anyList(), Mockito.anyList());
+            Assert.assertTrue(monitor.monitorsUnit("cronie.service"));
+            Assert.assertEquals(monitor.getMonitoredUnits().size(), 5);
+
+            monitor.removeDefaultHandlers();
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+    }
+
+    @Test(description="Tests listing of monitored units by name patterns.")
+    public void testPatternListing() {
+        UnitTypeMonitor monitor = null;
+
+        try {
+            Mockito.clearInvocations(miface);
+
+            monitor = new UnitTypeMonitor(systemd.getManager());
+
+            monitor.addMonitoredTypes(MonitoredType.MOUNT, MonitoredType.SOCKET);
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+
+        Assert.assertEquals(monitor.getMonitoredUnits().size(), 4);
+
+        Mockito.verify(miface).listUnitsByPatterns(Collections.emptyList(), Arrays.asList("*.mount", "*.socket"));
+        Mockito.verify(miface, Mockito.never()).listUnits();
+    }
+
+    @Test(description="Tests fallback to listing all units if pattern listing is unsupported.")
+    public void testPatternListingFallback() {
+        UnitTypeMonitor monitor = null;
+
+        Mockito.doThrow(new DBusExecutionException("Unknown method")).when(miface).listUnitsByPatterns(Mockito.anyList(), Mockito.anyList());
+
+        try {
+            monitor = new UnitTypeMonitor(systemd.getManager());
+            monitor.addMonitoredTypes(MonitoredType.SERVICE);
+            monitor.refresh();
+        }
+        catch (DBusException e) {
+            Assert.fail(e.getMessage(), e);
+        }
+        finally {
+            Mockito.doAnswer(patternListing).when(miface).listUnitsByPatterns(Mockito.anyList(), Mockito.anyList());
+        }
+
+        Assert.assertEquals(monitor.getMonitoredUnits().size(), 2);
+    }
+
     @Test(description="Tests reset of monitoring configuration.")
     public void testMonitorResetting() {
         UnitTypeMonitor monitor = null;